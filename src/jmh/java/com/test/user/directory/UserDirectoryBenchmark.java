@@ -0,0 +1,100 @@
+package com.test.user.directory;
+
+import com.test.user.entity.User;
+import com.test.user.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Lookups in a directory of a million users (1,000 managers, 10 team leaders each, 99 employees
+ * per team leader) against a {@code HashMap<UUID, User.Role>} of the same users. Run with
+ * {@code -prof gc} to see that the directory allocates nothing per lookup; the setup prints the
+ * heap held by its arrays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class UserDirectoryBenchmark {
+
+    private static final int MANAGERS = 1_000;
+    private static final int LEADERS_PER_MANAGER = 10;
+    private static final int EMPLOYEES_PER_LEADER = 99;
+
+    // Lookups cycle through this many employees, enough to defeat the CPU caches
+    private static final int PROBES = 1 << 14;
+
+    private UserDirectory directory;
+    private Map<UUID, User.Role> roles;
+    private UUID[] employees;
+    private UUID[] managersOfEmployees;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        directory = new UserDirectory(mock(UserRepository.class));
+        roles = new HashMap<>();
+        employees = new UUID[PROBES];
+        managersOfEmployees = new UUID[PROBES];
+        int probe = 0;
+        for (int m = 0; m < MANAGERS; m++) {
+            UUID manager = add(User.Role.MANAGER, null);
+            for (int l = 0; l < LEADERS_PER_MANAGER; l++) {
+                UUID leader = add(User.Role.TEAM_LEADER, manager);
+                for (int e = 0; e < EMPLOYEES_PER_LEADER; e++) {
+                    UUID employee = add(User.Role.EMPLOYEE, leader);
+                    // Spread the probes over the whole directory
+                    if (e == (m + l) % EMPLOYEES_PER_LEADER && probe < PROBES) {
+                        employees[probe] = employee;
+                        managersOfEmployees[probe++] = manager;
+                    }
+                }
+            }
+        }
+        for (; probe < PROBES; probe++) {
+            employees[probe] = employees[probe % MANAGERS];
+            managersOfEmployees[probe] = managersOfEmployees[probe % MANAGERS];
+        }
+        System.out.printf("%n%d users in %.1f MB%n", directory.size(), directory.footprintBytes() / 1048576.0);
+    }
+
+    private UUID add(User.Role role, UUID leader) {
+        UUID id = UUID.randomUUID();
+        directory.put(id, role, leader);
+        roles.put(id, role);
+        return id;
+    }
+
+    @Benchmark
+    public User.Role roleOf() {
+        return directory.roleOf(employees[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public User.Role roleOfHashMap() {
+        return roles.get(employees[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public Boolean isBelow() {
+        int i = next++ & (PROBES - 1);
+        return directory.isBelow(managersOfEmployees[i], employees[i]);
+    }
+}
@@ -0,0 +1,64 @@
+package com.test.user.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.user.entity.MailRequest;
+import com.test.user.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing a page of mail requests as a response body, with an ObjectMapper configured
+ * the way Spring Boot configures the one behind the controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MailRequestDtoJsonBenchmark {
+
+    // The default and the largest page size
+    @Param({"20", "100"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<MailRequestDto> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        UUID leaderId = UUID.randomUUID();
+        page = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            page.add(new MailRequestDto(UUID.randomUUID(), "Request " + i,
+                    "Please grant me access to the team's shared drive, request " + i + ".",
+                    UUID.randomUUID(), "Employee " + i, "employee" + i + "@example.com",
+                    leaderId, "Team Leader", User.Role.TEAM_LEADER, i % 2 == 0 ? Boolean.TRUE : null,
+                    i % 2 == 0 ? "Approved" : null, i % 2 == 0 ? MailRequest.Status.TL_ACCEPT : MailRequest.Status.HD_REQ,
+                    LocalDateTime.now().minusMinutes(i), i % 2 == 0 ? LocalDateTime.now() : null, 1L));
+        }
+    }
+
+    @Benchmark
+    public byte[] writeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,94 @@
+package com.test.user.search;
+
+import com.test.user.entity.MailRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the search index over a synthetic corpus whose word frequencies fall off like
+ * natural text, for a rare term, a common and a rare term together, and the most common term
+ * alone (the worst case: every request matches). Managers' searches are scoped to a tenth of the
+ * requesters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class SearchIndexBenchmark {
+
+    private static final int VOCABULARY = 50_000;
+    private static final int REQUESTERS = 10_000;
+
+    @Param("1000000")
+    public int requests;
+
+    private InvertedIndex index;
+    private SearchScope team;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        UUID[] requesters = new UUID[REQUESTERS];
+        for (int i = 0; i < REQUESTERS; i++) {
+            requesters[i] = UUID.randomUUID();
+        }
+        index = new InvertedIndex();
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < requests; i++) {
+            body.setLength(0);
+            for (int word = 0; word < 30; word++) {
+                body.append(word(random)).append(' ');
+            }
+            index.add(UUID.randomUUID(), requesters[random.nextInt(REQUESTERS)], MailRequest.Status.HD_REQ, null,
+                    word(random) + " " + word(random), body.toString());
+        }
+        Set<UUID> members = new HashSet<>();
+        for (int i = 0; i < REQUESTERS / 10; i++) {
+            members.add(requesters[i]);
+        }
+        team = new SearchScope(members, null);
+    }
+
+    @Benchmark
+    public Object rareTerm() {
+        return index.search(List.of("w20000"), SearchScope.everything(), Float.POSITIVE_INFINITY, Integer.MAX_VALUE, 51);
+    }
+
+    @Benchmark
+    public Object commonAndRareTerm() {
+        return index.search(List.of("w5", "w3000"), SearchScope.everything(), Float.POSITIVE_INFINITY, Integer.MAX_VALUE, 51);
+    }
+
+    @Benchmark
+    public Object mostCommonTerm() {
+        return index.search(List.of("w0"), SearchScope.everything(), Float.POSITIVE_INFINITY, Integer.MAX_VALUE, 51);
+    }
+
+    @Benchmark
+    public Object mostCommonTermInTeam() {
+        return index.search(List.of("w0"), team, Float.POSITIVE_INFINITY, Integer.MAX_VALUE, 51);
+    }
+
+    // Zipf-like: word n is drawn about 1/(n+1) as often as word 0
+    private static String word(Random random) {
+        return "w" + (int) Math.floor(Math.pow(VOCABULARY + 1, random.nextDouble()) - 1);
+    }
+}
@@ -0,0 +1,102 @@
+package com.test.user.security;
+
+import com.test.user.entity.User;
+import com.test.user.repository.RevokedTokenRepository;
+import com.test.user.repository.UserRepository;
+import com.test.user.repository.UserTokenCutoffRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * One authenticated request through {@link JwtAuthenticationFilter}: token lookup, revocation
+ * check, metrics and security context setup. The repositories are mocked, so the legacy mode
+ * measures the extra user mapping rather than a database round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    // Whether verified tokens are cached (jwt.cache.enabled)
+    @Param({"true", "false"})
+    public boolean cached;
+
+    // Whether the authentication comes from the claims alone (jwt.claims-only-authentication)
+    @Param({"true", "false"})
+    public boolean claimsOnly;
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+    private final FilterChain chain = (request, response) -> {
+    };
+
+    @Setup
+    public void setUp() {
+        JwtTokenUtil jwtTokenUtil = new JwtTokenUtil();
+        ReflectionTestUtils.setField(jwtTokenUtil, "secret", "benchmarkSecretKeyThatIsLongEnoughForHs256Signing");
+        ReflectionTestUtils.setField(jwtTokenUtil, "expiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtTokenUtil, "signingKeyRing", TokenVerificationBenchmark.signingKeyRing());
+        jwtTokenUtil.init();
+
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail("bench@example.com");
+        user.setPassword("{noop}password");
+        user.setRole(User.Role.EMPLOYEE);
+        authorization = "Bearer " + jwtTokenUtil.generateToken(user);
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtTokenUtil", jwtTokenUtil);
+        ReflectionTestUtils.setField(filter, "verifiedTokenCache", new VerifiedTokenCache(cached, 10_000));
+        ReflectionTestUtils.setField(filter, "tokenRevocationList", new TokenRevocationList(
+                mock(RevokedTokenRepository.class), mock(UserTokenCutoffRepository.class), jwtTokenUtil, 1 << 20));
+        ReflectionTestUtils.setField(filter, "userDetailsService", new CustomUserDetailsService(userRepository));
+        ReflectionTestUtils.setField(filter, "claimsOnlyAuthentication", claimsOnly);
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+        filter.initMetrics();
+    }
+
+    @Benchmark
+    public Authentication authenticate() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/mail-requests");
+        request.setServletPath("/api/mail-requests");
+        request.addHeader("Authorization", authorization);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.test.user.security;
+
+import com.test.user.entity.User;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of issuing an access token (ES256 signature) and of parsing one back into its claims,
+ * which every uncached request pays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenBenchmark {
+
+    private JwtTokenUtil jwtTokenUtil;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenUtil = new JwtTokenUtil();
+        ReflectionTestUtils.setField(jwtTokenUtil, "secret", "benchmarkSecretKeyThatIsLongEnoughForHs256Signing");
+        ReflectionTestUtils.setField(jwtTokenUtil, "expiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtTokenUtil, "signingKeyRing", TokenVerificationBenchmark.signingKeyRing());
+        jwtTokenUtil.init();
+
+        User leader = new User();
+        leader.setId(UUID.randomUUID());
+        user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail("bench@example.com");
+        user.setRole(User.Role.EMPLOYEE);
+        user.setLeader(leader);
+        token = jwtTokenUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenUtil.generateToken(user);
+    }
+
+    // What extractAllClaims and the extract* helpers built on it run
+    @Benchmark
+    public Claims parseClaims() {
+        return jwtTokenUtil.parseClaims(token);
+    }
+}
@@ -0,0 +1,103 @@
+package com.test.user.security;
+
+import com.test.user.entity.User;
+import com.test.user.entity.SigningKey;
+import com.test.user.repository.RevokedTokenRepository;
+import com.test.user.repository.SigningKeyRepository;
+import com.test.user.repository.UserTokenCutoffRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cost of authenticating a repeat request with and without {@link VerifiedTokenCache}, and of the
+ * {@link TokenRevocationList} check that follows every cache hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenVerificationBenchmark {
+
+    private JwtTokenUtil jwtTokenUtil;
+    private VerifiedTokenCache cache;
+    private TokenRevocationList revocationList;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenUtil = new JwtTokenUtil();
+        ReflectionTestUtils.setField(jwtTokenUtil, "secret", "benchmarkSecretKeyThatIsLongEnoughForHs256Signing");
+        ReflectionTestUtils.setField(jwtTokenUtil, "expiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtTokenUtil, "signingKeyRing", signingKeyRing());
+        jwtTokenUtil.init();
+
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail("bench@example.com");
+        user.setRole(User.Role.EMPLOYEE);
+        token = jwtTokenUtil.generateToken(user);
+
+        cache = new VerifiedTokenCache(true, 10_000);
+        cache.get(token, jwtTokenUtil::verify);
+
+        // A populated list, so lookups go through the Bloom filter rather than an empty-map shortcut
+        revocationList = new TokenRevocationList(mock(RevokedTokenRepository.class),
+                mock(UserTokenCutoffRepository.class), jwtTokenUtil, 1 << 20);
+        for (int i = 0; i < 10_000; i++) {
+            revocationList.revokeToken(UUID.randomUUID(), Instant.now().plusSeconds(900));
+            revocationList.revokeAllForUser(UUID.randomUUID());
+        }
+    }
+
+    // A key ring over an in-memory key list instead of the signing_keys table
+    static SigningKeyRing signingKeyRing() {
+        List<SigningKey> keys = new ArrayList<>();
+        SigningKeyRepository repository = mock(SigningKeyRepository.class);
+        when(repository.findUnretired(any())).thenReturn(keys);
+        when(repository.save(any())).thenAnswer(invocation -> {
+            keys.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        SigningKeyRing ring = new SigningKeyRing(repository, "benchmarkSecretKeyThatIsLongEnoughForHs256Signing",
+                Duration.ofDays(30), Duration.ofMinutes(2), TimeUnit.HOURS.toMillis(1));
+        ring.initialize();
+        return ring;
+    }
+
+    @Benchmark
+    public JwtPrincipal uncached() {
+        return jwtTokenUtil.verify(token);
+    }
+
+    @Benchmark
+    public JwtPrincipal cached() {
+        return cache.get(token, jwtTokenUtil::verify);
+    }
+
+    @Benchmark
+    public boolean cachedWithRevocationCheck() {
+        return revocationList.isRevoked(cache.get(token, jwtTokenUtil::verify));
+    }
+}
@@ -0,0 +1,73 @@
+package com.test.user.service.impl;
+
+import com.test.user.dto.MailRequestDto;
+import com.test.user.dto.UserDto;
+import com.test.user.entity.MailRequest;
+import com.test.user.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping one fully loaded entity to its response DTO, which list endpoints pay per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    private User user;
+    private MailRequest mailRequest;
+
+    @Setup
+    public void setUp() {
+        User leader = new User();
+        leader.setId(UUID.randomUUID());
+        leader.setName("Team Leader");
+        leader.setRole(User.Role.TEAM_LEADER);
+
+        user = new User();
+        user.setId(UUID.randomUUID());
+        user.setName("Employee");
+        user.setEmail("employee@example.com");
+        user.setRole(User.Role.EMPLOYEE);
+        user.setLeader(leader);
+
+        mailRequest = new MailRequest();
+        mailRequest.setId(UUID.randomUUID());
+        mailRequest.setSubject("Access to the shared drive");
+        mailRequest.setBody("Please grant me access to the team's shared drive.");
+        mailRequest.setUser(user);
+        mailRequest.setManager(leader);
+        mailRequest.setManagerApproved(true);
+        mailRequest.setComments("Approved");
+        mailRequest.setStatus(MailRequest.Status.TL_ACCEPT);
+        mailRequest.setCreatedAt(LocalDateTime.now().minusHours(1));
+        mailRequest.setReviewedAt(LocalDateTime.now());
+        mailRequest.setVersion(1L);
+    }
+
+    @Benchmark
+    public MailRequestDto mailRequestToDto() {
+        return MailRequestServiceImpl.mapToDto(mailRequest);
+    }
+
+    @Benchmark
+    public UserDto userToDto() {
+        return userServiceImpl.mapToDto(user);
+    }
+}
@@ -0,0 +1,123 @@
+package com.test.user.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.user.directory.UserDirectory;
+import com.test.user.dto.RegisterRequest;
+import com.test.user.entity.User;
+import com.test.user.repository.UserHierarchyRepository;
+import com.test.user.repository.UserRepository;
+import com.test.user.security.PasswordHashingPool;
+import com.test.user.security.TokenRevocationList;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rows per second of the bulk import against one createEmployee call per row. The repository is
+ * mocked, so the numbers isolate validation, the uniqueness checks and BCrypt (default strength).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class UserImportBenchmark {
+
+    private static final int ROWS = 64;
+
+    private userServiceImpl userService;
+    private PasswordHashingPool passwordHashingPool;
+    private ValidatorFactory validatorFactory;
+    private UUID leaderId;
+    private List<RegisterRequest> rows;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        User leader = new User();
+        leaderId = UUID.randomUUID();
+        leader.setId(leaderId);
+        leader.setRole(User.Role.TEAM_LEADER);
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(leaderId)).thenReturn(Optional.of(leader));
+        when(userRepository.getReferenceById(leaderId)).thenReturn(leader);
+        when(userRepository.existsByEmail(any())).thenReturn(false);
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            User saved = invocation.getArgument(0);
+            saved.setId(UUID.randomUUID());
+            return saved;
+        });
+        when(userRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            List<User> saved = new ArrayList<>();
+            ((Iterable<User>) invocation.getArgument(0)).forEach(saved::add);
+            return saved;
+        });
+
+        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+        passwordHashingPool = new PasswordHashingPool(passwordEncoder, 0, 1000);
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        userService = new userServiceImpl(userRepository, mock(UserHierarchyRepository.class),
+                new UserDirectory(userRepository), passwordEncoder, passwordHashingPool,
+                mock(TokenRevocationList.class), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                validatorFactory.getValidator(), new ObjectMapper().findAndRegisterModules(),
+                mock(ApplicationEventPublisher.class));
+
+        rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new RegisterRequest("User " + i, "user" + i + "@example.com", "Password1!", null));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordHashingPool.shutdown();
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void singleUserCalls() {
+        for (RegisterRequest row : rows) {
+            userService.createEmployee(row, leaderId);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void bulkImport() throws IOException {
+        userService.importUsers(rows, leaderId, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,296 @@
+package com.test.user.loadtest;
+
+import com.test.user.entity.MailRequest;
+import com.test.user.entity.User;
+import org.flywaydb.core.Flyway;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Bulk-loads a synthetic organisation and its mail request history, so the queue queries run
+ * against realistic volumes.
+ * <p>
+ * The schema is migrated with the application's own Flyway scripts, then users, their closure
+ * table rows and the requests are written with batched inserts (keep
+ * {@code rewriteBatchedStatements=true} on MySQL URLs). Options, all {@code --name=value}:
+ * <ul>
+ *     <li>{@code jdbc-url}, {@code jdbc-user}, {@code jdbc-password}: defaults to the local MySQL
+ *     of application.properties; an embedded database works too, e.g.
+ *     {@code jdbc:h2:file:./target/loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;AUTO_SERVER=TRUE}</li>
+ *     <li>{@code managers}, {@code leaders-per-manager}, {@code employees-per-leader},
+ *     {@code help-desk}, {@code password}: the organisation, see {@link LoadTestTeams}</li>
+ *     <li>{@code requests} (100000), {@code history-days} (90), {@code pending-share} (0.2):
+ *     the history, of which that share is still waiting for review</li>
+ *     <li>{@code batch-size} (1000), {@code seed} (42)</li>
+ * </ul>
+ */
+public final class LoadDataGenerator {
+
+    private static final String INSERT_USER = "insert into users (id, name, email, password, role, leader_id, created_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_HIERARCHY = "insert into user_hierarchy (ancestor_id, descendant_id, depth) "
+            + "values (?, ?, ?)";
+    private static final String INSERT_REQUEST = "insert into mail_requests (id, subject, body, user_id, manager_id, "
+            + "manager_approved, status, comments, created_at, reviewed_at, version) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    // Outcomes of the reviewed part of the history, most requests end up carried out
+    private static final MailRequest.Status[] REVIEWED = {
+            MailRequest.Status.HD_ACCEPT, MailRequest.Status.HD_ACCEPT, MailRequest.Status.HD_ACCEPT,
+            MailRequest.Status.HD_ACCEPT, MailRequest.Status.HD_ACCEPT, MailRequest.Status.HD_REJECT,
+            MailRequest.Status.TL_ACCEPT, MailRequest.Status.TL_REJECT, MailRequest.Status.MANAGER_ACCEPT,
+            MailRequest.Status.MANAGER_REJECT};
+
+    private final LoadTestTeams teams;
+    private final int batchSize;
+    private final Random random;
+
+    private final List<UUID> managerIds = new ArrayList<>();
+    private final List<UUID> leaderIds = new ArrayList<>();
+    private final List<UUID> helpDeskIds = new ArrayList<>();
+    // Employees by team, in the order of LoadTestTeams.employeeEmail
+    private final List<List<UUID>> employeeIds = new ArrayList<>();
+
+    private LoadDataGenerator(LoadTestTeams teams, int batchSize, long seed) {
+        this.teams = teams;
+        this.batchSize = batchSize;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws SQLException {
+        LoadTestOptions options = new LoadTestOptions(args);
+        String url = options.getString("jdbc-url", "jdbc:mysql://localhost:3306/testuser?rewriteBatchedStatements=true");
+        String user = options.getString("jdbc-user", "root");
+        String password = options.getString("jdbc-password", "Qwer1234@");
+
+        Flyway.configure()
+                .dataSource(url, user, password)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+
+        LoadDataGenerator generator = new LoadDataGenerator(LoadTestTeams.from(options),
+                options.getInt("batch-size", 1000), options.getInt("seed", 42));
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            connection.setAutoCommit(false);
+            long start = System.nanoTime();
+            generator.insertUsers(connection);
+            long users = System.nanoTime();
+            int requests = generator.insertRequests(connection, options.getInt("requests", 100_000),
+                    options.getInt("history-days", 90), options.getDouble("pending-share", 0.2));
+            long end = System.nanoTime();
+            System.out.printf("Inserted %d users in %d ms and %d mail requests in %d ms%n",
+                    generator.userCount(), (users - start) / 1_000_000, requests, (end - users) / 1_000_000);
+        }
+    }
+
+    private int userCount() {
+        return managerIds.size() + leaderIds.size() + helpDeskIds.size()
+                + employeeIds.stream().mapToInt(List::size).sum();
+    }
+
+    private void insertUsers(Connection connection) throws SQLException {
+        try (PreparedStatement exists = connection.prepareStatement("select 1 from users where email = ?")) {
+            exists.setString(1, teams.managerEmail(0));
+            try (ResultSet resultSet = exists.executeQuery()) {
+                if (resultSet.next()) {
+                    throw new IllegalStateException("The load test users are already there; start from an empty database");
+                }
+            }
+        }
+
+        // One hash for everybody: BCrypt per user would dominate the load time
+        String hash = "{bcrypt}" + new BCryptPasswordEncoder().encode(teams.password());
+        LocalDateTime createdAt = LocalDateTime.now().minusYears(1);
+
+        try (PreparedStatement users = connection.prepareStatement(INSERT_USER);
+             PreparedStatement hierarchy = connection.prepareStatement(INSERT_HIERARCHY)) {
+            Batch userBatch = new Batch(connection, users, null);
+            Batch hierarchyBatch = new Batch(connection, hierarchy, userBatch);
+
+            for (int manager = 0; manager < teams.managers(); manager++) {
+                UUID id = UUID.randomUUID();
+                managerIds.add(id);
+                addUser(userBatch, id, "Manager " + manager, teams.managerEmail(manager), hash,
+                        User.Role.MANAGER, null, createdAt);
+                addPaths(hierarchyBatch, id);
+            }
+            for (int helpDesk = 0; helpDesk < teams.helpDesk(); helpDesk++) {
+                UUID id = UUID.randomUUID();
+                helpDeskIds.add(id);
+                addUser(userBatch, id, "Help Desk " + helpDesk, teams.helpDeskEmail(helpDesk), hash,
+                        User.Role.HELP_DESK, null, createdAt);
+                addPaths(hierarchyBatch, id);
+            }
+            // Leaders before their employees, and every level flushed before the next one
+            userBatch.flush();
+            for (int team = 0; team < teams.teams(); team++) {
+                UUID id = UUID.randomUUID();
+                UUID managerId = managerIds.get(team / teams.leadersPerManager());
+                leaderIds.add(id);
+                addUser(userBatch, id, "Team Leader " + team, teams.leaderEmail(team), hash,
+                        User.Role.TEAM_LEADER, managerId, createdAt);
+                addPaths(hierarchyBatch, id, managerId);
+            }
+            userBatch.flush();
+            for (int team = 0; team < teams.teams(); team++) {
+                UUID leaderId = leaderIds.get(team);
+                UUID managerId = managerIds.get(team / teams.leadersPerManager());
+                List<UUID> members = new ArrayList<>(teams.employeesPerLeader());
+                for (int employee = 0; employee < teams.employeesPerLeader(); employee++) {
+                    UUID id = UUID.randomUUID();
+                    members.add(id);
+                    addUser(userBatch, id, "Employee " + team + "-" + employee, teams.employeeEmail(team, employee),
+                            hash, User.Role.EMPLOYEE, leaderId, createdAt);
+                    addPaths(hierarchyBatch, id, leaderId, managerId);
+                }
+                employeeIds.add(members);
+            }
+            userBatch.flush();
+            hierarchyBatch.flush();
+        }
+    }
+
+    private int insertRequests(Connection connection, int count, int historyDays, double pendingShare)
+            throws SQLException {
+        if (employeeIds.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long historyMinutes = historyDays * 24L * 60;
+
+        try (PreparedStatement requests = connection.prepareStatement(INSERT_REQUEST)) {
+            Batch batch = new Batch(connection, requests, null);
+            for (int i = 0; i < count; i++) {
+                int team = random.nextInt(employeeIds.size());
+                List<UUID> members = employeeIds.get(team);
+                UUID requesterId = members.get(random.nextInt(members.size()));
+                LocalDateTime createdAt = now.minusMinutes(random.nextLong(historyMinutes));
+
+                requests.setBytes(1, bytes(UUID.randomUUID()));
+                requests.setString(2, "Request " + i);
+                requests.setString(3, "Synthetic mail request " + i + " for the load test.");
+                requests.setBytes(4, bytes(requesterId));
+                if (random.nextDouble() < pendingShare) {
+                    requests.setNull(5, Types.BINARY);
+                    requests.setNull(6, Types.BOOLEAN);
+                    requests.setString(7, MailRequest.Status.HD_REQ.name());
+                    requests.setNull(8, Types.VARCHAR);
+                    requests.setObject(9, createdAt);
+                    requests.setNull(10, Types.TIMESTAMP);
+                } else {
+                    MailRequest.Status status = REVIEWED[random.nextInt(REVIEWED.length)];
+                    LocalDateTime reviewedAt = createdAt.plusMinutes(random.nextInt(3 * 24 * 60));
+                    requests.setBytes(5, bytes(reviewerOf(status, team)));
+                    requests.setBoolean(6, status.name().endsWith("_ACCEPT"));
+                    requests.setString(7, status.name());
+                    requests.setString(8, "Reviewed by the load test generator");
+                    requests.setObject(9, createdAt);
+                    requests.setObject(10, reviewedAt.isAfter(now) ? now : reviewedAt);
+                }
+                batch.add();
+            }
+            batch.flush();
+        }
+        return count;
+    }
+
+    // The reviewer whose decision produced the status
+    private UUID reviewerOf(MailRequest.Status status, int team) {
+        return switch (status) {
+            case TL_ACCEPT, TL_REJECT -> leaderIds.get(team);
+            case MANAGER_ACCEPT, MANAGER_REJECT -> managerIds.get(team / teams.leadersPerManager());
+            default -> helpDeskIds.isEmpty()
+                    ? leaderIds.get(team)
+                    : helpDeskIds.get(random.nextInt(helpDeskIds.size()));
+        };
+    }
+
+    private static void addUser(Batch batch, UUID id, String name, String email, String hash, User.Role role,
+                                UUID leaderId, LocalDateTime createdAt) throws SQLException {
+        PreparedStatement statement = batch.statement;
+        statement.setBytes(1, bytes(id));
+        statement.setString(2, name);
+        statement.setString(3, email);
+        statement.setString(4, hash);
+        statement.setString(5, role.name());
+        if (leaderId != null) {
+            statement.setBytes(6, bytes(leaderId));
+        } else {
+            statement.setNull(6, Types.BINARY);
+        }
+        statement.setObject(7, createdAt);
+        batch.add();
+    }
+
+    // The user itself at depth 0, then its ancestors from the nearest up
+    private static void addPaths(Batch batch, UUID id, UUID... ancestors) throws SQLException {
+        addPath(batch, id, id, 0);
+        for (int i = 0; i < ancestors.length; i++) {
+            addPath(batch, ancestors[i], id, i + 1);
+        }
+    }
+
+    private static void addPath(Batch batch, UUID ancestorId, UUID descendantId, int depth) throws SQLException {
+        batch.statement.setBytes(1, bytes(ancestorId));
+        batch.statement.setBytes(2, bytes(descendantId));
+        batch.statement.setInt(3, depth);
+        batch.add();
+    }
+
+    // binary(16) as Hibernate writes UUIDs: most significant bits first
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * A prepared statement executed and committed every {@code batchSize} rows, after the batch
+     * holding the rows it references.
+     */
+    private final class Batch {
+
+        final Connection connection;
+        final PreparedStatement statement;
+        final Batch referenced;
+        int pending;
+
+        Batch(Connection connection, PreparedStatement statement, Batch referenced) {
+            this.connection = connection;
+            this.statement = statement;
+            this.referenced = referenced;
+        }
+
+        void add() throws SQLException {
+            statement.addBatch();
+            if (++pending == batchSize) {
+                flush();
+            }
+        }
+
+        void flush() throws SQLException {
+            if (referenced != null) {
+                referenced.flush();
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+                connection.commit();
+                pending = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.test.user.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives the approval workflow against a running instance and reports latency percentiles per
+ * endpoint.
+ * <p>
+ * Every worker plays one team of the organisation {@link LoadDataGenerator} created (run both with
+ * the same organisation options) and loops over: an employee creates a request, the team leader
+ * lists {@code /pending} and reviews it, and the help desk carries out the approved ones. Users
+ * log in again every {@code relogin-every} iterations. Workers wait for each response before
+ * sending the next request, so under saturation the numbers understate the latency an open
+ * arrival rate would see. Options, all {@code --name=value}:
+ * <ul>
+ *     <li>{@code base-url} (http://localhost:8080), {@code concurrency} (16),
+ *     {@code warmup} (PT10S), {@code duration} (PT60S)</li>
+ *     <li>{@code relogin-every} (20), {@code approve-share} (0.9), {@code think-time} (PT0S)</li>
+ *     <li>{@code output} (target/loadtest-results.csv): the summary as CSV</li>
+ *     <li>the organisation options of {@link LoadTestTeams}</li>
+ * </ul>
+ * Accepted requests queue outbox mail, so run the instance with an SMTP server or a long
+ * {@code mail.dispatch.interval}.
+ */
+public final class LoadDriver {
+
+    private static final String LOGIN = "POST /api/auth/login";
+    private static final String CREATE = "POST /api/mail-requests";
+    private static final String PENDING = "GET /api/mail-requests/pending";
+    private static final String REVIEW = "POST /api/mail-requests/review";
+    private static final String HELP_DESK_REVIEW = "POST /api/mail-requests/help-desk/review";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final String baseUrl;
+    private final LoadTestTeams teams;
+    private final int reloginEvery;
+    private final double approveShare;
+    private final Duration thinkTime;
+
+    // Latency in microseconds, in report order
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+    private volatile boolean running = true;
+
+    private LoadDriver(LoadTestOptions options) {
+        this.baseUrl = options.getString("base-url", "http://localhost:8080");
+        this.teams = LoadTestTeams.from(options);
+        this.reloginEvery = options.getInt("relogin-every", 20);
+        this.approveShare = options.getDouble("approve-share", 0.9);
+        this.thinkTime = options.getDuration("think-time", Duration.ZERO);
+        for (String endpoint : new String[]{LOGIN, CREATE, PENDING, REVIEW, HELP_DESK_REVIEW}) {
+            endpoints.put(endpoint, new Endpoint());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = new LoadTestOptions(args);
+        LoadDriver driver = new LoadDriver(options);
+        int concurrency = options.getInt("concurrency", 16);
+        Duration warmup = options.getDuration("warmup", Duration.ofSeconds(10));
+        Duration duration = options.getDuration("duration", Duration.ofSeconds(60));
+
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "load-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int worker = 0; worker < concurrency; worker++) {
+            int team = worker % driver.teams.teams();
+            int helpDesk = driver.teams.helpDesk() == 0 ? -1 : worker % driver.teams.helpDesk();
+            workers.execute(() -> driver.work(team, helpDesk));
+        }
+
+        System.out.printf("Warming up for %s with %d workers against %s%n", warmup, concurrency, driver.baseUrl);
+        Thread.sleep(warmup.toMillis());
+        driver.endpoints.values().forEach(Endpoint::reset);
+        long start = System.nanoTime();
+        System.out.printf("Measuring for %s%n", duration);
+        Thread.sleep(duration.toMillis());
+        Map<String, Result> results = new LinkedHashMap<>();
+        driver.endpoints.forEach((name, endpoint) -> results.put(name,
+                new Result(endpoint.recorder.getIntervalHistogram(), endpoint.errors.sum())));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        driver.running = false;
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+
+        report(results, seconds, Path.of(options.getString("output", "target/loadtest-results.csv")));
+    }
+
+    private void work(int team, int helpDesk) {
+        String leader = teams.leaderEmail(team);
+        String helpDeskUser = helpDesk >= 0 ? teams.helpDeskEmail(helpDesk) : null;
+        String employeeToken = null;
+        String leaderToken = null;
+        String helpDeskToken = null;
+
+        for (long iteration = 0; running; iteration++) {
+            try {
+                if (iteration % reloginEvery == 0 || employeeToken == null || leaderToken == null) {
+                    int employee = ThreadLocalRandom.current().nextInt(teams.employeesPerLeader());
+                    employeeToken = login(teams.employeeEmail(team, employee));
+                    leaderToken = login(leader);
+                    helpDeskToken = helpDeskUser != null ? login(helpDeskUser) : null;
+                    if (employeeToken == null || leaderToken == null) {
+                        pause(Duration.ofSeconds(1));
+                        continue;
+                    }
+                }
+
+                JsonNode created = call(CREATE, post("/api/mail-requests", employeeToken,
+                        Map.of("subject", "Load test " + iteration, "body", "Please carry out load test request " + iteration)));
+                if (created == null) {
+                    employeeToken = null;
+                    continue;
+                }
+                String requestId = created.get("id").asText();
+                pause(thinkTime);
+
+                call(PENDING, HttpRequest.newBuilder(URI.create(baseUrl + "/api/mail-requests/pending?limit=20"))
+                        .header("Authorization", "Bearer " + leaderToken)
+                        .GET()
+                        .build());
+                pause(thinkTime);
+
+                boolean approved = ThreadLocalRandom.current().nextDouble() < approveShare;
+                if (call(REVIEW, post("/api/mail-requests/review", leaderToken,
+                        Map.of("requestId", requestId, "approved", approved))) == null) {
+                    leaderToken = null;
+                    continue;
+                }
+                pause(thinkTime);
+
+                if (approved && helpDeskToken != null) {
+                    call(HELP_DESK_REVIEW, post("/api/mail-requests/help-desk/review", helpDeskToken,
+                            Map.of("requestId", requestId, "approved", true)));
+                    pause(thinkTime);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private String login(String email) throws InterruptedException {
+        JsonNode response = call(LOGIN, post("/api/auth/login", null,
+                Map.of("email", email, "password", teams.password())));
+        return response != null ? response.get("token").asText() : null;
+    }
+
+    private HttpRequest post(String path, String token, Map<String, Object> body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json");
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        try {
+            return request.POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body))).build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The parsed body of a 2xx response, or null after counting the failure
+    private JsonNode call(String name, HttpRequest request) throws InterruptedException {
+        Endpoint endpoint = endpoints.get(name);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            endpoint.recorder.recordValue((System.nanoTime() - start) / 1000);
+            if (response.statusCode() / 100 != 2) {
+                endpoint.errors.increment();
+                return null;
+            }
+            return response.body().length == 0 ? objectMapper.nullNode() : objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            endpoint.errors.increment();
+            return null;
+        }
+    }
+
+    private static void report(Map<String, Result> results, double seconds, Path output) throws IOException {
+        String header = "endpoint,count,errors,throughput_per_s,p50_ms,p99_ms,p999_ms,max_ms";
+        StringBuilder csv = new StringBuilder(header).append('\n');
+        System.out.printf("%n%-42s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        results.forEach((name, result) -> {
+            Histogram histogram = result.histogram();
+            long errors = result.errors();
+            double throughput = histogram.getTotalCount() / seconds;
+            double p50 = millis(histogram.getValueAtPercentile(50));
+            double p99 = millis(histogram.getValueAtPercentile(99));
+            double p999 = millis(histogram.getValueAtPercentile(99.9));
+            double max = millis(histogram.getMaxValue());
+            System.out.printf("%-42s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    name, histogram.getTotalCount(), errors, throughput, p50, p99, p999, max);
+            csv.append(String.format("%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f%n",
+                    name, histogram.getTotalCount(), errors, throughput, p50, p99, p999, max));
+        });
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output))) {
+            writer.print(csv);
+        }
+        System.out.printf("%nSummary written to %s%n", output);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static void pause(Duration duration) throws InterruptedException {
+        if (!duration.isZero()) {
+            Thread.sleep(duration.toMillis());
+        }
+    }
+
+    private record Result(Histogram histogram, long errors) {
+    }
+
+    private static final class Endpoint {
+
+        final Recorder recorder = new Recorder(3);
+        final LongAdder errors = new LongAdder();
+
+        // Drops what was recorded during the warmup
+        void reset() {
+            recorder.reset();
+            errors.reset();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.test.user.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code --name=value} command line options, falling back to {@code -Dloadtest.name=value}
+ * system properties and then to the given default.
+ */
+final class LoadTestOptions {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    LoadTestOptions(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+    }
+
+    String getString(String name, String defaultValue) {
+        String value = values.get(name);
+        return value != null ? value : System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    int getInt(String name, int defaultValue) {
+        return Integer.parseInt(getString(name, String.valueOf(defaultValue)));
+    }
+
+    double getDouble(String name, double defaultValue) {
+        return Double.parseDouble(getString(name, String.valueOf(defaultValue)));
+    }
+
+    Duration getDuration(String name, Duration defaultValue) {
+        return Duration.parse(getString(name, defaultValue.toString()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.test.user.loadtest;
+
+/**
+ * Shape of the generated organisation and the e-mail address of every user in it, so the driver
+ * can log in as the users the generator created when both run with the same options.
+ * <p>
+ * Every manager has {@code leadersPerManager} team leaders, and every team leader
+ * {@code employeesPerLeader} employees. Help desk users report to nobody. All users share one
+ * password.
+ */
+record LoadTestTeams(int managers, int leadersPerManager, int employeesPerLeader, int helpDesk, String password) {
+
+    static final String DOMAIN = "@load.test";
+
+    static LoadTestTeams from(LoadTestOptions options) {
+        return new LoadTestTeams(
+                options.getInt("managers", 10),
+                options.getInt("leaders-per-manager", 5),
+                options.getInt("employees-per-leader", 20),
+                options.getInt("help-desk", 10),
+                options.getString("password", "LoadTest1!"));
+    }
+
+    int teams() {
+        return managers * leadersPerManager;
+    }
+
+    int employees() {
+        return teams() * employeesPerLeader;
+    }
+
+    String managerEmail(int manager) {
+        return "manager-" + manager + DOMAIN;
+    }
+
+    // Teams are numbered across managers: team t belongs to manager t / leadersPerManager
+    String leaderEmail(int team) {
+        return "leader-" + team + DOMAIN;
+    }
+
+    String employeeEmail(int team, int employee) {
+        return "employee-" + team + "-" + employee + DOMAIN;
+    }
+
+    String helpDeskEmail(int helpDesk) {
+        return "helpdesk-" + helpDesk + DOMAIN;
+    }
+}
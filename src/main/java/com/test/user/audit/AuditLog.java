@@ -0,0 +1,539 @@
+package com.test.user.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only audit log in segment files on local disk.
+ * <p>
+ * Request threads only put records into an {@link AuditRing}; one writer thread takes them off in
+ * batches, numbers them, and appends each batch to the current segment with a single write and a
+ * single force, so the audit trail costs the request a CAS instead of a synchronous insert. Every
+ * record is framed as {@code length, CRC32C, payload}. A segment is named after its first
+ * sequence number and closed at the first batch boundary past {@code audit.segment-size}.
+ * <p>
+ * Loss is bounded: a crash loses at most the records still in the ring ({@code audit.ring-capacity})
+ * and the batch being written. Everything from earlier batches was forced to disk, and on startup
+ * a torn tail is found by its length or checksum and cut off. Records are only dropped while
+ * running if the ring stays full for {@code audit.offer-timeout}; they are counted as
+ * {@code audit.records.dropped}.
+ * <p>
+ * The writer also keeps, per subject, where each of its records sits (segment and offset), and
+ * startup rebuilds that index while it scans the segments. A subject's history reads just its own
+ * records instead of the whole log, at the cost of 16 bytes of heap per record.
+ */
+@Component
+public class AuditLog {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    // "AUD1", at the start of every segment
+    private static final int MAGIC = 0x41554431;
+    private static final int HEADER_SIZE = 4;
+    private static final int FRAME_SIZE = 8;
+    private static final int MAX_PAYLOAD = 1 << 20;
+
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final long IDLE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long RETRY_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final AuditRecord.Action[] ACTIONS = AuditRecord.Action.values();
+
+    private final AuditProperties properties;
+    private final AuditRing ring;
+    private final Counter dropped;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final Thread writer;
+
+    // First sequence number of every segment
+    private final NavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    // Where the records of every subject are, oldest first
+    private final Map<UUID, Locations> bySubject = new ConcurrentHashMap<>();
+
+    // Writer thread only
+    private FileChannel segment;
+    private long segmentFirstSequence;
+    private long segmentPosition;
+    private long nextSequence;
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+    private final DataOutputStream payloadOut = new DataOutputStream(payload);
+    private final CRC32C crc = new CRC32C();
+
+    // Ring positions below this are on disk
+    private volatile long durable;
+    private volatile boolean writerIdle;
+    private volatile boolean running = true;
+
+    public AuditLog(AuditProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.ring = new AuditRing(properties.getRingCapacity());
+        try {
+            Files.createDirectories(properties.getDirectory());
+            this.lockChannel = FileChannel.open(properties.getDirectory().resolve("audit.lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.lock = tryLock(lockChannel);
+            if (lock == null) {
+                lockChannel.close();
+                throw new IllegalStateException("Audit log directory " + properties.getDirectory()
+                        + " is in use by another instance");
+            }
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the audit log in " + properties.getDirectory(), e);
+        }
+
+        this.dropped = Counter.builder("audit.records.dropped")
+                .description("Audit records lost because the writer fell a full ring behind")
+                .register(meterRegistry);
+        Gauge.builder("audit.ring.size", ring, AuditRing::size)
+                .description("Audit records waiting for the writer")
+                .register(meterRegistry);
+
+        this.writer = new Thread(this::write, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the record for writing, waiting up to {@code audit.offer-timeout} for room in the
+     * ring. Returns false if it was dropped.
+     */
+    public boolean append(AuditRecord record) {
+        if (offer(record)) {
+            return true;
+        }
+        long deadline = System.nanoTime() + properties.getOfferTimeout().toNanos();
+        while (System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(50_000);
+            if (offer(record)) {
+                return true;
+            }
+        }
+        dropped.increment();
+        log.warn("Audit ring full, dropped {} of {}", record.action(), record.subjectId());
+        return false;
+    }
+
+    /**
+     * Waits until every record appended before the call is on disk.
+     */
+    public void flush() {
+        long target = ring.claimed();
+        while (durable < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Everything recorded about one mail request or user, oldest first.
+     */
+    public List<AuditRecord> history(UUID subjectId) {
+        Locations locations = bySubject.get(subjectId);
+        if (locations == null) {
+            return List.of();
+        }
+        long[] entries = locations.snapshot();
+        List<AuditRecord> history = new ArrayList<>(entries.length / 2);
+        // Entries run in log order, so each segment is opened once
+        int i = 0;
+        while (i < entries.length) {
+            long firstSequence = entries[i];
+            Path path = segments.get(firstSequence);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                for (; i < entries.length && entries[i] == firstSequence; i += 2) {
+                    AuditRecord record = readAt(channel, entries[i + 1]);
+                    if (record != null) {
+                        history.add(record);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read audit segment " + path, e);
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Hands every written record from {@code fromSequence} on to the consumer, in order.
+     */
+    public void replay(long fromSequence, Consumer<AuditRecord> consumer) {
+        Long first = segments.floorKey(fromSequence);
+        Map<Long, Path> from = first != null ? segments.tailMap(first, true) : segments;
+        for (Path path : from.values()) {
+            try {
+                read(path, (record, offset) -> {
+                    if (record.sequence() >= fromSequence) {
+                        consumer.accept(record);
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read audit segment " + path, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        lock.release();
+        lockChannel.close();
+    }
+
+    private boolean offer(AuditRecord record) {
+        if (!ring.offer(record)) {
+            return false;
+        }
+        if (writerIdle) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    private void write() {
+        List<AuditRecord> batch = new ArrayList<>(properties.getBatchSize());
+        while (true) {
+            boolean stopping = !running;
+            if (ring.drain(batch, properties.getBatchSize()) == 0) {
+                if (stopping) {
+                    break;
+                }
+                writerIdle = true;
+                // Checked after announcing the idle state, so an append in between is not slept through
+                if (ring.size() == 0 && running) {
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                }
+                writerIdle = false;
+                continue;
+            }
+            while (true) {
+                try {
+                    writeBatch(batch);
+                    break;
+                } catch (IOException e) {
+                    // Keep the batch; a retry overwrites whatever part of it made it to disk
+                    log.error("Could not write {} audit records, retrying", batch.size(), e);
+                    LockSupport.parkNanos(RETRY_WAIT_NANOS);
+                }
+            }
+            durable = ring.consumed();
+            batch.clear();
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.warn("Could not close audit segment", e);
+        }
+    }
+
+    private void writeBatch(List<AuditRecord> batch) throws IOException {
+        if (segmentPosition >= properties.getSegmentSize().toBytes()) {
+            startSegment(nextSequence);
+        }
+        buffer.clear();
+        long sequence = nextSequence;
+        long[] offsets = new long[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            byte[] encoded = encode(batch.get(i), sequence++);
+            crc.reset();
+            crc.update(encoded);
+            reserve(FRAME_SIZE + encoded.length);
+            offsets[i] = segmentPosition + buffer.position();
+            buffer.putInt(encoded.length).putInt((int) crc.getValue()).put(encoded);
+        }
+        buffer.flip();
+        long position = segmentPosition;
+        while (buffer.hasRemaining()) {
+            position += segment.write(buffer, position);
+        }
+        segment.force(false);
+        segmentPosition = position;
+        nextSequence = sequence;
+        // Only once forced, so a history never points at a record a retry may still rewrite
+        for (int i = 0; i < batch.size(); i++) {
+            index(batch.get(i).subjectId(), segmentFirstSequence, offsets[i]);
+        }
+    }
+
+    private void index(UUID subjectId, long firstSequence, long offset) {
+        if (subjectId != null) {
+            bySubject.computeIfAbsent(subjectId, id -> new Locations()).add(firstSequence, offset);
+        }
+    }
+
+    private void reserve(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            buffer = larger.put(buffer);
+        }
+    }
+
+    private void startSegment(long firstSequence) throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        Path path = properties.getDirectory().resolve(
+                String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC));
+        segment.force(true);
+        segmentPosition = HEADER_SIZE;
+        segmentFirstSequence = firstSequence;
+        segments.put(firstSequence, path);
+    }
+
+    // Finds the segments, indexes their records and where the last one's valid records end
+    private void recover() throws IOException {
+        try (Stream<Path> files = Files.list(properties.getDirectory())) {
+            files.forEach(path -> {
+                Long firstSequence = firstSequenceOf(path);
+                if (firstSequence != null) {
+                    segments.put(firstSequence, path);
+                }
+            });
+        }
+        if (segments.isEmpty()) {
+            nextSequence = 1;
+            startSegment(nextSequence);
+            return;
+        }
+        for (Map.Entry<Long, Path> earlier : segments.headMap(segments.lastKey()).entrySet()) {
+            read(earlier.getValue(), (record, offset) -> index(record.subjectId(), earlier.getKey(), offset));
+        }
+
+        Map.Entry<Long, Path> last = segments.lastEntry();
+        long[] lastSequence = {last.getKey() - 1};
+        long validEnd = read(last.getValue(), (record, offset) -> {
+            lastSequence[0] = record.sequence();
+            index(record.subjectId(), last.getKey(), offset);
+        });
+        nextSequence = lastSequence[0] + 1;
+        if (validEnd < HEADER_SIZE) {
+            // Died while creating the segment
+            startSegment(last.getKey());
+            return;
+        }
+        segment = FileChannel.open(last.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmentFirstSequence = last.getKey();
+        if (segment.size() > validEnd) {
+            log.warn("Cut {} bytes of incomplete audit records off {}", segment.size() - validEnd, last.getValue());
+            segment.truncate(validEnd);
+            segment.force(true);
+        }
+        segmentPosition = validEnd;
+        log.info("Audit log in {} continues at record {}", properties.getDirectory(), nextSequence);
+    }
+
+    /**
+     * Reads the records of one segment, with their offsets, up to the first incomplete or corrupt
+     * one, returning the offset where it stopped, or -1 if the segment has no valid header.
+     */
+    private static long read(Path path, ObjLongConsumer<AuditRecord> consumer) throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 64 * 1024))) {
+            if (Files.size(path) < HEADER_SIZE || in.readInt() != MAGIC) {
+                return -1;
+            }
+            long offset = HEADER_SIZE;
+            CRC32C crc = new CRC32C();
+            while (true) {
+                byte[] payload;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > MAX_PAYLOAD) {
+                        return offset;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    // The end of the segment, or a record cut short by a crash
+                    return offset;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    return offset;
+                }
+                consumer.accept(decode(payload), offset);
+                offset += FRAME_SIZE + payload.length;
+            }
+        }
+    }
+
+    // The record framed at the offset, or null if it does not check out
+    private static AuditRecord readAt(FileChannel channel, long offset) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE);
+        readFully(channel, frame, offset);
+        int length = frame.getInt(0);
+        if (length <= 0 || length > MAX_PAYLOAD) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, offset + FRAME_SIZE);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.array());
+        return (int) crc.getValue() == frame.getInt(4) ? decode(payload.array()) : null;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Audit record cut short at " + position);
+            }
+        }
+    }
+
+    private byte[] encode(AuditRecord record, long sequence) throws IOException {
+        payload.reset();
+        DataOutputStream out = payloadOut;
+        out.writeLong(sequence);
+        out.writeLong(record.at().getEpochSecond());
+        out.writeInt(record.at().getNano());
+        out.writeByte(record.action().ordinal());
+        writeUuid(out, record.subjectId());
+        writeUuid(out, record.actorId());
+        writeString(out, record.actorRole());
+        writeString(out, record.previousState());
+        writeString(out, record.state());
+        writeString(out, record.detail());
+        out.flush();
+        return payload.toByteArray();
+    }
+
+    private static AuditRecord decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        return new AuditRecord(
+                in.readLong(),
+                Instant.ofEpochSecond(in.readLong(), in.readInt()),
+                ACTIONS[in.readUnsignedByte()],
+                readUuid(in),
+                readUuid(in),
+                readString(in),
+                readString(in),
+                readString(in),
+                readString(in));
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Long firstSequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The (segment, offset) pairs of one subject's records, appended by the writer and copied by
+     * readers.
+     */
+    private static final class Locations {
+
+        private long[] entries = new long[4];
+        private int size;
+
+        synchronized void add(long firstSequence, long offset) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = firstSequence;
+            entries[size++] = offset;
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(entries, size);
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+}
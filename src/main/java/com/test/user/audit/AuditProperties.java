@@ -0,0 +1,28 @@
+package com.test.user.audit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Where the audit log lives and how records reach it.
+ */
+@Data
+@ConfigurationProperties(prefix = "audit")
+public class AuditProperties {
+
+    // Holds the segment files; one instance per directory
+    private Path directory = Path.of("audit");
+    // A segment is closed and a new one started once it would grow past this
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    // Records waiting for the writer, rounded up to a power of two. Also the most a crash can lose.
+    private int ringCapacity = 8192;
+    // Records written and forced to disk together
+    private int batchSize = 512;
+    // How long a full ring holds up the request thread before the record is dropped
+    private Duration offerTimeout = Duration.ofMillis(100);
+}
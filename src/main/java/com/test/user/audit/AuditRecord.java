@@ -0,0 +1,32 @@
+package com.test.user.audit;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One entry of the audit log: who did what to which request or user, and when.
+ * <p>
+ * {@code sequence} is assigned by the log when the record is written and only grows, across
+ * segments and restarts. The states are the mail request statuses before and after a review.
+ */
+public record AuditRecord(
+        long sequence,
+        Instant at,
+        Action action,
+        UUID subjectId,
+        UUID actorId,
+        String actorRole,
+        String previousState,
+        String state,
+        String detail) {
+
+    /**
+     * What happened. Stored by ordinal, so new actions only go at the end.
+     */
+    public enum Action {
+        MAIL_REQUEST_CREATED,
+        MAIL_REQUEST_REVIEWED,
+        USER_CREATED,
+        USER_DELETED
+    }
+}
@@ -0,0 +1,84 @@
+package com.test.user.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue from any number of request threads to the single audit writer.
+ * <p>
+ * Producers claim a position with a CAS on {@code claimed} and then publish the record into its
+ * slot; the writer takes slots in position order, stopping at the first one not yet published,
+ * and clears each before moving {@code consumed} past it. A position is only claimed once the
+ * record that used its slot one lap earlier was consumed, so a slot is never overwritten.
+ */
+final class AuditRing {
+
+    private final AtomicReferenceArray<AuditRecord> slots;
+    private final int mask;
+
+    private final AtomicLong claimed = new AtomicLong();
+    // Only written by the writer thread
+    private volatile long consumed;
+
+    AuditRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds the record unless the ring is full.
+     */
+    boolean offer(AuditRecord record) {
+        long position;
+        do {
+            position = claimed.get();
+            if (position - consumed >= slots.length()) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(position, position + 1));
+        slots.set((int) (position & mask), record);
+        return true;
+    }
+
+    /**
+     * Moves up to {@code max} records, in claim order, into {@code batch}. Writer thread only.
+     */
+    int drain(List<AuditRecord> batch, int max) {
+        long position = consumed;
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) (position & mask);
+            AuditRecord record = slots.get(slot);
+            if (record == null) {
+                break;
+            }
+            slots.set(slot, null);
+            batch.add(record);
+            position++;
+            drained++;
+        }
+        consumed = position;
+        return drained;
+    }
+
+    /**
+     * Positions claimed so far; everything below it has been offered.
+     */
+    long claimed() {
+        return claimed.get();
+    }
+
+    long consumed() {
+        return consumed;
+    }
+
+    int size() {
+        return (int) (claimed.get() - consumed);
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+}
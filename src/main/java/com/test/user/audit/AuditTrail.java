@@ -0,0 +1,72 @@
+package com.test.user.audit;
+
+import com.test.user.event.MailRequestCreatedEvent;
+import com.test.user.event.MailRequestReviewedEvent;
+import com.test.user.event.UserCreatedEvent;
+import com.test.user.event.UserDeletedEvent;
+import com.test.user.security.JwtPrincipal;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+
+/**
+ * Turns committed creates, reviews and user changes into {@link AuditLog} records.
+ * <p>
+ * Listeners run on the request thread after commit, so a rolled back change is never audited
+ * and the caller, where the event does not name one, is the authenticated principal.
+ */
+@Component
+public class AuditTrail {
+
+    private final AuditLog auditLog;
+
+    public AuditTrail(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    @TransactionalEventListener
+    public void onCreated(MailRequestCreatedEvent event) {
+        JwtPrincipal caller = caller();
+        auditLog.append(new AuditRecord(0, Instant.now(), AuditRecord.Action.MAIL_REQUEST_CREATED,
+                event.requestId(), event.userId(), caller != null ? caller.getRole().name() : null,
+                null, nameOf(event.status()), null));
+    }
+
+    @TransactionalEventListener
+    public void onReviewed(MailRequestReviewedEvent event) {
+        auditLog.append(new AuditRecord(0, Instant.now(), AuditRecord.Action.MAIL_REQUEST_REVIEWED,
+                event.requestId(), event.reviewerId(), nameOf(event.reviewerRole()),
+                nameOf(event.previousStatus()), nameOf(event.status()), event.comments()));
+    }
+
+    @TransactionalEventListener
+    public void onUserCreated(UserCreatedEvent event) {
+        JwtPrincipal caller = caller();
+        auditLog.append(new AuditRecord(0, Instant.now(), AuditRecord.Action.USER_CREATED,
+                event.userId(), caller != null ? caller.getUserId() : null,
+                caller != null ? caller.getRole().name() : null,
+                null, nameOf(event.role()), null));
+    }
+
+    @TransactionalEventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        JwtPrincipal caller = caller();
+        auditLog.append(new AuditRecord(0, Instant.now(), AuditRecord.Action.USER_DELETED,
+                event.userId(), caller != null ? caller.getUserId() : null,
+                caller != null ? caller.getRole().name() : null,
+                null, null, null));
+    }
+
+    private static JwtPrincipal caller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal
+                ? principal : null;
+    }
+
+    private static String nameOf(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+}
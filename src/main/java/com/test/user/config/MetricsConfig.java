@@ -0,0 +1,31 @@
+package com.test.user.config;
+
+import com.test.user.metrics.QueryBudgetInterceptor;
+import com.test.user.metrics.StatementCounter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    private final QueryBudgetInterceptor queryBudgetInterceptor;
+
+    public MetricsConfig(QueryBudgetInterceptor queryBudgetInterceptor) {
+        this.queryBudgetInterceptor = queryBudgetInterceptor;
+    }
+
+    // Lets Hibernate report every statement it prepares to the per-request count
+    @Bean
+    public HibernatePropertiesCustomizer statementCounting(StatementCounter statementCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, statementCounter);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(queryBudgetInterceptor);
+    }
+}
@@ -0,0 +1,14 @@
+package com.test.user.config;
+
+import com.test.user.audit.AuditProperties;
+import com.test.user.escalation.EscalationProperties;
+import com.test.user.mail.MailDispatchProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties({AuditProperties.class, EscalationProperties.class, MailDispatchProperties.class})
+public class SchedulingConfig {
+}
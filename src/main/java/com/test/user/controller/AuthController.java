@@ -2,21 +2,22 @@ package com.test.user.controller;
 
 import com.test.user.dto.AuthRequest;
 import com.test.user.dto.AuthResponse;
+import com.test.user.dto.RefreshTokenRequest;
 import com.test.user.dto.RegisterRequest;
 import com.test.user.entity.User;
 import com.test.user.exception.EmailAlreadyExistsException;
-import com.test.user.security.JwtTokenUtil;
+import com.test.user.service.AuthTokenService;
+import com.test.user.service.LoginService;
 import com.test.user.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -24,37 +25,25 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/auth")
 public class AuthController {
 
-    private final AuthenticationManager authenticationManager;
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final LoginService loginService;
     private final UserService userService;
-    private final JwtTokenUtil jwtTokenUtil;
+    private final AuthTokenService authTokenService;
 
     @Autowired
-    public AuthController(AuthenticationManager authenticationManager, 
+    public AuthController(LoginService loginService, 
                           UserService userService, 
-                          JwtTokenUtil jwtTokenUtil) {
-        this.authenticationManager = authenticationManager;
+                          AuthTokenService authTokenService) {
+        this.loginService = loginService;
         this.userService = userService;
-        this.jwtTokenUtil = jwtTokenUtil;
+        this.authTokenService = authTokenService;
     }
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@Valid @RequestBody AuthRequest request) {
         try {
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-            );
-            
-            User user = userService.findByEmail(request.getEmail());
-            String token = jwtTokenUtil.generateToken(user);
-            
-            AuthResponse response = AuthResponse.builder()
-                .token(token)
-                .userId(user.getId())
-                .name(user.getName())
-                .email(user.getEmail())
-                .role(user.getRole())
-                .build();
-                
+            AuthResponse response = loginService.login(request);
             return ResponseEntity.ok(response);
         } catch (BadCredentialsException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -70,15 +59,7 @@ public class AuthController {
             request.setRole(User.Role.MANAGER);
             
             User user = userService.registerUser(request);
-            String token = jwtTokenUtil.generateToken(user);
-            
-            AuthResponse response = AuthResponse.builder()
-                .token(token)
-                .userId(user.getId())
-                .name(user.getName())
-                .email(user.getEmail())
-                .role(user.getRole())
-                .build();
+            AuthResponse response = authTokenService.issueTokens(user);
                 
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
         } catch (EmailAlreadyExistsException e) {
@@ -86,4 +67,26 @@ public class AuthController {
                 .body("Email already exists");
         }
     }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        try {
+            return ResponseEntity.ok(authTokenService.refresh(request.getRefreshToken()));
+        } catch (BadCredentialsException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body("Invalid refresh token");
+        }
+    }
+
+    // Revokes the presented access token and the refresh token's whole rotation family
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorizationHeader,
+            @RequestBody(required = false) RefreshTokenRequest request) {
+        String accessToken = authorizationHeader != null && authorizationHeader.startsWith(BEARER_PREFIX)
+                ? authorizationHeader.substring(BEARER_PREFIX.length())
+                : null;
+        authTokenService.logout(accessToken, request != null ? request.getRefreshToken() : null);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -0,0 +1,69 @@
+package com.test.user.controller;
+
+import com.test.user.security.SigningKeyRing;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigInteger;
+import java.security.interfaces.ECPublicKey;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Public keys for verifying our access tokens (RFC 7517), so other services can check tokens
+ * locally. Keys appear here before they sign anything, which lets consumers cache the document.
+ */
+@RestController
+public class JwksController {
+
+    // P-256 coordinates are 32 bytes each
+    private static final int COORDINATE_BYTES = 32;
+
+    private final SigningKeyRing signingKeyRing;
+    private final CacheControl cacheControl;
+
+    @Autowired
+    public JwksController(SigningKeyRing signingKeyRing,
+                          @Value("${jwt.jwks.max-age:5m}") Duration maxAge) {
+        this.signingKeyRing = signingKeyRing;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        List<Map<String, String>> keys = signingKeyRing.publishedKeys().entrySet().stream()
+                .map(entry -> toJwk(entry.getKey(), entry.getValue()))
+                .toList();
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .body(Map.of("keys", keys));
+    }
+
+    private static Map<String, String> toJwk(String kid, ECPublicKey key) {
+        Map<String, String> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("crv", "P-256");
+        jwk.put("kid", kid);
+        jwk.put("use", "sig");
+        jwk.put("alg", SigningKeyRing.ALGORITHM);
+        jwk.put("x", coordinate(key.getW().getAffineX()));
+        jwk.put("y", coordinate(key.getW().getAffineY()));
+        return jwk;
+    }
+
+    // Unsigned, left-padded to the curve size, base64url without padding
+    private static String coordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] fixed = new byte[COORDINATE_BYTES];
+        int length = Math.min(bytes.length, COORDINATE_BYTES);
+        System.arraycopy(bytes, bytes.length - length, fixed, COORDINATE_BYTES - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+    }
+}
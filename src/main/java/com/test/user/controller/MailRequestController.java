@@ -1,15 +1,35 @@
 package com.test.user.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.test.user.audit.AuditLog;
+import com.test.user.audit.AuditRecord;
+import com.test.user.dto.CursorPage;
+import com.test.user.dto.ExportFormat;
+import com.test.user.dto.MailOutboxStats;
 import com.test.user.dto.MailRequestApprovalDto;
+import com.test.user.dto.MailRequestBatchReviewDto;
 import com.test.user.dto.MailRequestDto;
-import com.test.user.security.JwtTokenUtil;
+import com.test.user.dto.MailRequestFilter;
+import com.test.user.dto.MailRequestReviewResult;
+import com.test.user.dto.TeamStatusStats;
+import com.test.user.entity.MailRequest;
+import com.test.user.idempotency.IdempotencyStore;
+import com.test.user.mail.MailDispatcher;
+import com.test.user.metrics.QueryBudget;
+import com.test.user.security.JwtPrincipal;
 import com.test.user.service.MailRequestService;
+import com.test.user.stream.PendingQueueStream;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -18,45 +38,69 @@ import java.util.UUID;
 @RequestMapping("/api/mail-requests")
 public class MailRequestController {
 
+    private static final TypeReference<MailRequestDto> MAIL_REQUEST = new TypeReference<>() {
+    };
+    private static final TypeReference<List<MailRequestReviewResult>> REVIEW_RESULTS = new TypeReference<>() {
+    };
+
     private final MailRequestService mailRequestService;
-    private final JwtTokenUtil jwtTokenUtil;
+    private final IdempotencyStore idempotencyStore;
+    private final PendingQueueStream pendingQueueStream;
+    private final MailDispatcher mailDispatcher;
+    private final AuditLog auditLog;
 
     @Autowired
-    public MailRequestController(MailRequestService mailRequestService, JwtTokenUtil jwtTokenUtil) {
+    public MailRequestController(MailRequestService mailRequestService, IdempotencyStore idempotencyStore,
+            PendingQueueStream pendingQueueStream, MailDispatcher mailDispatcher, AuditLog auditLog) {
         this.mailRequestService = mailRequestService;
-        this.jwtTokenUtil = jwtTokenUtil;
+        this.idempotencyStore = idempotencyStore;
+        this.pendingQueueStream = pendingQueueStream;
+        this.mailDispatcher = mailDispatcher;
+        this.auditLog = auditLog;
     }
 
     // Employee endpoints
 
     @PostMapping
+    @QueryBudget(6)
     @PreAuthorize("hasRole('EMPLOYEE')")
     public ResponseEntity<MailRequestDto> createMailRequest(
             @Valid @RequestBody MailRequestDto requestDto,
-            @RequestHeader("Authorization") String token) {
-
-        UUID userId = jwtTokenUtil.extractUserId(token.substring(7));
-        MailRequestDto createdRequest = mailRequestService.createMailRequest(requestDto, userId);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdRequest);
+            @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        UUID userId = principal.getUserId();
+        IdempotencyStore.Result<MailRequestDto> createdRequest = idempotencyStore.execute(
+                userId, idempotencyKey, "POST /api/mail-requests", requestDto, MAIL_REQUEST,
+                () -> mailRequestService.createMailRequest(requestDto, userId));
+        return respond(HttpStatus.CREATED, createdRequest);
     }
 
     @GetMapping("/my-requests")
+    @QueryBudget(1)
     @PreAuthorize("hasAnyRole('EMPLOYEE', 'TEAM_LEADER', 'MANAGER')")
-    public ResponseEntity<List<MailRequestDto>> getMyRequests(
-            @RequestHeader("Authorization") String token) {
-
-        UUID userId = jwtTokenUtil.extractUserId(token.substring(7));
-        List<MailRequestDto> requests = mailRequestService.getUserMailRequests(userId);
+    public ResponseEntity<CursorPage<MailRequestDto>> getMyRequests(
+            MailRequestFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        UUID userId = principal.getUserId();
+        CursorPage<MailRequestDto> requests = mailRequestService.getUserMailRequests(userId, filter, cursor, limit);
         return ResponseEntity.ok(requests);
     }
 
     @GetMapping("/my-requests/with-comments")
+    @QueryBudget(1)
     @PreAuthorize("hasAnyRole('EMPLOYEE', 'TEAM_LEADER', 'MANAGER')")
-    public ResponseEntity<List<MailRequestDto>> getMyRequestsWithComments(
-            @RequestHeader("Authorization") String token) {
-
-        UUID userId = jwtTokenUtil.extractUserId(token.substring(7));
-        List<MailRequestDto> requests = mailRequestService.getUserMailRequests(userId);
+    public ResponseEntity<CursorPage<MailRequestDto>> getMyRequestsWithComments(
+            MailRequestFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        UUID userId = principal.getUserId();
+        CursorPage<MailRequestDto> requests = mailRequestService.getUserMailRequests(userId, filter, cursor, limit);
         // No additional filtering needed as the service already returns only the user's
         // requests
         return ResponseEntity.ok(requests);
@@ -65,77 +109,200 @@ public class MailRequestController {
     // Manager endpoints
 
     @GetMapping("/pending")
+    @QueryBudget(2)
     @PreAuthorize("hasAnyRole('TEAM_LEADER', 'MANAGER')")
-    public ResponseEntity<List<MailRequestDto>> getPendingRequests(
-            @RequestHeader("Authorization") String token) {
-
-        UUID managerId = jwtTokenUtil.extractUserId(token.substring(7));
-        List<MailRequestDto> pendingRequests = mailRequestService.getPendingRequestsForManager(managerId);
+    public ResponseEntity<CursorPage<MailRequestDto>> getPendingRequests(
+            MailRequestFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        UUID managerId = principal.getUserId();
+        CursorPage<MailRequestDto> pendingRequests = mailRequestService.getPendingRequestsForManager(
+                managerId, filter, cursor, limit);
         return ResponseEntity.ok(pendingRequests);
     }
 
     @GetMapping("/pending/action-required")
+    @QueryBudget(1)
     @PreAuthorize("hasAnyRole('TEAM_LEADER', 'MANAGER')")
-    public ResponseEntity<List<MailRequestDto>> getPendingRequestsActionRequired(
-            @RequestHeader("Authorization") String token) {
-
-        UUID managerId = jwtTokenUtil.extractUserId(token.substring(7));
-        List<MailRequestDto> pendingRequests = mailRequestService.getPendingRequestsActionRequired(managerId);
+    public ResponseEntity<CursorPage<MailRequestDto>> getPendingRequestsActionRequired(
+            MailRequestFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        UUID managerId = principal.getUserId();
+        CursorPage<MailRequestDto> pendingRequests = mailRequestService.getPendingRequestsActionRequired(
+                managerId, filter, cursor, limit);
         return ResponseEntity.ok(pendingRequests);
     }
 
+    // Header counts of a team's dashboard, without listing the requests
+    @GetMapping("/stats")
+    @QueryBudget(1)
+    @PreAuthorize("hasAnyRole('TEAM_LEADER', 'MANAGER')")
+    public ResponseEntity<TeamStatusStats> getTeamStats(
+            @RequestParam(required = false) UUID leaderId,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        return ResponseEntity.ok(mailRequestService.getTeamStats(principal.getUserId(), leaderId));
+    }
+
+    // Changes to the caller's pending queues as server-sent events, instead of polling them
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @QueryBudget(0)
+    @PreAuthorize("hasAnyRole('TEAM_LEADER', 'MANAGER', 'HELP_DESK')")
+    public SseEmitter streamQueueEvents(
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        return pendingQueueStream.subscribe(principal.getUserId(), principal.getRole(), lastEventId);
+    }
+
     @PostMapping("/review")
+    @QueryBudget(5)
     @PreAuthorize("hasAnyRole('TEAM_LEADER', 'MANAGER','HELP_DESK')")
     public ResponseEntity<MailRequestDto> reviewMailRequest(
             @Valid @RequestBody MailRequestApprovalDto approvalDto,
-            @RequestHeader("Authorization") String token) {
+            @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        UUID managerId = principal.getUserId();
+        IdempotencyStore.Result<MailRequestDto> reviewedRequest = idempotencyStore.execute(
+                managerId, idempotencyKey, "POST /api/mail-requests/review", approvalDto, MAIL_REQUEST,
+                () -> mailRequestService.reviewMailRequest(approvalDto, managerId));
+        return respond(HttpStatus.OK, reviewedRequest);
+    }
 
-        UUID managerId = jwtTokenUtil.extractUserId(token.substring(7));
-        MailRequestDto reviewedRequest = mailRequestService.reviewMailRequest(approvalDto, managerId);
-        return ResponseEntity.ok(reviewedRequest);
+    @PostMapping("/review/batch")
+    @QueryBudget(3)
+    @PreAuthorize("hasAnyRole('TEAM_LEADER', 'MANAGER','HELP_DESK')")
+    public ResponseEntity<List<MailRequestReviewResult>> reviewMailRequests(
+            @Valid @RequestBody MailRequestBatchReviewDto batchDto,
+            @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        UUID managerId = principal.getUserId();
+        IdempotencyStore.Result<List<MailRequestReviewResult>> results = idempotencyStore.execute(
+                managerId, idempotencyKey, "POST /api/mail-requests/review/batch", batchDto, REVIEW_RESULTS,
+                () -> mailRequestService.reviewMailRequests(batchDto.getReviews(), managerId));
+        return respond(HttpStatus.OK, results);
     }
 
     @PostMapping("/help-desk/review")
+    @QueryBudget(5)
     @PreAuthorize("hasAnyRole('HELP_DESK')")
     public ResponseEntity<MailRequestDto> reviewMailRequestHelpDesk(
             @Valid @RequestBody MailRequestApprovalDto approvalDto,
-            @RequestHeader("Authorization") String token) {
-
-        UUID managerId = jwtTokenUtil.extractUserId(token.substring(7));
-        MailRequestDto reviewedRequest = mailRequestService.reviewMailRequestHelpDesk(approvalDto, managerId);
-        return ResponseEntity.ok(reviewedRequest);
+            @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        UUID managerId = principal.getUserId();
+        IdempotencyStore.Result<MailRequestDto> reviewedRequest = idempotencyStore.execute(
+                managerId, idempotencyKey, "POST /api/mail-requests/help-desk/review", approvalDto, MAIL_REQUEST,
+                () -> mailRequestService.reviewMailRequestHelpDesk(approvalDto, managerId));
+        return respond(HttpStatus.OK, reviewedRequest);
     }
 
     // Admin endpoints
 
     @GetMapping("/approved")
+    @QueryBudget(1)
     @PreAuthorize("hasRole('MANAGER')")
-    public ResponseEntity<List<MailRequestDto>> getAllApprovedRequests() {
-        List<MailRequestDto> approvedRequests = mailRequestService.getAllApprovedRequests();
+    public ResponseEntity<CursorPage<MailRequestDto>> getAllApprovedRequests(
+            MailRequestFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+
+        CursorPage<MailRequestDto> approvedRequests = mailRequestService.getAllApprovedRequests(filter, cursor, limit);
         return ResponseEntity.ok(approvedRequests);
     }
 
     @GetMapping("/leader/pending-approval")
+    @QueryBudget(1)
     @PreAuthorize("hasRole('MANAGER')")
-    public ResponseEntity<List<MailRequestDto>> getAllPendingRequestsAft() {
-        List<MailRequestDto> approvedRequests = mailRequestService.getAllPenreqAft();
+    public ResponseEntity<CursorPage<MailRequestDto>> getAllPendingRequestsAft(
+            MailRequestFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+
+        CursorPage<MailRequestDto> approvedRequests = mailRequestService.getAllPenreqAft(filter, cursor, limit);
         return ResponseEntity.ok(approvedRequests);
     }
 
     @GetMapping("/help-desk/pending-approval")
+    @QueryBudget(1)
     @PreAuthorize("hasRole('HELP_DESK')")
-    public ResponseEntity<List<MailRequestDto>> getAllPendingRequestsAftHelpDesk() {
-        List<MailRequestDto> approvedRequests = mailRequestService.getAllPenreqAftHelpDesk();
+    public ResponseEntity<CursorPage<MailRequestDto>> getAllPendingRequestsAftHelpDesk(
+            MailRequestFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+
+        CursorPage<MailRequestDto> approvedRequests = mailRequestService.getAllPenreqAftHelpDesk(filter, cursor, limit);
         return ResponseEntity.ok(approvedRequests);
     }
 
+    @GetMapping("/outbox/stats")
+    @QueryBudget(3)
+    @PreAuthorize("hasAnyRole('MANAGER', 'HELP_DESK')")
+    public ResponseEntity<MailOutboxStats> getOutboxStats() {
+        return ResponseEntity.ok(mailDispatcher.stats());
+    }
+
+    // Who created and reviewed the request, from the audit log rather than the overwritten row
+    @GetMapping("/{id}/history")
+    @QueryBudget(0)
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<List<AuditRecord>> getMailRequestHistory(@PathVariable UUID id) {
+        return ResponseEntity.ok(auditLog.history(id));
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<StreamingResponseBody> exportMailRequests(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) MailRequest.Status status) {
+
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.fromParameter(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Rows are written straight to the response while the export query streams them
+        StreamingResponseBody body = out -> mailRequestService.exportMailRequests(status, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"mail-requests." + exportFormat.getFileExtension() + "\"")
+                .body(body);
+    }
+
     // Common endpoints
 
+    // Ranked keyword search over subjects and bodies, limited to what the caller's lists show
+    @GetMapping("/search")
+    @QueryBudget(2)
+    @PreAuthorize("hasAnyRole('EMPLOYEE', 'TEAM_LEADER', 'MANAGER', 'HELP_DESK')")
+    public ResponseEntity<CursorPage<MailRequestDto>> searchMailRequests(
+            @RequestParam(name = "q", defaultValue = "") String query,
+            @RequestParam(required = false) MailRequest.Status status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        return ResponseEntity.ok(mailRequestService.searchMailRequests(principal.getUserId(), principal.getRole(),
+                query, status, cursor, limit));
+    }
+
     @GetMapping("/{id}")
+    @QueryBudget(1)
     @PreAuthorize("hasAnyRole('EMPLOYEE', 'TEAM_LEADER', 'MANAGER')")
     public ResponseEntity<MailRequestDto> getMailRequestById(
             @PathVariable UUID id,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
 
         // Additional authorization check could be added here
         MailRequestDto mailRequest = mailRequestService.getMailRequestById(id);
@@ -143,12 +310,13 @@ public class MailRequestController {
     }
 
     @GetMapping("/details/{id}")
+    @QueryBudget(1)
     @PreAuthorize("hasAnyRole('EMPLOYEE', 'TEAM_LEADER', 'MANAGER')")
     public ResponseEntity<MailRequestDto> getMailRequestWithComments(
             @PathVariable UUID id,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
 
-        UUID userId = jwtTokenUtil.extractUserId(token.substring(7));
+        UUID userId = principal.getUserId();
         MailRequestDto mailRequest = mailRequestService.getMailRequestById(id);
 
         // Check if the user is authorized to view this request
@@ -161,4 +329,12 @@ public class MailRequestController {
 
         return ResponseEntity.ok(mailRequest);
     }
+
+    private static <T> ResponseEntity<T> respond(HttpStatus status, IdempotencyStore.Result<T> result) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        if (result.replayed()) {
+            response.header(IdempotencyStore.REPLAYED_HEADER, "true");
+        }
+        return response.body(result.body());
+    }
 }
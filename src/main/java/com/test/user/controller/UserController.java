@@ -1,17 +1,25 @@
 package com.test.user.controller;
 
+import com.test.user.dto.CursorPage;
+import com.test.user.dto.ExportFormat;
 import com.test.user.dto.RegisterRequest;
 import com.test.user.dto.UserDto;
 import com.test.user.entity.User;
-import com.test.user.security.JwtTokenUtil;
+import com.test.user.metrics.QueryBudget;
+import com.test.user.security.JwtPrincipal;
 import com.test.user.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,66 +28,113 @@ import java.util.UUID;
 public class UserController {
 
     private final UserService userService;
-    private final JwtTokenUtil jwtTokenUtil;
 
     @Autowired
-    public UserController(UserService userService, JwtTokenUtil jwtTokenUtil) {
+    public UserController(UserService userService) {
         this.userService = userService;
-        this.jwtTokenUtil = jwtTokenUtil;
     }
 
     @PostMapping("/managers/leaders")
+    @QueryBudget(5)
     @PreAuthorize("hasRole('MANAGER')")
     public ResponseEntity<?> createTeamLeader(@Valid @RequestBody RegisterRequest request,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
         // Extract manager ID from JWT token
-        UUID managerId = jwtTokenUtil.extractUserId(token.substring(7));
+        UUID managerId = principal.getUserId();
 
         User teamLeader = userService.createTeamLeader(request, managerId);
         return ResponseEntity.status(HttpStatus.CREATED).body(convertToDto(teamLeader));
     }
 
     @PostMapping("/managers/help-desk")
+    @QueryBudget(5)
     @PreAuthorize("hasRole('MANAGER')")
     public ResponseEntity<?> createTeamHelpDesk(@Valid @RequestBody RegisterRequest request,
-            @RequestHeader("Authorization") String token) {
-        UUID managerId = jwtTokenUtil.extractUserId(token.substring(7));
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        UUID managerId = principal.getUserId();
 
         User teamLeader = userService.createTeamHelpDesk(request, managerId);
         return ResponseEntity.status(HttpStatus.CREATED).body(convertToDto(teamLeader));
     }
 
     @PostMapping("/leaders/employees")
+    @QueryBudget(5)
     @PreAuthorize("hasRole('TEAM_LEADER')")
     public ResponseEntity<?> createEmployee(@Valid @RequestBody RegisterRequest request,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
         // Extract leader ID from JWT token
-        UUID leaderId = jwtTokenUtil.extractUserId(token.substring(7));
+        UUID leaderId = principal.getUserId();
 
         User employee = userService.createEmployee(request, leaderId);
         return ResponseEntity.status(HttpStatus.CREATED).body(convertToDto(employee));
     }
 
+    // Bulk provisioning: managers import team leaders and help desks, team leaders import employees.
+    // The response streams one NDJSON result per row as each chunk is committed.
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyRole('MANAGER', 'TEAM_LEADER')")
+    public ResponseEntity<StreamingResponseBody> importUsers(@RequestBody List<RegisterRequest> rows,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        return streamImport(rows, principal.getUserId());
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @PreAuthorize("hasAnyRole('MANAGER', 'TEAM_LEADER')")
+    public ResponseEntity<StreamingResponseBody> importUsersCsv(InputStream csv,
+            @AuthenticationPrincipal JwtPrincipal principal) throws IOException {
+        return streamImport(userService.readImportCsv(csv), principal.getUserId());
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamImport(List<RegisterRequest> rows, UUID importerId) {
+        StreamingResponseBody body = out -> userService.importUsers(rows, importerId, out);
+        return ResponseEntity.ok()
+                .contentType(ExportFormat.NDJSON.getMediaType())
+                .body(body);
+    }
+
+    // The caller's role, from the directory or, for a user it has not seen yet, the table
     @GetMapping("/managers/leaders")
+    @QueryBudget(2)
     @PreAuthorize("hasRole('MANAGER')")
-    public ResponseEntity<List<UserDto>> getTeamLeaders(@RequestHeader("Authorization") String token) {
-        UUID managerId = jwtTokenUtil.extractUserId(token.substring(7));
-        return ResponseEntity.ok(userService.getTeamLeadersByManager(managerId));
+    public ResponseEntity<CursorPage<UserDto>> getTeamLeaders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        UUID managerId = principal.getUserId();
+        return ResponseEntity.ok(userService.getTeamLeadersByManager(managerId, cursor, limit));
     }
 
+    // The caller's role, from the directory or, for a user it has not seen yet, the table
     @GetMapping("/leaders/employees")
+    @QueryBudget(2)
     @PreAuthorize("hasRole('TEAM_LEADER')")
-    public ResponseEntity<List<UserDto>> getEmployees(@RequestHeader("Authorization") String token) {
-        UUID leaderId = jwtTokenUtil.extractUserId(token.substring(7));
-        return ResponseEntity.ok(userService.getEmployeesByLeader(leaderId));
+    public ResponseEntity<CursorPage<UserDto>> getEmployees(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        UUID leaderId = principal.getUserId();
+        return ResponseEntity.ok(userService.getEmployeesByLeader(leaderId, cursor, limit));
+    }
+
+    @GetMapping("/team")
+    @QueryBudget(1)
+    @PreAuthorize("hasAnyRole('MANAGER', 'TEAM_LEADER')")
+    public ResponseEntity<CursorPage<UserDto>> getTeam(
+            @RequestParam(required = false) User.Role role,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        return ResponseEntity.ok(userService.getSubordinates(principal.getUserId(), role, cursor, limit));
     }
 
     @GetMapping("/{id}")
+    @QueryBudget(1)
     public ResponseEntity<UserDto> getUserById(@PathVariable UUID id) {
         return ResponseEntity.ok(userService.getUserById(id));
     }
 
     @DeleteMapping("/{id}")
+    @QueryBudget(6)
     @PreAuthorize("hasRole('MANAGER')")
     public ResponseEntity<?> deleteUser(@PathVariable UUID id) {
         userService.deleteUser(id);
@@ -0,0 +1,317 @@
+package com.test.user.directory;
+
+import com.test.user.entity.User;
+import com.test.user.event.UserCreatedEvent;
+import com.test.user.event.UserDeletedEvent;
+import com.test.user.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Role and leader of every user, for the authorization checks that would otherwise load the
+ * user from the database just to read {@code getRole()} or walk {@code getLeader()}.
+ * <p>
+ * Users are rows of parallel primitive arrays (id halves, role ordinal, row of the leader),
+ * found through an open-addressing table of row numbers, so lookups allocate nothing and a
+ * million users take about 30 MB. Rows are only appended or marked removed, and a row is
+ * fully written before the table slot that points to it is released, so readers need no lock.
+ * <p>
+ * The directory is loaded at startup, kept current by the user events and resynced
+ * periodically for writes made by other instances. Every query answers null for users it does
+ * not know, and callers then fall back to the database.
+ */
+@Component
+public class UserDirectory {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDirectory.class);
+
+    private static final User.Role[] ROLES = User.Role.values();
+    private static final byte REMOVED = -1;
+
+    // Leader row markers: no leader at all, or a leader this directory does not know (yet)
+    private static final int NO_LEADER = -1;
+    private static final int UNKNOWN_LEADER = -2;
+
+    // Guards subtree walks; the org chart is a handful of levels deep
+    private static final int MAX_DEPTH = 64;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle ROLES_BY_ROW = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final UserRepository userRepository;
+
+    // Replaced on growth and on resync; writers hold the monitor
+    private volatile Table table = new Table(MIN_CAPACITY);
+
+    public UserDirectory(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * The user's role, or null when the user is unknown or was deleted.
+     */
+    public User.Role roleOf(UUID userId) {
+        Table t = table;
+        int row = t.find(userId.getMostSignificantBits(), userId.getLeastSignificantBits());
+        if (row < 0) {
+            return null;
+        }
+        byte role = (byte) ROLES_BY_ROW.getAcquire(t.roles, row);
+        return role == REMOVED ? null : ROLES[role];
+    }
+
+    /**
+     * The user's leader, or null when the user has none or is unknown. Allocates the returned id.
+     */
+    public UUID leaderOf(UUID userId) {
+        Table t = table;
+        int row = t.find(userId.getMostSignificantBits(), userId.getLeastSignificantBits());
+        if (row < 0) {
+            return null;
+        }
+        int leader = t.leaders[row];
+        return leader < 0 ? null : new UUID(t.mostSigBits[leader], t.leastSigBits[leader]);
+    }
+
+    /**
+     * Whether the descendant is somewhere below the ancestor. Null when either user, or a leader
+     * on the way up, is unknown to this directory.
+     */
+    public Boolean isBelow(UUID ancestorId, UUID descendantId) {
+        Table t = table;
+        int ancestor = t.find(ancestorId.getMostSignificantBits(), ancestorId.getLeastSignificantBits());
+        int descendant = t.find(descendantId.getMostSignificantBits(), descendantId.getLeastSignificantBits());
+        if (ancestor < 0 || descendant < 0 || removed(t, ancestor) || removed(t, descendant)) {
+            return null;
+        }
+        int current = t.leaders[descendant];
+        for (int depth = 0; current >= 0 && depth < MAX_DEPTH; depth++) {
+            if (current == ancestor) {
+                return Boolean.TRUE;
+            }
+            current = t.leaders[current];
+        }
+        return current == UNKNOWN_LEADER ? null : Boolean.FALSE;
+    }
+
+    /**
+     * The user's leaders from the direct one upwards, or null when the user, or a leader on the
+     * way up, is unknown to this directory.
+     */
+    public List<UUID> ancestorsOf(UUID userId) {
+        Table t = table;
+        int row = t.find(userId.getMostSignificantBits(), userId.getLeastSignificantBits());
+        if (row < 0 || removed(t, row)) {
+            return null;
+        }
+        List<UUID> ancestors = new ArrayList<>();
+        int current = t.leaders[row];
+        for (int depth = 0; current >= 0 && depth < MAX_DEPTH; depth++) {
+            ancestors.add(new UUID(t.mostSigBits[current], t.leastSigBits[current]));
+            current = t.leaders[current];
+        }
+        return current == UNKNOWN_LEADER ? null : ancestors;
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    // Bytes held by the arrays, for sizing
+    public long footprintBytes() {
+        Table t = table;
+        return (long) t.capacity() * (Long.BYTES * 2 + Byte.BYTES + Integer.BYTES)
+                + (long) t.slots.length * Integer.BYTES;
+    }
+
+    @TransactionalEventListener
+    public void onCreated(UserCreatedEvent event) {
+        put(event.userId(), event.role(), event.leaderId());
+    }
+
+    @TransactionalEventListener
+    public void onDeleted(UserDeletedEvent event) {
+        remove(event.userId());
+    }
+
+    public synchronized void put(UUID userId, User.Role role, UUID leaderId) {
+        Table t = table;
+        long msb = userId.getMostSignificantBits();
+        long lsb = userId.getLeastSignificantBits();
+        int row = t.find(msb, lsb);
+        if (row >= 0) {
+            // Ids are never reused, so this is a resync racing an event; roles don't change otherwise
+            ROLES_BY_ROW.setRelease(t.roles, row, (byte) role.ordinal());
+            return;
+        }
+        if (t.size == t.capacity()) {
+            t = t.grow();
+        }
+        t.append(msb, lsb, (byte) role.ordinal(), leaderRow(t, leaderId));
+        table = t;
+    }
+
+    public synchronized void remove(UUID userId) {
+        Table t = table;
+        int row = t.find(userId.getMostSignificantBits(), userId.getLeastSignificantBits());
+        if (row >= 0) {
+            ROLES_BY_ROW.setRelease(t.roles, row, REMOVED);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${directory.resync-interval:PT5M}",
+            initialDelayString = "${directory.resync-interval:PT5M}")
+    @Transactional(readOnly = true)
+    public synchronized void reload() {
+        try (Stream<UserRepository.DirectoryEntry> entries = userRepository.streamDirectoryEntries()) {
+            table = load(entries.iterator());
+        }
+        log.debug("User directory holds {} users in {} bytes", table.size, footprintBytes());
+    }
+
+    // Rows first, then leaders, since a leader may be read after its reports
+    private static Table load(Iterator<UserRepository.DirectoryEntry> entries) {
+        Table t = new Table(MIN_CAPACITY);
+        long[] leaderMsb = new long[MIN_CAPACITY];
+        long[] leaderLsb = new long[MIN_CAPACITY];
+        boolean[] hasLeader = new boolean[MIN_CAPACITY];
+        while (entries.hasNext()) {
+            UserRepository.DirectoryEntry entry = entries.next();
+            if (t.size == t.capacity()) {
+                t = t.grow();
+                leaderMsb = Arrays.copyOf(leaderMsb, t.capacity());
+                leaderLsb = Arrays.copyOf(leaderLsb, t.capacity());
+                hasLeader = Arrays.copyOf(hasLeader, t.capacity());
+            }
+            int row = t.size;
+            if (entry.getLeaderId() != null) {
+                leaderMsb[row] = entry.getLeaderId().getMostSignificantBits();
+                leaderLsb[row] = entry.getLeaderId().getLeastSignificantBits();
+                hasLeader[row] = true;
+            }
+            t.append(entry.getId().getMostSignificantBits(), entry.getId().getLeastSignificantBits(),
+                    (byte) entry.getRole().ordinal(), NO_LEADER);
+        }
+        for (int row = 0; row < t.size; row++) {
+            if (hasLeader[row]) {
+                int leader = t.find(leaderMsb[row], leaderLsb[row]);
+                t.leaders[row] = leader >= 0 ? leader : UNKNOWN_LEADER;
+            }
+        }
+        return t;
+    }
+
+    private static int leaderRow(Table t, UUID leaderId) {
+        if (leaderId == null) {
+            return NO_LEADER;
+        }
+        int leader = t.find(leaderId.getMostSignificantBits(), leaderId.getLeastSignificantBits());
+        return leader >= 0 ? leader : UNKNOWN_LEADER;
+    }
+
+    private static boolean removed(Table t, int row) {
+        return (byte) ROLES_BY_ROW.getAcquire(t.roles, row) == REMOVED;
+    }
+
+    /**
+     * Rows in append order plus a linear-probing table of {@code row + 1} (0 marks a free slot),
+     * kept at most half full.
+     */
+    private static final class Table {
+
+        final long[] mostSigBits;
+        final long[] leastSigBits;
+        final byte[] roles;
+        final int[] leaders;
+        final int[] slots;
+        final int mask;
+        int size;
+
+        Table(int capacity) {
+            this.mostSigBits = new long[capacity];
+            this.leastSigBits = new long[capacity];
+            this.roles = new byte[capacity];
+            this.leaders = new int[capacity];
+            this.slots = new int[capacity * 2];
+            this.mask = slots.length - 1;
+        }
+
+        int capacity() {
+            return roles.length;
+        }
+
+        int find(long msb, long lsb) {
+            for (int slot = hash(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+                int entry = (int) SLOTS.getAcquire(slots, slot);
+                if (entry == 0) {
+                    return -1;
+                }
+                int row = entry - 1;
+                if (mostSigBits[row] == msb && leastSigBits[row] == lsb) {
+                    return row;
+                }
+            }
+        }
+
+        void append(long msb, long lsb, byte role, int leader) {
+            int row = size;
+            mostSigBits[row] = msb;
+            leastSigBits[row] = lsb;
+            roles[row] = role;
+            leaders[row] = leader;
+            link(row);
+            size = row + 1;
+        }
+
+        // Same rows (so leader references stay valid) in arrays twice the size
+        Table grow() {
+            Table grown = new Table(capacity() * 2);
+            System.arraycopy(mostSigBits, 0, grown.mostSigBits, 0, size);
+            System.arraycopy(leastSigBits, 0, grown.leastSigBits, 0, size);
+            System.arraycopy(roles, 0, grown.roles, 0, size);
+            System.arraycopy(leaders, 0, grown.leaders, 0, size);
+            for (int row = 0; row < size; row++) {
+                grown.link(row);
+            }
+            grown.size = size;
+            return grown;
+        }
+
+        private void link(int row) {
+            int slot = hash(mostSigBits[row], leastSigBits[row]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            SLOTS.setRelease(slots, slot, row + 1);
+        }
+
+        // MurmurHash3 fmix64 over both halves; random UUIDs have fixed version and variant bits
+        private static int hash(long msb, long lsb) {
+            long h = msb ^ Long.rotateLeft(lsb, 32);
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return (int) h;
+        }
+    }
+}
@@ -14,6 +14,9 @@ import java.util.UUID;
 @AllArgsConstructor
 public class AuthResponse {
     private String token;
+    // Seconds until the access token expires
+    private long expiresIn;
+    private String refreshToken;
     private UUID userId;
     private String name;
     private String email;
@@ -0,0 +1,20 @@
+package com.test.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> items;
+
+    // Opaque cursor for the following page, absent on the last page
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String next;
+}
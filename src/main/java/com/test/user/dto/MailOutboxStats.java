@@ -0,0 +1,23 @@
+package com.test.user.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Mail dispatch throughput since startup of this instance, and the outbox backlog.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailOutboxStats {
+
+    private long sent;
+    private long failedAttempts;
+    private long deadLettered;
+
+    private long pending;
+    private long dead;
+    // Age of the oldest mail still waiting to be sent
+    private long lagMillis;
+}
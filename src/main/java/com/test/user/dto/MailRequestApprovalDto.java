@@ -22,4 +22,7 @@ public class MailRequestApprovalDto {
     private MailRequest.Status status;
 
     private String comments;
+
+    // Version of the request the reviewer decided on; a newer one is rejected with 409
+    private Long version;
 }
@@ -0,0 +1,20 @@
+package com.test.user.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailRequestBatchReviewDto {
+
+    @NotEmpty(message = "At least one review is required")
+    @Size(max = 1000, message = "At most 1000 reviews can be submitted at once")
+    private List<@Valid MailRequestApprovalDto> reviews;
+}
@@ -43,4 +43,6 @@ public class MailRequestDto {
 
     private LocalDateTime createdAt;
     private LocalDateTime reviewedAt;
+
+    private Long version;
 }
@@ -0,0 +1,23 @@
+package com.test.user.dto;
+
+import com.test.user.entity.MailRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters accepted by the mail request list endpoints.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailRequestFilter {
+
+    private MailRequest.Status status;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdAfter;
+}
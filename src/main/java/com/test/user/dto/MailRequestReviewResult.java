@@ -0,0 +1,34 @@
+package com.test.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one item of a batch review, in the order the items were submitted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MailRequestReviewResult {
+
+    private UUID requestId;
+
+    private boolean success;
+
+    private MailRequestDto request;
+
+    private String error;
+
+    public static MailRequestReviewResult succeeded(MailRequestDto request) {
+        return new MailRequestReviewResult(request.getId(), true, request, null);
+    }
+
+    public static MailRequestReviewResult failed(UUID requestId, String error) {
+        return new MailRequestReviewResult(requestId, false, null, error);
+    }
+}
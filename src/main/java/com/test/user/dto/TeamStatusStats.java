@@ -0,0 +1,24 @@
+package com.test.user.dto;
+
+import com.test.user.entity.MailRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Number of requests in every status, for the requests of one leader's team.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TeamStatusStats {
+
+    private UUID leaderId;
+
+    private Map<MailRequest.Status, Long> counts;
+
+    private long total;
+}
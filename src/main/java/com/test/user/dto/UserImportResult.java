@@ -0,0 +1,39 @@
+package com.test.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.test.user.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one row of a bulk user import. Rows are numbered from 1 in submission order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportResult {
+
+    private int row;
+
+    private String email;
+
+    private boolean success;
+
+    private UUID id;
+
+    private User.Role role;
+
+    private String error;
+
+    public static UserImportResult succeeded(int row, User user) {
+        return new UserImportResult(row, user.getEmail(), true, user.getId(), user.getRole(), null);
+    }
+
+    public static UserImportResult failed(int row, String email, String error) {
+        return new UserImportResult(row, email, false, null, null, error);
+    }
+}
@@ -0,0 +1,98 @@
+package com.test.user.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The stored response of a call made with an {@code Idempotency-Key}. Keys are scoped to the
+ * user, and {@code requestHash} tells a retry apart from a different request reusing the key.
+ * <p>
+ * Records are only ever inserted, so a new one is persisted straight away instead of merged,
+ * which would first select the assigned key.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+@IdClass(IdempotencyRecord.Key.class)
+@Data
+@NoArgsConstructor
+public class IdempotencyRecord implements Persistable<IdempotencyRecord.Key> {
+
+    @Id
+    private UUID userId;
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    @Column(nullable = false)
+    private byte[] requestHash;
+
+    @Column(nullable = false)
+    private String responseBody;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean stored;
+
+    public IdempotencyRecord(UUID userId, String key, byte[] requestHash, String responseBody,
+                             LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this.userId = userId;
+        this.key = key;
+        this.requestHash = requestHash;
+        this.responseBody = responseBody;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(userId, key);
+    }
+
+    @Override
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        stored = true;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID userId;
+        private String key;
+    }
+}
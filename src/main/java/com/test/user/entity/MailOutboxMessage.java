@@ -0,0 +1,72 @@
+package com.test.user.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A mail waiting in the outbox. Rows are written together with the status change that calls for
+ * the mail, so a mail is sent if and only if that change committed.
+ */
+@Entity
+@Table(name = "mail_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailOutboxMessage {
+
+    public enum Status {
+        PENDING,
+        SENT,
+        // Gave up after the last retry; kept for inspection and manual resending
+        DEAD
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID mailRequestId;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    private String replyTo;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, length = 2000)
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Set while a dispatcher run owns the row
+    private UUID claimToken;
+
+    @Column(length = 500)
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,54 @@
+package com.test.user.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "signing_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SigningKey {
+
+    @Id
+    @Column(length = 64)
+    private String kid;
+
+    @Column(nullable = false, length = 16)
+    private String algorithm;
+
+    // X.509 SubjectPublicKeyInfo
+    @Column(nullable = false, length = 512)
+    private byte[] publicKey;
+
+    // PKCS#8, encrypted with a key derived from jwt.secret
+    @Column(nullable = false, length = 512)
+    @ToString.Exclude
+    private byte[] privateKey;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime activatesAt;
+
+    private LocalDateTime retiresAt;
+
+    // Unique, so concurrent rotations on several instances create one key; null on keys from before generations
+    @Column(unique = true, updatable = false)
+    private Long generation;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
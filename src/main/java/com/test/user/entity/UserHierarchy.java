@@ -0,0 +1,43 @@
+package com.test.user.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * One path of the org chart closure table: {@code descendantId} is {@code depth} levels below
+ * {@code ancestorId}. Every user also has a path to itself at depth 0.
+ */
+@Entity
+@Table(name = "user_hierarchy")
+@IdClass(UserHierarchy.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserHierarchy {
+
+    @Id
+    private UUID ancestorId;
+
+    @Id
+    private UUID descendantId;
+
+    @Column(nullable = false)
+    private int depth;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID ancestorId;
+        private UUID descendantId;
+    }
+}
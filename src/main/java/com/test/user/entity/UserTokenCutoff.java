@@ -0,0 +1,27 @@
+package com.test.user.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "user_token_cutoffs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserTokenCutoff {
+
+    // Not a foreign key: the cutoff must outlive a deleted user's tokens
+    @Id
+    private UUID userId;
+
+    @Column(nullable = false)
+    private LocalDateTime revokedBefore;
+}
@@ -0,0 +1,35 @@
+package com.test.user.escalation;
+
+import com.test.user.entity.User;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * How long a request may stay unreviewed before it escalates to each role.
+ */
+@Data
+@ConfigurationProperties(prefix = "escalation")
+public class EscalationProperties {
+
+    private Map<User.Role, Duration> thresholds = new EnumMap<>(Map.of(
+            User.Role.MANAGER, Duration.ofMinutes(1),
+            User.Role.HELP_DESK, Duration.ofMinutes(2)));
+
+    // How often passed deadlines are turned into escalation events
+    private Duration tickInterval = Duration.ofSeconds(5);
+
+    // How often the tracker is rebuilt from the database, to pick up writes made by other instances
+    private Duration resyncInterval = Duration.ofMinutes(5);
+
+    public Duration thresholdFor(User.Role role) {
+        Duration threshold = thresholds.get(role);
+        if (threshold == null) {
+            throw new IllegalArgumentException("No escalation threshold configured for " + role);
+        }
+        return threshold;
+    }
+}
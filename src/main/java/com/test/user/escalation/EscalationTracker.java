@@ -0,0 +1,215 @@
+package com.test.user.escalation;
+
+import com.test.user.entity.User;
+import com.test.user.event.MailRequestCreatedEvent;
+import com.test.user.event.MailRequestReviewedEvent;
+import com.test.user.repository.MailRequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Time-ordered index of the requests still waiting for a review ({@code managerApproved} is null).
+ * <p>
+ * Every role's deadline is {@code createdAt + threshold}, so a single set ordered by
+ * (createdAt, id) serves all roles: the requests escalated to a role are the head of the set
+ * up to {@code now - threshold}, and reading them costs O(result) instead of a table scan.
+ * The set is rebuilt from the (manager_approved, created_at) index at startup and periodically,
+ * and kept current by the create/review events in between. Every tick also reads the requests
+ * created since the previous tick from the same index, so creates made on other instances show up
+ * within a tick rather than at the next rebuild. Reviews made elsewhere are dropped at the rebuild;
+ * until then the service filters them out of the rows it loads.
+ */
+@Component
+public class EscalationTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(EscalationTracker.class);
+
+    private static final UUID MIN_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    // createdAt is set before commit, so recent reads look back this far for late commits and clock skew
+    private static final Duration CREATE_SLACK = Duration.ofMinutes(1);
+
+    private final MailRequestRepository mailRequestRepository;
+    private final EscalationProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Read without locking; both only change together, under trackLock
+    private final NavigableSet<PendingRequest> pending = new ConcurrentSkipListSet<>();
+    private final Map<UUID, PendingRequest> pendingById = new ConcurrentHashMap<>();
+    private final Object trackLock = new Object();
+
+    // When the last read of pending requests started, null before the first rebuild
+    private volatile LocalDateTime lastReadStart;
+
+    // Per role, the position up to which escalation events have been published
+    private final Map<User.Role, PendingRequest> escalatedUpTo = new EnumMap<>(User.Role.class);
+
+    public EscalationTracker(MailRequestRepository mailRequestRepository, EscalationProperties properties,
+                             ApplicationEventPublisher eventPublisher) {
+        this.mailRequestRepository = mailRequestRepository;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rebuild();
+        // Requests that escalated before this instance started are not announced again
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (escalatedUpTo) {
+            properties.getThresholds().forEach((role, threshold) ->
+                    escalatedUpTo.put(role, new PendingRequest(now.minus(threshold), MIN_ID)));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${escalation.resync-interval:PT5M}",
+            initialDelayString = "${escalation.resync-interval:PT5M}")
+    public void rebuild() {
+        LocalDateTime snapshotStart = LocalDateTime.now();
+        Map<UUID, PendingRequest> fresh = new HashMap<>();
+        for (MailRequestRepository.PendingReviewKey key : mailRequestRepository.findPendingReviewKeys()) {
+            fresh.put(key.getId(), new PendingRequest(key.getCreatedAt(), key.getId()));
+        }
+        // Drop what was reviewed elsewhere, keeping requests created while the snapshot was read
+        for (PendingRequest request : pendingById.values()) {
+            if (!fresh.containsKey(request.id()) && request.createdAt().isBefore(snapshotStart)) {
+                untrack(request.id());
+            }
+        }
+        fresh.values().forEach(this::track);
+        lastReadStart = snapshotStart;
+        log.debug("Escalation tracker holds {} pending requests", pending.size());
+    }
+
+    @TransactionalEventListener
+    public void onCreated(MailRequestCreatedEvent event) {
+        track(new PendingRequest(event.createdAt(), event.requestId()));
+    }
+
+    @TransactionalEventListener
+    public void onReviewed(MailRequestReviewedEvent event) {
+        if (event.managerApproved() != null) {
+            untrack(event.requestId());
+        }
+    }
+
+    /**
+     * Requests pending longer than the role's threshold, newest first, strictly after the
+     * given (createdAt, id) position when one is given.
+     */
+    public List<PendingRequest> escalated(User.Role role, LocalDateTime afterCreatedAt, UUID afterId, int limit) {
+        PendingRequest cutoff = new PendingRequest(LocalDateTime.now().minus(properties.thresholdFor(role)), MIN_ID);
+        NavigableSet<PendingRequest> overdue = pending.headSet(cutoff, false).descendingSet();
+        if (afterCreatedAt != null) {
+            overdue = overdue.tailSet(new PendingRequest(afterCreatedAt, afterId), false);
+        }
+        List<PendingRequest> requests = new ArrayList<>(limit);
+        for (PendingRequest request : overdue) {
+            if (requests.size() == limit) {
+                break;
+            }
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    public Duration threshold(User.Role role) {
+        return properties.thresholdFor(role);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Picks up requests created on other instances, then publishes a {@link MailRequestEscalatedEvent}
+     * for every request whose deadline passed since the last tick.
+     */
+    @Scheduled(fixedDelayString = "${escalation.tick-interval:PT5S}")
+    public void publishEscalations() {
+        synchronized (escalatedUpTo) {
+            if (escalatedUpTo.isEmpty()) {
+                return; // not initialized yet
+            }
+            trackRecentlyCreated();
+            LocalDateTime now = LocalDateTime.now();
+            properties.getThresholds().forEach((role, threshold) -> {
+                PendingRequest cutoff = new PendingRequest(now.minus(threshold), MIN_ID);
+                PendingRequest from = escalatedUpTo.get(role);
+                if (from == null || from.compareTo(cutoff) >= 0) {
+                    return;
+                }
+                for (PendingRequest request : pending.subSet(from, false, cutoff, false)) {
+                    eventPublisher.publishEvent(new MailRequestEscalatedEvent(
+                            request.id(), role, request.createdAt(), request.createdAt().plus(threshold)));
+                }
+                escalatedUpTo.put(role, cutoff);
+            });
+        }
+    }
+
+    /**
+     * Tracks the pending requests created since the previous read, wherever they were created.
+     */
+    void trackRecentlyCreated() {
+        LocalDateTime since = lastReadStart;
+        if (since == null) {
+            return;
+        }
+        LocalDateTime readStart = LocalDateTime.now();
+        for (MailRequestRepository.PendingReviewKey key
+                : mailRequestRepository.findPendingReviewKeysCreatedSince(since.minus(CREATE_SLACK))) {
+            track(new PendingRequest(key.getCreatedAt(), key.getId()));
+        }
+        lastReadStart = readStart;
+    }
+
+    // The lock keeps a concurrent untrack from leaving a request in one structure but not the other
+    private void track(PendingRequest request) {
+        synchronized (trackLock) {
+            if (pendingById.putIfAbsent(request.id(), request) == null) {
+                pending.add(request);
+            }
+        }
+    }
+
+    private void untrack(UUID requestId) {
+        synchronized (trackLock) {
+            PendingRequest request = pendingById.remove(requestId);
+            if (request != null) {
+                pending.remove(request);
+            }
+        }
+    }
+
+    /**
+     * A request's position in the index. Ties on createdAt are broken by {@link UUID#compareTo}, not
+     * by the database's byte order, so a page continues from the last position returned here.
+     */
+    public record PendingRequest(LocalDateTime createdAt, UUID id) implements Comparable<PendingRequest> {
+
+        @Override
+        public int compareTo(PendingRequest other) {
+            int byTime = createdAt.compareTo(other.createdAt);
+            return byTime != 0 ? byTime : id.compareTo(other.id);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.test.user.escalation;
+
+import com.test.user.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Published once per role when a pending request passes that role's escalation deadline.
+ */
+public record MailRequestEscalatedEvent(
+        UUID requestId,
+        User.Role escalatedTo,
+        LocalDateTime createdAt,
+        LocalDateTime deadline) {
+}
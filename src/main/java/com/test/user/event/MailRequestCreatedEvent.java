@@ -0,0 +1,31 @@
+package com.test.user.event;
+
+import com.test.user.entity.MailRequest;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Published by the mail request service when a request is created. Listeners that keep
+ * in-memory views should react after commit, so they never see a rolled back request.
+ */
+public record MailRequestCreatedEvent(
+        UUID requestId,
+        UUID userId,
+        UUID leaderId,
+        MailRequest.Status status,
+        LocalDateTime createdAt,
+        String subject,
+        String body) {
+
+    public static MailRequestCreatedEvent of(MailRequest mailRequest) {
+        return new MailRequestCreatedEvent(
+                mailRequest.getId(),
+                mailRequest.getUser().getId(),
+                mailRequest.getUser().getLeader() != null ? mailRequest.getUser().getLeader().getId() : null,
+                mailRequest.getStatus(),
+                mailRequest.getCreatedAt(),
+                mailRequest.getSubject(),
+                mailRequest.getBody());
+    }
+}
@@ -0,0 +1,40 @@
+package com.test.user.event;
+
+import com.test.user.entity.MailRequest;
+import com.test.user.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Published by the mail request service after a review decision was applied to a request.
+ */
+public record MailRequestReviewedEvent(
+        UUID requestId,
+        UUID userId,
+        UUID leaderId,
+        UUID reviewerId,
+        User.Role reviewerRole,
+        MailRequest.Status previousStatus,
+        MailRequest.Status status,
+        Boolean managerApproved,
+        LocalDateTime createdAt,
+        LocalDateTime reviewedAt,
+        String comments) {
+
+    public static MailRequestReviewedEvent of(MailRequest mailRequest, MailRequest.Status previousStatus) {
+        User user = mailRequest.getUser();
+        return new MailRequestReviewedEvent(
+                mailRequest.getId(),
+                user.getId(),
+                user.getLeader() != null ? user.getLeader().getId() : null,
+                mailRequest.getManager().getId(),
+                mailRequest.getManager().getRole(),
+                previousStatus,
+                mailRequest.getStatus(),
+                mailRequest.getManagerApproved(),
+                mailRequest.getCreatedAt(),
+                mailRequest.getReviewedAt(),
+                mailRequest.getComments());
+    }
+}
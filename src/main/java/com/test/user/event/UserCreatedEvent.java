@@ -0,0 +1,21 @@
+package com.test.user.event;
+
+import com.test.user.entity.User;
+
+import java.util.UUID;
+
+/**
+ * Published by the user service for every user it creates, including imported ones.
+ */
+public record UserCreatedEvent(
+        UUID userId,
+        User.Role role,
+        UUID leaderId) {
+
+    public static UserCreatedEvent of(User user) {
+        return new UserCreatedEvent(
+                user.getId(),
+                user.getRole(),
+                user.getLeader() != null ? user.getLeader().getId() : null);
+    }
+}
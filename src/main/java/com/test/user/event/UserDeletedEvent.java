@@ -0,0 +1,9 @@
+package com.test.user.event;
+
+import java.util.UUID;
+
+/**
+ * Published by the user service when a user is deleted.
+ */
+public record UserDeletedEvent(UUID userId) {
+}
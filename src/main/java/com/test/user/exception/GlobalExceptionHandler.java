@@ -1,7 +1,9 @@
 package com.test.user.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.AuthenticationException;
@@ -86,6 +88,115 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
     }
     
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidCursorException(InvalidCursorException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("cursor", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Invalid request", 
+                errors
+        );
+        
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+    
+    @ExceptionHandler(InvalidImportFileException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidImportFileException(InvalidImportFileException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("file", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Invalid request", 
+                errors
+        );
+        
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+    
+    @ExceptionHandler(InvalidStatusTransitionException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidStatusTransitionException(InvalidStatusTransitionException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("status", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Review failed", 
+                errors
+        );
+        
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+    
+    // Lost the compare-and-set against a concurrent review
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("version", "The mail request was changed by another reviewer; reload it and try again");
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Review failed", 
+                errors
+        );
+        
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+    
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidIdempotencyKeyException(InvalidIdempotencyKeyException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("Idempotency-Key", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Invalid request", 
+                errors
+        );
+        
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+    
+    // Same key, different request: replaying the stored response would answer the wrong call
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("Idempotency-Key", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Invalid request", 
+                errors
+        );
+        
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(errorResponse);
+    }
+    
+    // The first call with this key is still running; the client retries once it has finished
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyInProgressException(IdempotencyKeyInProgressException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("Idempotency-Key", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Request in progress", 
+                errors
+        );
+        
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+    
+    @ExceptionHandler(LoginThrottledException.class)
+    public ResponseEntity<ErrorResponse> handleLoginThrottledException(LoginThrottledException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("error", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Too many requests", 
+                errors
+        );
+        
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+    
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGenericException(Exception ex) {
         Map<String, String> errors = new HashMap<>();
@@ -0,0 +1,240 @@
+package com.test.user.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.test.user.entity.IdempotencyRecord;
+import com.test.user.exception.IdempotencyKeyInProgressException;
+import com.test.user.exception.IdempotencyKeyReusedException;
+import com.test.user.exception.InvalidIdempotencyKeyException;
+import com.test.user.metrics.StatementCounter;
+import com.test.user.metrics.StatementTally;
+import com.test.user.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs create and review calls at most once per {@code Idempotency-Key}, so gateway retries
+ * replay the first response instead of creating or reviewing twice.
+ * <p>
+ * Keys live in a bounded in-process cache for the TTL. Each entry is the future of the call, so
+ * a duplicate arriving while the first is still running waits for it instead of running again.
+ * The response is also written to the idempotency_keys table in the transaction of the call
+ * itself: a retry that lands on another instance (or after a restart) replays the stored row,
+ * and two instances racing on the same key collide on its primary key, which rolls the loser
+ * back before it replays the winner's response. A duplicate waits at most {@code idempotency.wait-timeout}
+ * for the first call and is then told to retry with {@link IdempotencyKeyInProgressException}, so a
+ * stuck call cannot pin every retry's request thread.
+ * <p>
+ * Keyed calls run up to {@link #KEYED_STATEMENTS} statements on top of the call itself, which
+ * they add to the endpoint's {@link com.test.user.metrics.QueryBudget}.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    // Set on replayed responses
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    // The lookup of a stored response, the insert of ours and, after losing a race, the winner's row
+    static final int KEYED_STATEMENTS = 3;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final StatementCounter statementCounter;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Cache<Scope, CompletableFuture<Outcome>> calls;
+
+    public IdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+                            TransactionTemplate transactionTemplate,
+                            ObjectMapper objectMapper,
+                            StatementCounter statementCounter,
+                            @Value("${idempotency.ttl:24h}") Duration ttl,
+                            @Value("${idempotency.maximum-size:10000}") long maximumSize,
+                            @Value("${idempotency.wait-timeout:PT10S}") Duration waitTimeout) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.statementCounter = statementCounter;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.calls = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Runs the call, or replays the response of an earlier call with the same key. Without a key
+     * the call just runs. A key reused for a different endpoint or body is rejected with
+     * {@link IdempotencyKeyReusedException}. Failed calls are not remembered, so a retry runs
+     * again; duplicates that were waiting for the failed call get its exception.
+     */
+    public <T> Result<T> execute(UUID userId, String key, String endpoint, Object request,
+                                 TypeReference<T> responseType, Supplier<T> call) {
+        if (key == null) {
+            return new Result<>(call.get(), false);
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(
+                    HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        StatementTally tally = statementCounter.current();
+        if (tally != null) {
+            tally.allow(KEYED_STATEMENTS);
+        }
+        Scope scope = new Scope(userId, key);
+        byte[] requestHash = requestHash(endpoint, request);
+
+        CompletableFuture<Outcome> mine = new CompletableFuture<>();
+        CompletableFuture<Outcome> existing = calls.asMap().putIfAbsent(scope, mine);
+        if (existing != null) {
+            return replay(await(existing), requestHash);
+        }
+        Outcome outcome;
+        try {
+            outcome = runOnce(scope, requestHash, responseType, call);
+        } catch (RuntimeException e) {
+            calls.asMap().remove(scope, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        mine.complete(outcome);
+        return outcome.replayed() ? replay(outcome, requestHash) : new Result<>(cast(outcome.body()), false);
+    }
+
+    // Drops stored responses past the TTL; the cache evicts its own entries
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int purged = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        log.debug("Purged {} expired idempotency keys", purged);
+    }
+
+    private <T> Outcome runOnce(Scope scope, byte[] requestHash, TypeReference<T> responseType, Supplier<T> call) {
+        try {
+            return transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                IdempotencyRecord stored = idempotencyRecordRepository
+                        .findLive(scope.userId(), scope.key(), now).orElse(null);
+                if (stored != null) {
+                    return stored(stored, responseType);
+                }
+                T body = call.get();
+                idempotencyRecordRepository.save(new IdempotencyRecord(scope.userId(), scope.key(), requestHash,
+                        write(body), now, now.plus(ttl)));
+                return new Outcome(requestHash, body, false);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance stored this key first; our call was rolled back with the insert
+            IdempotencyRecord stored = idempotencyRecordRepository
+                    .findLive(scope.userId(), scope.key(), LocalDateTime.now())
+                    .orElseThrow(() -> e);
+            return stored(stored, responseType);
+        }
+    }
+
+    private <T> Result<T> replay(Outcome outcome, byte[] requestHash) {
+        if (!Arrays.equals(outcome.requestHash(), requestHash)) {
+            throw new IdempotencyKeyReusedException(
+                    "This " + HEADER + " was already used for a different request");
+        }
+        return new Result<>(cast(outcome.body()), true);
+    }
+
+    private Outcome await(CompletableFuture<Outcome> call) {
+        try {
+            return call.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInProgressException(
+                    "A request with this " + HEADER + " is still in progress, retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException(
+                    "Interrupted while waiting for the request with this " + HEADER);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private <T> Outcome stored(IdempotencyRecord stored, TypeReference<T> responseType) {
+        try {
+            return new Outcome(stored.getRequestHash(), objectMapper.readValue(stored.getResponseBody(), responseType), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable stored response for an idempotency key", e);
+        }
+    }
+
+    private String write(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store the response for an idempotency key", e);
+        }
+    }
+
+    // Endpoint plus the JSON of the body, so the same key on another endpoint counts as reuse
+    private byte[] requestHash(String endpoint, Object request) {
+        try {
+            MessageDigest sha256 = SHA_256.get();
+            sha256.update(endpoint.getBytes(StandardCharsets.UTF_8));
+            sha256.update((byte) 0);
+            return sha256.digest(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not hash the request", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object body) {
+        return (T) body;
+    }
+
+    private record Scope(UUID userId, String key) {
+    }
+
+    private record Outcome(byte[] requestHash, Object body, boolean replayed) {
+    }
+
+    /**
+     * The response body, and whether it was replayed from an earlier call.
+     */
+    public record Result<T>(T body, boolean replayed) {
+    }
+}
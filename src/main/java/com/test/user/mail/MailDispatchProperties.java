@@ -0,0 +1,33 @@
+package com.test.user.mail;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Where accepted mail requests are sent, and how the outbox is drained.
+ */
+@Data
+@ConfigurationProperties(prefix = "mail.dispatch")
+public class MailDispatchProperties {
+
+    // Accepted requests go out to this address, with the requester as Reply-To
+    private String to = "requests@localhost";
+    private String from = "no-reply@localhost";
+
+    private Duration interval = Duration.ofSeconds(5);
+    private int batchSize = 50;
+    // Parallel SMTP sessions per batch; every session sends its share of the batch
+    private int connections = 2;
+
+    // Failed sends are retried with exponential backoff, then dead-lettered
+    private int maxAttempts = 8;
+    private Duration initialBackoff = Duration.ofSeconds(30);
+    private Duration maxBackoff = Duration.ofHours(1);
+
+    // How long a dispatcher run owns the rows it claimed
+    private Duration lease = Duration.ofMinutes(5);
+    // Sent rows are kept this long
+    private Duration retention = Duration.ofDays(7);
+}
@@ -0,0 +1,220 @@
+package com.test.user.mail;
+
+import com.test.user.dto.MailOutboxStats;
+import com.test.user.entity.MailOutboxMessage;
+import com.test.user.repository.MailOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drains the mail outbox in the background.
+ * <p>
+ * Each run claims a batch of due rows (so instances never send the same row concurrently),
+ * splits it over a small pool of SMTP sessions that each send their share over one connection,
+ * and records the outcome per message: sent, retried later with exponential backoff, or
+ * dead-lettered after the last attempt. Delivery is at least once: a run that dies after sending
+ * leaves its rows to be sent again when the claim's lease expires.
+ */
+@Component
+public class MailDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(MailDispatcher.class);
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final JavaMailSender mailSender;
+    private final MailDispatchProperties properties;
+    private final ExecutorService connections;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    public MailDispatcher(MailOutboxRepository mailOutboxRepository, JavaMailSender mailSender,
+                          MailDispatchProperties properties) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailSender = mailSender;
+        this.properties = properties;
+        AtomicInteger counter = new AtomicInteger();
+        this.connections = Executors.newFixedThreadPool(properties.getConnections(), runnable -> {
+            Thread thread = new Thread(runnable, "mail-dispatch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sends batches until nothing is due.
+     */
+    @Scheduled(fixedDelayString = "${mail.dispatch.interval:PT5S}",
+            initialDelayString = "${mail.dispatch.interval:PT5S}")
+    public void dispatch() {
+        while (dispatchBatch() == properties.getBatchSize()) {
+            // full batch, there may be more
+        }
+    }
+
+    /**
+     * Claims and sends one batch, returning how many messages it held.
+     */
+    public synchronized int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> due = mailOutboxRepository.findDueIds(MailOutboxMessage.Status.PENDING, now,
+                Limit.of(properties.getBatchSize()));
+        if (due.isEmpty()) {
+            return 0;
+        }
+        UUID token = UUID.randomUUID();
+        if (mailOutboxRepository.claim(due, MailOutboxMessage.Status.PENDING, token, now,
+                now.plus(properties.getLease())) == 0) {
+            return 0;
+        }
+        List<MailOutboxMessage> batch = mailOutboxRepository.findByClaimToken(token);
+
+        int sessions = Math.min(properties.getConnections(), batch.size());
+        List<CompletableFuture<Void>> sends = new ArrayList<>(sessions);
+        for (int session = 0; session < sessions; session++) {
+            List<MailOutboxMessage> share = new ArrayList<>();
+            for (int i = session; i < batch.size(); i += sessions) {
+                share.add(batch.get(i));
+            }
+            sends.add(CompletableFuture.runAsync(() -> send(share), connections));
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+        return batch.size();
+    }
+
+    public MailOutboxStats stats() {
+        LocalDateTime oldestPending = mailOutboxRepository.findOldestCreatedAt(MailOutboxMessage.Status.PENDING);
+        Duration lag = oldestPending == null ? Duration.ZERO : Duration.between(oldestPending, LocalDateTime.now());
+        return new MailOutboxStats(
+                sent.sum(),
+                failed.sum(),
+                deadLettered.sum(),
+                mailOutboxRepository.countByStatus(MailOutboxMessage.Status.PENDING),
+                mailOutboxRepository.countByStatus(MailOutboxMessage.Status.DEAD),
+                lag.toMillis());
+    }
+
+    @Scheduled(fixedDelayString = "${mail.dispatch.purge-interval:PT1H}")
+    public void purgeSent() {
+        mailOutboxRepository.deleteSentBefore(MailOutboxMessage.Status.SENT,
+                LocalDateTime.now().minus(properties.getRetention()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connections.shutdown();
+    }
+
+    // One SMTP session for the whole share
+    private void send(List<MailOutboxMessage> share) {
+        List<MailOutboxMessage> sendable = new ArrayList<>(share.size());
+        List<MimeMessage> mimeMessages = new ArrayList<>(share.size());
+        for (MailOutboxMessage message : share) {
+            try {
+                mimeMessages.add(toMimeMessage(message));
+                sendable.add(message);
+            } catch (MessagingException e) {
+                // A malformed address won't get better with retries
+                fail(message, e, true);
+            }
+        }
+        if (mimeMessages.isEmpty()) {
+            return;
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(mimeMessages.toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+        } catch (MailException e) {
+            // Could not even start the session
+            for (MailOutboxMessage message : sendable) {
+                fail(message, e, false);
+            }
+            return;
+        }
+
+        List<UUID> sentIds = new ArrayList<>(sendable.size());
+        for (int i = 0; i < sendable.size(); i++) {
+            Exception failure = failures.get(mimeMessages.get(i));
+            if (failure == null) {
+                sentIds.add(sendable.get(i).getId());
+            } else {
+                fail(sendable.get(i), failure, false);
+            }
+        }
+        if (!sentIds.isEmpty()) {
+            mailOutboxRepository.markSent(sentIds, MailOutboxMessage.Status.SENT, LocalDateTime.now());
+            sent.add(sentIds.size());
+        }
+    }
+
+    private MimeMessage toMimeMessage(MailOutboxMessage message) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, StandardCharsets.UTF_8.name());
+        helper.setFrom(properties.getFrom());
+        helper.setTo(message.getRecipient());
+        if (message.getReplyTo() != null) {
+            helper.setReplyTo(message.getReplyTo());
+        }
+        helper.setSubject(message.getSubject());
+        helper.setText(message.getBody());
+        // Lets the receiving side drop the duplicates at-least-once delivery can produce
+        mimeMessage.setHeader("X-Mail-Request-Id", message.getMailRequestId().toString());
+        mimeMessage.setHeader("X-Outbox-Id", message.getId().toString());
+        return mimeMessage;
+    }
+
+    private void fail(MailOutboxMessage message, Exception error, boolean permanent) {
+        failed.increment();
+        int attempts = message.getAttempts() + 1;
+        String reason = truncate(String.valueOf(error.getMessage()));
+        if (permanent || attempts >= properties.getMaxAttempts()) {
+            mailOutboxRepository.markFailed(message.getId(), MailOutboxMessage.Status.DEAD, LocalDateTime.now(), reason);
+            deadLettered.increment();
+            log.warn("Gave up on outbox mail {} for request {} after {} attempts: {}",
+                    message.getId(), message.getMailRequestId(), attempts, reason);
+            return;
+        }
+        mailOutboxRepository.markFailed(message.getId(), MailOutboxMessage.Status.PENDING,
+                LocalDateTime.now().plus(backoff(attempts)), reason);
+        log.debug("Outbox mail {} failed (attempt {}), retrying: {}", message.getId(), attempts, reason);
+    }
+
+    // initialBackoff, doubling per attempt, capped at maxBackoff
+    private Duration backoff(int attempts) {
+        Duration backoff = properties.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 30));
+        return backoff.compareTo(properties.getMaxBackoff()) > 0 ? properties.getMaxBackoff() : backoff;
+    }
+
+    private static String truncate(String reason) {
+        return reason.length() <= MAX_ERROR_LENGTH ? reason : reason.substring(0, MAX_ERROR_LENGTH);
+    }
+}
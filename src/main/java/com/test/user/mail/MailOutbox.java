@@ -0,0 +1,52 @@
+package com.test.user.mail;
+
+import com.test.user.entity.MailOutboxMessage;
+import com.test.user.entity.MailRequest;
+import com.test.user.event.MailRequestReviewedEvent;
+import com.test.user.repository.MailOutboxRepository;
+import com.test.user.repository.MailRequestRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * Queues the mail of every request the help desk accepts. The row is written just before the
+ * review's transaction commits, so it commits or rolls back with the status change, and the
+ * review never waits for the mail server.
+ */
+@Component
+public class MailOutbox {
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final MailRequestRepository mailRequestRepository;
+    private final MailDispatchProperties properties;
+
+    public MailOutbox(MailOutboxRepository mailOutboxRepository, MailRequestRepository mailRequestRepository,
+                      MailDispatchProperties properties) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailRequestRepository = mailRequestRepository;
+        this.properties = properties;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onReviewed(MailRequestReviewedEvent event) {
+        if (event.status() != MailRequest.Status.HD_ACCEPT) {
+            return;
+        }
+        // The reviewed request and its requester are still in the persistence context
+        MailRequest mailRequest = mailRequestRepository.findById(event.requestId())
+                .orElseThrow(() -> new IllegalStateException("Reviewed mail request not found"));
+
+        MailOutboxMessage message = new MailOutboxMessage();
+        message.setMailRequestId(mailRequest.getId());
+        message.setRecipient(properties.getTo());
+        message.setReplyTo(mailRequest.getUser().getEmail());
+        message.setSubject(mailRequest.getSubject());
+        message.setBody(mailRequest.getBody());
+        message.setStatus(MailOutboxMessage.Status.PENDING);
+        message.setNextAttemptAt(LocalDateTime.now());
+        mailOutboxRepository.save(message);
+    }
+}
@@ -0,0 +1,61 @@
+package com.test.user.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Holds every controller call to the {@link QueryBudget} of its method and watches for the same
+ * statement running over and over, the mark of a lazy load or lookup inside a loop.
+ * <p>
+ * Violations are logged when the request completes. With {@code query-budget.fail-fast} (the test
+ * suite) the statement that breaks a limit throws instead, so the request fails.
+ */
+@Component
+public class QueryBudgetInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryBudgetInterceptor.class);
+
+    private final StatementCounter statementCounter;
+    private final int repeatThreshold;
+    private final boolean failFast;
+
+    public QueryBudgetInterceptor(StatementCounter statementCounter,
+                                  @Value("${query-budget.repeat-threshold:5}") int repeatThreshold,
+                                  @Value("${query-budget.fail-fast:false}") boolean failFast) {
+        this.statementCounter = statementCounter;
+        this.repeatThreshold = repeatThreshold;
+        this.failFast = failFast;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        StatementTally tally = statementCounter.current();
+        if (tally != null && handler instanceof HandlerMethod method) {
+            QueryBudget budget = method.getMethodAnnotation(QueryBudget.class);
+            tally.limit(method.getBeanType().getSimpleName() + "." + method.getMethod().getName(),
+                    budget != null ? budget.value() : -1, repeatThreshold, failFast);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        StatementTally tally = statementCounter.current();
+        if (tally == null || tally.endpoint() == null) {
+            return;
+        }
+        log.debug("{} ran {} SQL statements", tally.endpoint(), tally.count());
+        if (tally.overBudget()) {
+            log.warn("{} ran {} SQL statements, over its budget of {}", tally.endpoint(), tally.count(), tally.budget());
+        }
+        tally.repeatedShapes().forEach((shape, repeats) ->
+                log.warn("{} ran the same statement {} times, likely an N+1: {}", tally.endpoint(), repeats, shape));
+    }
+}
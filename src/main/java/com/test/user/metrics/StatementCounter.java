@@ -0,0 +1,45 @@
+package com.test.user.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tallies the SQL statements Hibernate prepares on the current thread while a tally is open.
+ * Registered as Hibernate's statement inspector by {@link com.test.user.config.MetricsConfig}.
+ */
+@Component
+public class StatementCounter implements StatementInspector {
+
+    private final ThreadLocal<StatementTally> tally = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        StatementTally current = tally.get();
+        if (current != null) {
+            current.record(sql);
+        }
+        return sql;
+    }
+
+    public StatementTally start() {
+        StatementTally started = new StatementTally();
+        tally.set(started);
+        return started;
+    }
+
+    /**
+     * The tally opened on this thread, or null outside of one.
+     */
+    public StatementTally current() {
+        return tally.get();
+    }
+
+    /**
+     * Closes the tally opened by {@link #start()} and returns it.
+     */
+    public StatementTally stop() {
+        StatementTally stopped = tally.get();
+        tally.remove();
+        return stopped != null ? stopped : new StatementTally();
+    }
+}
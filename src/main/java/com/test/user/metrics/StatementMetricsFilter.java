@@ -0,0 +1,56 @@
+package com.test.user.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Records how many SQL statements each request ran, per route, as {@code http.server.statements}.
+ * A route whose count grows with the data it returns is an N+1 in the making.
+ */
+@Component
+public class StatementMetricsFilter extends OncePerRequestFilter {
+
+    private static final String METRIC = "http.server.statements";
+
+    // Any other method a client makes up shares one tag value, as in http.server.requests
+    private static final Set<String> KNOWN_METHODS = Set.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE",
+            "OPTIONS", "TRACE");
+
+    private final StatementCounter statementCounter;
+    private final MeterRegistry meterRegistry;
+
+    public StatementMetricsFilter(StatementCounter statementCounter, MeterRegistry meterRegistry) {
+        this.statementCounter = statementCounter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        statementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = statementCounter.stop().count();
+            // The route template, like http.server.requests; unmatched paths share one tag value
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder(METRIC)
+                    .description("SQL statements run per request")
+                    .baseUnit("statements")
+                    .tag("method", KNOWN_METHODS.contains(request.getMethod()) ? request.getMethod() : "UNKNOWN")
+                    .tag("uri", route != null ? route.toString() : "UNKNOWN")
+                    .register(meterRegistry)
+                    .record(statements);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.test.user.metrics;
+
+import com.test.user.exception.QueryBudgetExceededException;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The statements one request has run so far: how many, and how often each statement shape came
+ * up. Once limits are set, going over them is either only reported at the end of the request or,
+ * when failing fast, thrown from the statement that broke them.
+ */
+public final class StatementTally {
+
+    // IN lists differ in length from call to call but are the same query
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+    private final Map<String, Integer> shapes = new HashMap<>();
+    private int count;
+
+    private String endpoint;
+    private int budget = -1;
+    private int repeatThreshold = Integer.MAX_VALUE;
+    private boolean failFast;
+
+    void record(String sql) {
+        count++;
+        int repeats = shapes.merge(shapeOf(sql), 1, Integer::sum);
+        if (!failFast) {
+            return;
+        }
+        if (budget >= 0 && count > budget) {
+            throw new QueryBudgetExceededException(
+                    endpoint + " ran more than its budget of " + budget + " SQL statements, the last was: " + sql);
+        }
+        if (repeats == repeatThreshold) {
+            throw new QueryBudgetExceededException(
+                    endpoint + " ran the same statement " + repeats + " times, likely an N+1: " + shapeOf(sql));
+        }
+    }
+
+    /**
+     * Sets the limits for the rest of the request. A negative budget means no budget.
+     */
+    void limit(String endpoint, int budget, int repeatThreshold, boolean failFast) {
+        this.endpoint = endpoint;
+        this.budget = budget;
+        this.repeatThreshold = repeatThreshold;
+        this.failFast = failFast;
+    }
+
+    /**
+     * Raises the budget by statements the endpoint runs only on some calls, such as the bookkeeping
+     * of an idempotency key. No effect without a budget.
+     */
+    public void allow(int statements) {
+        if (budget >= 0) {
+            budget += statements;
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int budget() {
+        return budget;
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+
+    public boolean overBudget() {
+        return budget >= 0 && count > budget;
+    }
+
+    /**
+     * Shapes that ran at least as often as the repeat threshold, with their counts.
+     */
+    public Map<String, Integer> repeatedShapes() {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        shapes.forEach((shape, repeats) -> {
+            if (repeats >= repeatThreshold) {
+                repeated.put(shape, repeats);
+            }
+        });
+        return repeated;
+    }
+
+    static String shapeOf(String sql) {
+        return sql.indexOf('?') < 0 ? sql : PARAMETER_LIST.matcher(sql).replaceAll("(?)");
+    }
+}
@@ -0,0 +1,26 @@
+package com.test.user.repository;
+
+import com.test.user.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecord.Key> {
+
+    @Query("select r from IdempotencyRecord r where r.userId = :userId and r.key = :key and r.expiresAt > :now")
+    Optional<IdempotencyRecord> findLive(@Param("userId") UUID userId, @Param("key") String key,
+                                         @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,62 @@
+package com.test.user.repository;
+
+import com.test.user.entity.MailOutboxMessage;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutboxMessage, UUID> {
+
+    @Query("select m.id from MailOutboxMessage m where m.status = :status and m.nextAttemptAt <= :now "
+            + "order by m.nextAttemptAt")
+    List<UUID> findDueIds(@Param("status") MailOutboxMessage.Status status, @Param("now") LocalDateTime now,
+                          Limit limit);
+
+    /**
+     * Takes the rows that are still due for one dispatcher run. The lease pushes their next
+     * attempt out, so rows of a run that dies become due again once it has expired.
+     */
+    @Transactional
+    @Modifying
+    @Query("update MailOutboxMessage m set m.claimToken = :token, m.nextAttemptAt = :leaseUntil "
+            + "where m.id in :ids and m.status = :status and m.nextAttemptAt <= :now")
+    int claim(@Param("ids") Collection<UUID> ids, @Param("status") MailOutboxMessage.Status status,
+              @Param("token") UUID token, @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    List<MailOutboxMessage> findByClaimToken(UUID claimToken);
+
+    @Transactional
+    @Modifying
+    @Query("update MailOutboxMessage m set m.status = :status, m.sentAt = :now, m.attempts = m.attempts + 1, "
+            + "m.claimToken = null where m.id in :ids")
+    int markSent(@Param("ids") Collection<UUID> ids, @Param("status") MailOutboxMessage.Status status,
+                 @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update MailOutboxMessage m set m.status = :status, m.attempts = m.attempts + 1, "
+            + "m.nextAttemptAt = :nextAttemptAt, m.lastError = :error, m.claimToken = null where m.id = :id")
+    int markFailed(@Param("id") UUID id, @Param("status") MailOutboxMessage.Status status,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+
+    long countByStatus(MailOutboxMessage.Status status);
+
+    @Query("select min(m.createdAt) from MailOutboxMessage m where m.status = :status")
+    LocalDateTime findOldestCreatedAt(@Param("status") MailOutboxMessage.Status status);
+
+    @Transactional
+    @Modifying
+    @Query("delete from MailOutboxMessage m where m.status = :status and m.sentAt < :before")
+    int deleteSentBefore(@Param("status") MailOutboxMessage.Status status, @Param("before") LocalDateTime before);
+}
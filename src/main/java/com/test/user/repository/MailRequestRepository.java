@@ -1,14 +1,20 @@
 package com.test.user.repository;
 
 import com.test.user.entity.MailRequest;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface MailRequestRepository extends JpaRepository<MailRequest, UUID> {
+public interface MailRequestRepository extends JpaRepository<MailRequest, UUID>, JpaSpecificationExecutor<MailRequest> {
     
     // Find requests by user ID
     List<MailRequest> findByUserId(UUID userId);
@@ -24,4 +30,36 @@ public interface MailRequestRepository extends JpaRepository<MailRequest, UUID>
     
     // Find approved requests by manager ID
     List<MailRequest> findByManagerIdAndManagerApproved(UUID managerId, Boolean approved);
+
+    // Find a single request together with its requester and reviewer
+    @EntityGraph(attributePaths = {"user", "manager"})
+    Optional<MailRequest> findWithUserAndManagerById(UUID id);
+
+    // Keys of every request still waiting for a review, read from the (manager_approved, created_at) index
+    @Query("select m.id as id, m.createdAt as createdAt from MailRequest m where m.managerApproved is null")
+    List<PendingReviewKey> findPendingReviewKeys();
+
+    // The same keys, only for requests created at or after the given time
+    @Query("select m.id as id, m.createdAt as createdAt from MailRequest m "
+            + "where m.managerApproved is null and m.createdAt >= :since")
+    List<PendingReviewKey> findPendingReviewKeysCreatedSince(@Param("since") LocalDateTime since);
+
+    interface PendingReviewKey {
+        UUID getId();
+
+        LocalDateTime getCreatedAt();
+    }
+
+    // Requests per team and status, to reconcile the in-memory counters
+    @Query("select u.leader.id as leaderId, m.status as status, count(m) as count from MailRequest m join m.user u "
+            + "where u.leader is not null and m.status is not null group by u.leader.id, m.status")
+    List<TeamStatusCount> countByTeamAndStatus();
+
+    interface TeamStatusCount {
+        UUID getLeaderId();
+
+        MailRequest.Status getStatus();
+
+        long getCount();
+    }
 }
@@ -0,0 +1,91 @@
+package com.test.user.repository;
+
+import com.test.user.dto.MailRequestFilter;
+import com.test.user.entity.MailRequest;
+import jakarta.persistence.criteria.JoinType;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Query predicates for {@link MailRequest}, combined by the service for keyset-paginated listings.
+ */
+public final class MailRequestSpecifications {
+
+    private MailRequestSpecifications() {
+    }
+
+    public static Specification<MailRequest> ofUser(UUID userId) {
+        return (root, query, cb) -> cb.equal(root.get("user").get("id"), userId);
+    }
+
+    // Requests created by the direct reports of the given leader
+    public static Specification<MailRequest> ofTeam(UUID leaderId) {
+        return (root, query, cb) -> cb.equal(root.get("user").get("leader").get("id"), leaderId);
+    }
+
+    // Requests created by anyone below the given user, however many levels down
+    public static Specification<MailRequest> ofSubtree(UUID ancestorId) {
+        return (root, query, cb) -> root.get("user").get("id").in(UserSpecifications.descendantsOf(ancestorId, query, cb));
+    }
+
+    public static Specification<MailRequest> idIn(Collection<UUID> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    public static Specification<MailRequest> statusIn(Collection<MailRequest.Status> statuses) {
+        return (root, query, cb) -> root.get("status").in(statuses);
+    }
+
+    // Rows without a status too, which a plain IN never matches
+    public static Specification<MailRequest> statusInOrNull(Collection<MailRequest.Status> statuses) {
+        return (root, query, cb) -> cb.or(cb.isNull(root.get("status")), root.get("status").in(statuses));
+    }
+
+    public static Specification<MailRequest> managerApproved(boolean approved) {
+        return (root, query, cb) -> cb.equal(root.get("managerApproved"), approved);
+    }
+
+    public static Specification<MailRequest> pendingReview() {
+        return (root, query, cb) -> cb.isNull(root.get("managerApproved"));
+    }
+
+    public static Specification<MailRequest> createdBefore(LocalDateTime createdBefore) {
+        return (root, query, cb) -> cb.lessThan(root.get("createdAt"), createdBefore);
+    }
+
+    /**
+     * Fetch plan for list reads: loads the requester and reviewer in the page query itself
+     * instead of one lazy load per row.
+     */
+    public static Specification<MailRequest> fetchUserAndManager() {
+        return (root, query, cb) -> {
+            if (query != null && !Long.class.equals(query.getResultType())) {
+                root.fetch("user", JoinType.INNER);
+                root.fetch("manager", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Optional caller supplied filters; matches everything when none are set.
+     */
+    public static Specification<MailRequest> matching(MailRequestFilter filter) {
+        return (root, query, cb) -> {
+            if (filter == null) {
+                return cb.conjunction();
+            }
+            var predicate = cb.conjunction();
+            if (filter.getStatus() != null) {
+                predicate = cb.and(predicate, cb.equal(root.get("status"), filter.getStatus()));
+            }
+            if (filter.getCreatedAfter() != null) {
+                predicate = cb.and(predicate, cb.greaterThanOrEqualTo(root.get("createdAt"), filter.getCreatedAfter()));
+            }
+            return predicate;
+        };
+    }
+}
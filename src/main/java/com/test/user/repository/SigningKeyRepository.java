@@ -0,0 +1,34 @@
+package com.test.user.repository;
+
+import com.test.user.entity.SigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SigningKeyRepository extends JpaRepository<SigningKey, String> {
+
+    @Query("select k from SigningKey k where k.retiresAt is null or k.retiresAt > :now")
+    List<SigningKey> findUnretired(@Param("now") LocalDateTime now);
+
+    @Query("select coalesce(max(k.generation), 0) from SigningKey k")
+    long findLatestGeneration();
+
+    // Keys of earlier generations only, so a key created concurrently is never retired by mistake
+    @Transactional
+    @Modifying
+    @Query("update SigningKey k set k.retiresAt = :retiresAt "
+            + "where (k.generation is null or k.generation < :generation) and k.retiresAt is null")
+    int retireBefore(@Param("generation") long generation, @Param("retiresAt") LocalDateTime retiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from SigningKey k where k.retiresAt < :now")
+    int deleteRetired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,61 @@
+package com.test.user.repository;
+
+import com.test.user.entity.UserHierarchy;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UserHierarchyRepository extends JpaRepository<UserHierarchy, UserHierarchy.Key> {
+
+    /**
+     * Links newly saved users into the hierarchy below their leaders, in two statements however
+     * many users there are. Leaders must already be linked.
+     */
+    @Transactional
+    default void addUsers(Collection<UUID> userIds) {
+        insertSelfPaths(userIds);
+        insertPathsThroughLeader(userIds);
+    }
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("insert into UserHierarchy (ancestorId, descendantId, depth) "
+            + "select u.id, u.id, 0 from User u where u.id in :userIds")
+    int insertSelfPaths(@Param("userIds") Collection<UUID> userIds);
+
+    // Every ancestor of the leader (the leader included) becomes an ancestor of the user, one level further up
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("insert into UserHierarchy (ancestorId, descendantId, depth) "
+            + "select h.ancestorId, u.id, h.depth + 1 from User u, UserHierarchy h "
+            + "where u.id in :userIds and h.descendantId = u.leader.id")
+    int insertPathsThroughLeader(@Param("userIds") Collection<UUID> userIds);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UserHierarchy h where h.ancestorId = :userId or h.descendantId = :userId")
+    int deleteUser(@Param("userId") UUID userId);
+
+    @Query("select count(h) > 0 from UserHierarchy h "
+            + "where h.ancestorId = :ancestorId and h.descendantId = :descendantId and h.depth > 0")
+    boolean isAncestor(@Param("ancestorId") UUID ancestorId, @Param("descendantId") UUID descendantId);
+
+    @Query("select h.ancestorId from UserHierarchy h where h.descendantId = :descendantId and h.depth > 0")
+    List<UUID> findAncestorIds(@Param("descendantId") UUID descendantId);
+
+    // Which of the given users are somewhere below the ancestor, in one query
+    @Query("select h.descendantId from UserHierarchy h "
+            + "where h.ancestorId = :ancestorId and h.depth > 0 and h.descendantId in :userIds")
+    List<UUID> findDescendantsAmong(@Param("ancestorId") UUID ancestorId, @Param("userIds") Collection<UUID> userIds);
+
+    @Query("select h.descendantId from UserHierarchy h where h.ancestorId = :ancestorId and h.depth > 0")
+    List<UUID> findDescendantIds(@Param("ancestorId") UUID ancestorId);
+}
@@ -1,15 +1,25 @@
 package com.test.user.repository;
 
 import com.test.user.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, UUID> {
+public interface UserRepository extends JpaRepository<User, UUID>, JpaSpecificationExecutor<User> {
     Optional<User> findByEmail(String email);
     
     List<User> findByLeaderId(UUID leaderId);
@@ -17,4 +27,31 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     List<User> findByRole(User.Role role);
     
     boolean existsByEmail(String email);
+
+    // Which of the given emails are already registered, in one query
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // Replaces the hash only if it is still the one that was verified
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password where u.id = :id and u.password = :previous")
+    int updatePassword(@Param("id") UUID id, @Param("previous") String previous, @Param("password") String password);
+
+    // Id, role and leader of every user, streamed for the in-memory user directory. The rows are narrow
+    // enough that a driver buffering the whole result (Connector/J ignores positive fetch sizes) is fine
+    @Query("select u.id as id, u.role as role, u.leader.id as leaderId from User u")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<DirectoryEntry> streamDirectoryEntries();
+
+    interface DirectoryEntry {
+        UUID getId();
+
+        User.Role getRole();
+
+        UUID getLeaderId();
+    }
 }
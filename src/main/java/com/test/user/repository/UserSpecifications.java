@@ -0,0 +1,43 @@
+package com.test.user.repository;
+
+import com.test.user.entity.User;
+import com.test.user.entity.UserHierarchy;
+import jakarta.persistence.criteria.CommonAbstractCriteria;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.UUID;
+
+/**
+ * Query predicates for {@link User}, combined by the service for keyset-paginated listings.
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> ledBy(UUID leaderId) {
+        return (root, query, cb) -> cb.equal(root.get("leader").get("id"), leaderId);
+    }
+
+    // Users anywhere below the given one, through the closure table's primary key
+    public static Specification<User> inSubtreeOf(UUID ancestorId) {
+        return (root, query, cb) -> root.get("id").in(descendantsOf(ancestorId, query, cb));
+    }
+
+    /**
+     * Ids of every user below the ancestor, as a subquery other predicates can test membership in.
+     */
+    static Subquery<UUID> descendantsOf(UUID ancestorId, CommonAbstractCriteria query, CriteriaBuilder cb) {
+        Subquery<UUID> descendants = query.subquery(UUID.class);
+        Root<UserHierarchy> path = descendants.from(UserHierarchy.class);
+        return descendants.select(path.get("descendantId"))
+                .where(cb.equal(path.get("ancestorId"), ancestorId), cb.greaterThan(path.get("depth"), 0));
+    }
+
+    public static Specification<User> hasRole(User.Role role) {
+        return (root, query, cb) -> cb.equal(root.get("role"), role);
+    }
+}
@@ -0,0 +1,25 @@
+package com.test.user.repository;
+
+import com.test.user.entity.UserTokenCutoff;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UserTokenCutoffRepository extends JpaRepository<UserTokenCutoff, UUID> {
+
+    // Cutoffs older than the access token lifetime no longer match any live token
+    List<UserTokenCutoff> findByRevokedBeforeAfter(LocalDateTime oldestLiveToken);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UserTokenCutoff c where c.revokedBefore < :oldestLiveToken")
+    int deleteExpired(@Param("oldestLiveToken") LocalDateTime oldestLiveToken);
+}
@@ -0,0 +1,265 @@
+package com.test.user.search;
+
+import com.test.user.entity.MailRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Term to requests index over subjects and bodies, ranked with BM25.
+ * <p>
+ * Requests are numbered in the order they are added, so every posting list is sorted by
+ * number and grows by appending. A query needs all its terms: it walks the shortest posting list
+ * and gallops through the others, so its cost follows the rarest term rather than the corpus.
+ * Subject words count {@link #SUBJECT_WEIGHT} times. Not thread-safe; {@link MailRequestSearchIndex}
+ * guards it.
+ */
+final class InvertedIndex {
+
+    static final int SUBJECT_WEIGHT = 3;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final MailRequest.Status[] STATUSES = MailRequest.Status.values();
+    private static final byte PENDING = (byte) MailRequest.Status.HD_REQ.ordinal();
+
+    // Best first: higher score, then the later request
+    static final Comparator<Hit> RANK = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(Comparator.comparingInt(Hit::doc).reversed());
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<UUID, Integer> docs = new HashMap<>();
+    private final Map<UUID, Integer> requesters = new HashMap<>();
+
+    // Per request number
+    private UUID[] ids = new UUID[1024];
+    private int[] requesterOf = new int[1024];
+    private byte[] statusOf = new byte[1024];
+    private int[] lengthOf = new int[1024];
+    // Epoch milliseconds, UTC; Long.MAX_VALUE when unknown
+    private long[] createdAtOf = new long[1024];
+    private int size;
+    private long totalLength;
+
+    /**
+     * Indexes the request unless it already is.
+     */
+    boolean add(UUID id, UUID requesterId, MailRequest.Status status, LocalDateTime createdAt, String subject,
+                String body) {
+        if (docs.containsKey(id)) {
+            return false;
+        }
+        int doc = size;
+        if (doc == ids.length) {
+            int capacity = doc * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            requesterOf = Arrays.copyOf(requesterOf, capacity);
+            statusOf = Arrays.copyOf(statusOf, capacity);
+            lengthOf = Arrays.copyOf(lengthOf, capacity);
+            createdAtOf = Arrays.copyOf(createdAtOf, capacity);
+        }
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        SearchTokenizer.forEachTerm(subject, term -> frequencies.merge(term, SUBJECT_WEIGHT, Integer::sum));
+        SearchTokenizer.forEachTerm(body, term -> frequencies.merge(term, 1, Integer::sum));
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new Postings()).add(doc, entry.getValue());
+            length += entry.getValue();
+        }
+
+        ids[doc] = id;
+        requesterOf[doc] = requesters.computeIfAbsent(requesterId, requester -> requesters.size());
+        statusOf[doc] = statusByte(status);
+        lengthOf[doc] = length;
+        createdAtOf[doc] = createdAt != null ? millis(createdAt) : Long.MAX_VALUE;
+        docs.put(id, doc);
+        totalLength += length;
+        size++;
+        return true;
+    }
+
+    void updateStatus(UUID id, MailRequest.Status status) {
+        Integer doc = docs.get(id);
+        if (doc != null) {
+            statusOf[doc] = statusByte(status);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int termCount() {
+        return postings.size();
+    }
+
+    UUID idOf(int doc) {
+        return ids[doc];
+    }
+
+    /**
+     * The request's number, or -1 if it is not indexed.
+     */
+    int docOf(UUID id) {
+        return docs.getOrDefault(id, -1);
+    }
+
+    /**
+     * Up to {@code limit} requests containing every term and inside the scope, best first,
+     * starting after the hit ranked at (afterScore, afterDoc).
+     */
+    List<Hit> search(List<String> terms, SearchScope scope, float afterScore, int afterDoc, int limit) {
+        if (terms.isEmpty() || size == 0) {
+            return List.of();
+        }
+        Postings[] lists = new Postings[terms.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.get(terms.get(i));
+            if (lists[i] == null) {
+                return List.of();
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        float[] idf = new float[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            idf[i] = (float) Math.log(1 + (size - lists[i].size + 0.5) / (lists[i].size + 0.5));
+        }
+        float averageLength = (float) totalLength / size;
+        BitSet visibleRequesters = requestersIn(scope);
+        boolean[] visibleStatuses = statusesIn(scope);
+        boolean pendingLimited = scope.pendingCreatedBefore() != null;
+        long pendingBefore = pendingLimited ? millis(scope.pendingCreatedBefore()) : Long.MAX_VALUE;
+
+        // The worst of the best hits so far on top
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, RANK.reversed());
+        int[] positions = new int[lists.length];
+        Postings rarest = lists[0];
+        candidates:
+        for (int i = 0; i < rarest.size; i++) {
+            int doc = rarest.docs[i];
+            if (visibleRequesters != null && !visibleRequesters.get(requesterOf[doc])) {
+                continue;
+            }
+            if (visibleStatuses != null && (statusOf[doc] < 0 || !visibleStatuses[statusOf[doc]])) {
+                continue;
+            }
+            if (pendingLimited && statusOf[doc] == PENDING && createdAtOf[doc] >= pendingBefore) {
+                continue;
+            }
+            float score = bm25(idf[0], rarest.frequency(i), lengthOf[doc], averageLength);
+            for (int list = 1; list < lists.length; list++) {
+                int position = lists[list].advance(positions[list], doc);
+                positions[list] = position;
+                if (position == lists[list].size || lists[list].docs[position] != doc) {
+                    continue candidates;
+                }
+                score += bm25(idf[list], lists[list].frequency(position), lengthOf[doc], averageLength);
+            }
+            if (score > afterScore || (score == afterScore && doc >= afterDoc)) {
+                continue;
+            }
+            Hit hit = new Hit(doc, score);
+            if (best.size() < limit) {
+                best.add(hit);
+            } else if (RANK.compare(hit, best.peek()) < 0) {
+                best.poll();
+                best.add(hit);
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(RANK);
+        return hits;
+    }
+
+    private static float bm25(float idf, int frequency, int length, float averageLength) {
+        return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    private BitSet requestersIn(SearchScope scope) {
+        if (scope.requesters() == null) {
+            return null;
+        }
+        BitSet visible = new BitSet(requesters.size());
+        for (UUID requester : scope.requesters()) {
+            Integer index = requesters.get(requester);
+            if (index != null) {
+                visible.set(index);
+            }
+        }
+        return visible;
+    }
+
+    private static boolean[] statusesIn(SearchScope scope) {
+        if (scope.statuses() == null) {
+            return null;
+        }
+        boolean[] visible = new boolean[STATUSES.length];
+        scope.statuses().forEach(status -> visible[status.ordinal()] = true);
+        return visible;
+    }
+
+    private static long millis(LocalDateTime at) {
+        return at.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static byte statusByte(MailRequest.Status status) {
+        return status != null ? (byte) status.ordinal() : -1;
+    }
+
+    record Hit(int doc, float score) {
+    }
+
+    /**
+     * Request numbers containing one term, ascending, with the term's weighted frequency in each.
+     */
+    private static final class Postings {
+
+        int[] docs = new int[4];
+        // Capped at 255, stored unsigned
+        byte[] frequencies = new byte[4];
+        int size;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = (byte) Math.min(frequency, 255);
+            size++;
+        }
+
+        int frequency(int position) {
+            return frequencies[position] & 0xff;
+        }
+
+        /**
+         * The first position at or after {@code from} holding a number of at least {@code doc}, or
+         * {@code size}. Gallops, then searches the bracketed range.
+         */
+        int advance(int from, int doc) {
+            if (from >= size || docs[from] >= doc) {
+                return from;
+            }
+            int low = from;
+            int step = 1;
+            while (low + step < size && docs[low + step] < doc) {
+                low += step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(docs, low + 1, Math.min(low + step, size), doc);
+            return found >= 0 ? found : -found - 1;
+        }
+    }
+}
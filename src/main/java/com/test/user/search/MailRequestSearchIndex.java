@@ -0,0 +1,225 @@
+package com.test.user.search;
+
+import com.test.user.entity.MailRequest;
+import com.test.user.event.MailRequestCreatedEvent;
+import com.test.user.event.MailRequestReviewedEvent;
+import com.test.user.exception.InvalidCursorException;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search over mail request subjects and bodies, from an in-memory {@link InvertedIndex}.
+ * <p>
+ * Committed creates add the request and reviews update its status, so searches see writes as
+ * soon as they commit. The index is rebuilt from the database at startup and periodically, which
+ * picks up writes made by other instances; events arriving during a rebuild are replayed onto the
+ * new index before it replaces the old one. Searches share a read lock, updates take the write lock
+ * for the few microseconds of one request.
+ * <p>
+ * Results are ranked, and a page's cursor is the score and id of its last hit. Pages stay
+ * consistent while the index does not change much between them; a large rebuild can shift scores.
+ */
+@Component
+public class MailRequestSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(MailRequestSearchIndex.class);
+
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final String SEPARATOR = "|";
+
+    // Every request's searchable text, oldest first
+    private static final String DOCUMENTS_QUERY = "select m.id, m.user.id, m.status, m.createdAt, m.subject, m.body "
+            + "from MailRequest m order by m.createdAt, m.id";
+
+    private final EntityManager entityManager;
+    private final int fetchSize;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock
+    private InvertedIndex index = new InvertedIndex();
+    // Events seen while a rebuild reads the database, null otherwise; guarded by lock
+    private List<Object> missedByRebuild;
+
+    public MailRequestSearchIndex(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                  @Value("${jdbc.streaming-fetch-size:500}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.fetchSize = fetchSize;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${search.rebuild-interval:PT30M}",
+            initialDelayString = "${search.rebuild-interval:PT30M}")
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            missedByRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        InvertedIndex fresh = new InvertedIndex();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> documents = streamDocuments()) {
+                    documents.forEach(row -> fresh.add((UUID) row[0], (UUID) row[1], (MailRequest.Status) row[2],
+                            (LocalDateTime) row[3], (String) row[4], (String) row[5]));
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                missedByRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            missedByRebuild.forEach(event -> apply(fresh, event));
+            missedByRebuild = null;
+            index = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Search index holds {} requests and {} terms", fresh.size(), fresh.termCount());
+    }
+
+    @TransactionalEventListener
+    public void onCreated(MailRequestCreatedEvent event) {
+        update(event);
+    }
+
+    @TransactionalEventListener
+    public void onReviewed(MailRequestReviewedEvent event) {
+        update(event);
+    }
+
+    /**
+     * Requests in the scope containing every word of the query, best first. A query without
+     * searchable words finds nothing.
+     */
+    public SearchResult search(String query, SearchScope scope, String cursor, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(SearchTokenizer.terms(query)));
+        if (terms.size() > MAX_QUERY_TERMS) {
+            terms = terms.subList(0, MAX_QUERY_TERMS);
+        }
+        lock.readLock().lock();
+        try {
+            float afterScore = Float.POSITIVE_INFINITY;
+            int afterDoc = Integer.MAX_VALUE;
+            if (cursor != null && !cursor.isBlank()) {
+                String decoded = decode(cursor);
+                int separator = decoded.indexOf(SEPARATOR);
+                try {
+                    afterScore = Float.intBitsToFloat(Integer.parseUnsignedInt(decoded.substring(0, separator), 16));
+                    // A request missing since the last page: only strictly lower scores follow
+                    afterDoc = Math.max(index.docOf(UUID.fromString(decoded.substring(separator + 1))), 0);
+                } catch (RuntimeException e) {
+                    throw new InvalidCursorException("Malformed cursor");
+                }
+            }
+
+            // One extra to tell whether there is a next page
+            List<InvertedIndex.Hit> hits = index.search(terms, scope, afterScore, afterDoc, limit + 1);
+            List<SearchHit> page = new ArrayList<>(Math.min(hits.size(), limit));
+            for (int i = 0; i < hits.size() && i < limit; i++) {
+                page.add(new SearchHit(index.idOf(hits.get(i).doc()), hits.get(i).score()));
+            }
+            String next = null;
+            if (hits.size() > limit) {
+                SearchHit last = page.get(page.size() - 1);
+                next = encode(last.score(), last.requestId());
+            }
+            return new SearchResult(page, next);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Forward-only read; the fetch size keeps the driver from buffering the whole table
+    private Stream<Object[]> streamDocuments() {
+        return entityManager.createQuery(DOCUMENTS_QUERY, Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_CACHEABLE, false)
+                .getResultStream();
+    }
+
+    private void update(Object event) {
+        lock.writeLock().lock();
+        try {
+            apply(index, event);
+            if (missedByRebuild != null) {
+                missedByRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(InvertedIndex index, Object event) {
+        if (event instanceof MailRequestCreatedEvent created) {
+            index.add(created.requestId(), created.userId(), created.status(), created.createdAt(),
+                    created.subject(), created.body());
+        } else if (event instanceof MailRequestReviewedEvent reviewed) {
+            index.updateStatus(reviewed.requestId(), reviewed.status());
+        }
+    }
+
+    private static String encode(float score, UUID requestId) {
+        String raw = Integer.toHexString(Float.floatToIntBits(score)) + SEPARATOR + requestId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+    }
+
+    /**
+     * One page of hits, with the cursor for the next one or null on the last.
+     */
+    public record SearchResult(List<SearchHit> hits, String next) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.test.user.search;
+
+import java.util.UUID;
+
+/**
+ * A matching request and its relevance; higher scores rank first.
+ */
+public record SearchHit(UUID requestId, float score) {
+}
@@ -0,0 +1,24 @@
+package com.test.user.search;
+
+import com.test.user.entity.MailRequest;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The requests a caller may find: those of the given requesters (null for everyone's) in the
+ * given statuses (null for any). Requests still pending review ({@code HD_REQ}) only count if they
+ * were created before {@code pendingCreatedBefore}, when it is set, which is how a role sees
+ * pending requests only once they have escalated to it.
+ */
+public record SearchScope(Set<UUID> requesters, Set<MailRequest.Status> statuses, LocalDateTime pendingCreatedBefore) {
+
+    public SearchScope(Set<UUID> requesters, Set<MailRequest.Status> statuses) {
+        this(requesters, statuses, null);
+    }
+
+    public static SearchScope everything() {
+        return new SearchScope(null, null);
+    }
+}
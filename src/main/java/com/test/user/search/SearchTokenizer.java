@@ -0,0 +1,58 @@
+package com.test.user.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Splits text into search terms: runs of letters and digits, lower-cased, without the most
+ * common English words. Documents and queries go through the same steps, so they meet on the
+ * same terms; there is no stemming.
+ */
+final class SearchTokenizer {
+
+    static final int MIN_LENGTH = 2;
+    static final int MAX_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of", "on", "or",
+            "that", "the", "this", "to", "was", "with");
+
+    private SearchTokenizer() {
+    }
+
+    static void forEachTerm(String text, Consumer<String> consumer) {
+        if (text == null) {
+            return;
+        }
+        StringBuilder term = new StringBuilder(MAX_LENGTH);
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (!Character.isLetterOrDigit(codePoint)) {
+                emit(term, consumer);
+            } else if (term.length() < MAX_LENGTH) {
+                // Longer words are cut, in documents and queries alike
+                term.appendCodePoint(Character.toLowerCase(codePoint));
+            }
+        }
+        emit(term, consumer);
+    }
+
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        forEachTerm(text, terms::add);
+        return terms;
+    }
+
+    private static void emit(StringBuilder term, Consumer<String> consumer) {
+        if (term.length() >= MIN_LENGTH) {
+            String candidate = term.toString();
+            if (!STOP_WORDS.contains(candidate)) {
+                consumer.accept(candidate);
+            }
+        }
+        term.setLength(0);
+    }
+}
@@ -1,28 +1,68 @@
 package com.test.user.security;
 
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // When true the authentication is built from the verified claims alone (no DB lookup)
+    @Value("${jwt.claims-only-authentication:true}")
+    private boolean claimsOnlyAuthentication;
+
+    private Timer validVerifications;
+    private Timer invalidVerifications;
+    private Counter authenticated;
+    private Counter revoked;
+    private Counter rejected;
+
+    @PostConstruct
+    void initMetrics() {
+        validVerifications = verificationTimer("valid");
+        invalidVerifications = verificationTimer("invalid");
+        authenticated = authenticationCounter("authenticated");
+        revoked = authenticationCounter("revoked");
+        rejected = authenticationCounter("rejected");
+    }
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
         String path = request.getServletPath();
@@ -35,29 +75,64 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String email = null;
-        String jwt = null;
-
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+        if (authorizationHeader != null && authorizationHeader.startsWith(BEARER_PREFIX)
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwt = authorizationHeader.substring(BEARER_PREFIX.length());
             try {
-                email = jwtTokenUtil.extractEmail(jwt);
-            } catch (Exception e) {
-                logger.error("JWT token validation failed", e);
-            }
-        }
+                JwtPrincipal principal = verifiedTokenCache.get(jwt, this::verify);
+                // Checked after the cache, so a revocation applies to already cached tokens too
+                if (tokenRevocationList.isRevoked(principal)) {
+                    revoked.increment();
+                    logger.debug("Rejected revoked token " + principal.getTokenId());
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+                Collection<? extends GrantedAuthority> authorities = principal.getAuthorities();
 
-        if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(email);
+                if (!claimsOnlyAuthentication) {
+                    // Legacy mode: the user must still exist and its current role wins
+                    UserDetails userDetails = userDetailsService.loadUserByUsername(principal.getEmail());
+                    authorities = userDetails.getAuthorities();
+                }
 
-            if (jwtTokenUtil.validateToken(jwt, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
+                        principal, null, authorities);
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                authenticated.increment();
+            } catch (JwtException | IllegalArgumentException | UsernameNotFoundException e) {
+                rejected.increment();
+                logger.error("JWT token validation failed", e);
             }
         }
 
         filterChain.doFilter(request, response);
     }
+
+    // Only cache misses get here, so the timer shows what a signature check really costs
+    private JwtPrincipal verify(String token) {
+        long start = System.nanoTime();
+        try {
+            JwtPrincipal principal = jwtTokenUtil.verify(token);
+            validVerifications.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return principal;
+        } catch (RuntimeException e) {
+            invalidVerifications.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer verificationTimer(String outcome) {
+        return Timer.builder("auth.jwt.verification")
+                .description("Signature and claims checks of tokens not yet in the verified token cache")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Counter authenticationCounter(String outcome) {
+        return Counter.builder("auth.jwt.authentications")
+                .description("Requests carrying a bearer token, by how the token was handled")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 }
@@ -0,0 +1,42 @@
+package com.test.user.security;
+
+import com.test.user.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Authenticated caller built from the verified JWT claims. Injected into controllers
+ * with {@code @AuthenticationPrincipal} so they never have to re-parse the token.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class JwtPrincipal implements Principal {
+
+    private final UUID userId;
+    private final String email;
+    private final User.Role role;
+    private final UUID leaderId;
+    // The jti claim, absent on tokens issued before it was introduced
+    private final UUID tokenId;
+    private final Instant issuedAt;
+    private final Instant expiresAt;
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+}
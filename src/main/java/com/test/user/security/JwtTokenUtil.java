@@ -2,14 +2,26 @@ package com.test.user.security;
 
 import com.test.user.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -19,39 +31,159 @@ import java.util.function.Function;
 @Component
 public class JwtTokenUtil {
 
+    // iat has whole seconds; revocation cutoffs compare issue times to the millisecond
+    private static final String ISSUED_AT_MILLIS = "iatMillis";
+
     @Value("${jwt.secret:defaultSecretKeyWhichShouldBeChangedInProduction}")
     private String secret;
 
-    @Value("${jwt.expiration:86400000}") // 24 hours in milliseconds
+    // Access tokens are short-lived; sessions are extended through rotating refresh tokens
+    @Value("${jwt.expiration:900000}") // 15 minutes in milliseconds
     private long expiration;
 
-    private Key getSigningKey() {
-        byte[] keyBytes = secret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Tokens without a kid were signed with the shared HS256 secret before the switch to ES256. They
+    // are accepted until this instant (the old token lifetime after the switch), never when unset.
+    @Value("${jwt.accept-legacy-hs256-until:}")
+    private String acceptLegacyTokensUntilSetting;
+
+    @Autowired
+    private SigningKeyRing signingKeyRing;
+
+    // Both are immutable and thread-safe, so build them once instead of per call
+    private Key legacyKey;
+    private JwtParser jwtParser;
+    private Instant acceptLegacyTokensUntil;
+
+    @PostConstruct
+    void init() {
+        if (!acceptLegacyTokensUntilSetting.isBlank()) {
+            acceptLegacyTokensUntil = Instant.parse(acceptLegacyTokensUntilSetting);
+        }
+        legacyKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveVerificationKey(header);
+                    }
+                })
+                .build();
+    }
+
+    private Key resolveVerificationKey(JwsHeader<?> header) {
+        String kid = header.getKeyId();
+        if (kid == null) {
+            if (acceptLegacyTokensUntil == null || !Instant.now().isBefore(acceptLegacyTokensUntil)
+                    || !SignatureAlgorithm.HS256.getValue().equals(header.getAlgorithm())) {
+                throw new UnsupportedJwtException("Token has no key id");
+            }
+            return legacyKey;
+        }
+        if (!SigningKeyRing.ALGORITHM.equals(header.getAlgorithm())) {
+            throw new UnsupportedJwtException("Unexpected token algorithm " + header.getAlgorithm());
+        }
+        Key key = signingKeyRing.verificationKey(kid);
+        if (key == null) {
+            throw new SignatureException("Unknown signing key " + kid);
+        }
+        return key;
     }
 
     public String generateToken(User user) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", user.getRole().name());
         claims.put("userId", user.getId().toString());
-        
+
         if (user.getLeader() != null) {
             claims.put("leaderId", user.getLeader().getId().toString());
         }
-        
+
         return createToken(claims, user.getEmail());
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
+        SigningKeyRing.ActiveKey signingKey = signingKeyRing.activeKey();
+        Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.kid())
                 .setClaims(claims)
+                .claim(ISSUED_AT_MILLIS, issuedAt.toEpochMilli())
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setIssuedAt(Date.from(issuedAt))
+                .setExpiration(Date.from(issuedAt.plusMillis(expiration)))
+                .signWith(signingKey.privateKey(), SignatureAlgorithm.ES256)
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiry of the token and returns its claims.
+     * Throws {@link io.jsonwebtoken.JwtException} if the token is not valid.
+     */
+    public Claims parseClaims(String token) {
+        return jwtParser.parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * Builds the request principal from already verified claims, without touching the database.
+     * Throws {@link MalformedJwtException} if a claim the principal needs is missing or malformed.
+     */
+    public JwtPrincipal toPrincipal(Claims claims) {
+        if (claims.getIssuedAt() == null || claims.getExpiration() == null) {
+            throw new MalformedJwtException("Token has no iat or exp claim");
+        }
+        String leaderId = claims.get("leaderId", String.class);
+        return new JwtPrincipal(
+                uuidClaim(requiredClaim(claims, "userId"), "userId"),
+                claims.getSubject(),
+                roleClaim(requiredClaim(claims, "role")),
+                leaderId != null ? uuidClaim(leaderId, "leaderId") : null,
+                claims.getId() != null ? uuidClaim(claims.getId(), "jti") : null,
+                issuedAt(claims),
+                claims.getExpiration().toInstant());
+    }
+
+    // Tokens issued before the millisecond claim only have iat, rounded down to the second
+    private static Instant issuedAt(Claims claims) {
+        Long millis = claims.get(ISSUED_AT_MILLIS, Long.class);
+        return millis != null ? Instant.ofEpochMilli(millis) : claims.getIssuedAt().toInstant();
+    }
+
+    private static String requiredClaim(Claims claims, String name) {
+        String value = claims.get(name, String.class);
+        if (value == null) {
+            throw new MalformedJwtException("Token has no " + name + " claim");
+        }
+        return value;
+    }
+
+    private static UUID uuidClaim(String value, String name) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("Malformed " + name + " claim", e);
+        }
+    }
+
+    private static User.Role roleClaim(String value) {
+        try {
+            return User.Role.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("Unknown role " + value, e);
+        }
+    }
+
+    public Duration getAccessTokenLifetime() {
+        return Duration.ofMillis(expiration);
+    }
+
+    /**
+     * Verifies the token and returns its principal in one step.
+     */
+    public JwtPrincipal verify(String token) {
+        return toPrincipal(parseClaims(token));
+    }
+
     public String extractEmail(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -76,19 +208,12 @@ public class JwtTokenUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return parseClaims(token);
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
+        // The parser already rejects expired tokens, so a single parse is enough
         final String email = extractEmail(token);
-        return (email.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return email.equals(userDetails.getUsername());
     }
 }
@@ -0,0 +1,102 @@
+package com.test.user.security;
+
+import com.test.user.exception.LoginThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs login password checks off the request threads, on a CPU-sized pool with a short queue.
+ * When the queue is full the login is turned away with a retry hint instead of waiting, so a
+ * login storm can't take every core from the rest of the API.
+ * <p>
+ * Hashing time is timed on the pool threads, so {@code auth.password.hashing} is the BCrypt cost
+ * alone; the time spent queued shows as the difference to the login's request latency.
+ */
+@Component
+public class PasswordVerificationPool {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long retryAfterSeconds;
+    private final Timer matchTimer;
+    private final Timer encodeTimer;
+    private final Counter throttled;
+
+    public PasswordVerificationPool(PasswordEncoder passwordEncoder,
+                                    @Value("${login.hashing.threads:0}") int threads,
+                                    @Value("${login.hashing.max-queue-depth:64}") int maxQueueDepth,
+                                    @Value("${login.hashing.retry-after-seconds:1}") long retryAfterSeconds,
+                                    MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.matchTimer = hashingTimer(meterRegistry, "matches");
+        this.encodeTimer = hashingTimer(meterRegistry, "encode");
+        this.throttled = Counter.builder("auth.password.throttled")
+                .description("Logins turned away because the password check queue was full")
+                .register(meterRegistry);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueueDepth),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-verification-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("auth.password.queue", executor, pool -> pool.getQueue().size())
+                .description("Password checks waiting for a pool thread")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(() -> matchTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            throttled.increment();
+            throw new LoginThrottledException("Too many concurrent logins, retry shortly", retryAfterSeconds);
+        }
+    }
+
+    private static Timer hashingTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("auth.password.hashing")
+                .description("BCrypt time of login password checks and rehashes")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,251 @@
+package com.test.user.security;
+
+import com.test.user.entity.SigningKey;
+import com.test.user.repository.SigningKeyRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ES256 key ring shared by all instances through the signing_keys table.
+ * <p>
+ * Public keys are cached by kid, so verifying a token is a map lookup plus the signature check.
+ * A new key is published as soon as it is created but only signs from its activation time, so
+ * every instance (and every JWKS consumer) knows it before the first token signed with it shows
+ * up; the key it replaces keeps verifying until the last token it signed has expired.
+ * <p>
+ * Keys are numbered by generation under a unique index, so when several instances rotate at once
+ * only one of them creates the next key; the others see the conflict and load the winner's key.
+ */
+@Component
+public class SigningKeyRing {
+
+    private static final Logger log = LoggerFactory.getLogger(SigningKeyRing.class);
+
+    public static final String ALGORITHM = "ES256";
+
+    private static final int GCM_IV_BYTES = 12;
+    private static final int GCM_TAG_BITS = 128;
+
+    // Unknown kids trigger at most one reload per interval, so forged kids can't hammer the database
+    private static final long MIN_RELOAD_INTERVAL_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final SigningKeyRepository signingKeyRepository;
+    private final SecretKeySpec keyEncryptionKey;
+    private final Duration rotationInterval;
+    private final Duration activationDelay;
+    private final Duration accessTokenLifetime;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private volatile Map<String, ECPublicKey> verificationKeys = Map.of();
+    private volatile ActiveKey activeKey;
+    private final AtomicLong lastReload = new AtomicLong(System.nanoTime() - MIN_RELOAD_INTERVAL_NANOS);
+
+    public SigningKeyRing(SigningKeyRepository signingKeyRepository,
+                          @Value("${jwt.secret:defaultSecretKeyWhichShouldBeChangedInProduction}") String secret,
+                          @Value("${jwt.signing.rotation-interval:30d}") Duration rotationInterval,
+                          @Value("${jwt.signing.activation-delay:2m}") Duration activationDelay,
+                          @Value("${jwt.expiration:900000}") long accessTokenLifetimeMillis) {
+        this.signingKeyRepository = signingKeyRepository;
+        this.keyEncryptionKey = new SecretKeySpec(sha256(secret.getBytes(StandardCharsets.UTF_8)), "AES");
+        this.rotationInterval = rotationInterval;
+        this.activationDelay = activationDelay;
+        this.accessTokenLifetime = Duration.ofMillis(accessTokenLifetimeMillis);
+    }
+
+    @PostConstruct
+    public void initialize() {
+        reload();
+        if (activeKey == null) {
+            // First start: nobody can hold a token yet, so the key may sign right away
+            createKey(LocalDateTime.now(), signingKeyRepository.findLatestGeneration() + 1);
+            reload();
+        }
+    }
+
+    public ActiveKey activeKey() {
+        ActiveKey key = activeKey;
+        if (key == null) {
+            throw new IllegalStateException("No active signing key");
+        }
+        return key;
+    }
+
+    /**
+     * The public key for a kid, or null when it is unknown even after consulting the database.
+     */
+    public ECPublicKey verificationKey(String kid) {
+        ECPublicKey key = verificationKeys.get(kid);
+        if (key == null && reloadAllowed()) {
+            reload();
+            key = verificationKeys.get(kid);
+        }
+        return key;
+    }
+
+    // Every key that may sign or still verifies, for the JWKS document
+    public Map<String, ECPublicKey> publishedKeys() {
+        return verificationKeys;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.signing.resync-interval:PT30S}",
+            initialDelayString = "${jwt.signing.resync-interval:PT30S}")
+    public synchronized void reload() {
+        lastReload.set(System.nanoTime());
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, ECPublicKey> keys = new HashMap<>();
+        SigningKey newestActive = null;
+        for (SigningKey key : signingKeyRepository.findUnretired(now)) {
+            keys.put(key.getKid(), decodePublicKey(key.getPublicKey()));
+            if (!key.getActivatesAt().isAfter(now)
+                    && (newestActive == null || key.getActivatesAt().isAfter(newestActive.getActivatesAt()))) {
+                newestActive = key;
+            }
+        }
+        verificationKeys = Map.copyOf(keys);
+        if (newestActive != null && (activeKey == null || !activeKey.kid().equals(newestActive.getKid()))) {
+            activeKey = new ActiveKey(newestActive.getKid(), decryptPrivateKey(newestActive.getPrivateKey()));
+            log.info("Signing tokens with key {}", newestActive.getKid());
+        }
+    }
+
+    /**
+     * Creates the next key once the newest one is older than the rotation interval. The new key
+     * signs after the activation delay; the others retire once their last token has expired.
+     */
+    @Scheduled(fixedDelayString = "${jwt.signing.rotation-check-interval:PT1H}")
+    public synchronized void rotateIfDue() {
+        // Read before the keys: a rotation committed in between shows up as a key that is not due
+        long generation = signingKeyRepository.findLatestGeneration();
+        LocalDateTime now = LocalDateTime.now();
+        Optional<SigningKey> newest = signingKeyRepository.findUnretired(now).stream()
+                .max(Comparator.comparing(SigningKey::getCreatedAt));
+        if (newest.isPresent() && newest.get().getCreatedAt().plus(rotationInterval).isAfter(now)) {
+            return;
+        }
+        rotate(generation + 1);
+    }
+
+    /**
+     * Creates the next key now, returning its kid, or empty when another instance created that
+     * generation first.
+     */
+    public synchronized Optional<String> rotate() {
+        return rotate(signingKeyRepository.findLatestGeneration() + 1);
+    }
+
+    // Package-private so tests can replay two instances reading the same latest generation
+    Optional<String> rotate(long generation) {
+        LocalDateTime activatesAt = LocalDateTime.now().plus(activationDelay);
+        Optional<String> kid = createKey(activatesAt, generation);
+        if (kid.isPresent()) {
+            signingKeyRepository.retireBefore(generation, activatesAt.plus(accessTokenLifetime));
+            signingKeyRepository.deleteRetired(LocalDateTime.now());
+        }
+        reload();
+        return kid;
+    }
+
+    private Optional<String> createKey(LocalDateTime activatesAt, long generation) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"), secureRandom);
+            KeyPair keyPair = generator.generateKeyPair();
+
+            SigningKey key = new SigningKey();
+            key.setKid(UUID.randomUUID().toString());
+            key.setAlgorithm(ALGORITHM);
+            key.setPublicKey(keyPair.getPublic().getEncoded());
+            key.setPrivateKey(encrypt(keyPair.getPrivate().getEncoded()));
+            key.setActivatesAt(activatesAt);
+            key.setGeneration(generation);
+            signingKeyRepository.saveAndFlush(key);
+            log.info("Created signing key {} of generation {}, active from {}", key.getKid(), generation, activatesAt);
+            return Optional.of(key.getKid());
+        } catch (DataIntegrityViolationException e) {
+            log.info("Signing key generation {} was created by another instance", generation);
+            return Optional.empty();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not generate a signing key", e);
+        }
+    }
+
+    private boolean reloadAllowed() {
+        long last = lastReload.get();
+        long now = System.nanoTime();
+        return now - last >= MIN_RELOAD_INTERVAL_NANOS && lastReload.compareAndSet(last, now);
+    }
+
+    private static ECPublicKey decodePublicKey(byte[] encoded) {
+        try {
+            return (ECPublicKey) KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(encoded));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid public signing key", e);
+        }
+    }
+
+    private PrivateKey decryptPrivateKey(byte[] stored) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(stored);
+            byte[] iv = new byte[GCM_IV_BYTES];
+            buffer.get(iv);
+            byte[] ciphertext = new byte[buffer.remaining()];
+            buffer.get(ciphertext);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            byte[] encoded = cipher.doFinal(ciphertext);
+            return KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(encoded));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not decrypt the signing key; was jwt.secret changed?", e);
+        }
+    }
+
+    private byte[] encrypt(byte[] plaintext) throws GeneralSecurityException {
+        byte[] iv = new byte[GCM_IV_BYTES];
+        secureRandom.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+        byte[] ciphertext = cipher.doFinal(plaintext);
+        return ByteBuffer.allocate(iv.length + ciphertext.length).put(iv).put(ciphertext).array();
+    }
+
+    private static byte[] sha256(byte[] input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public record ActiveKey(String kid, PrivateKey privateKey) {
+    }
+}
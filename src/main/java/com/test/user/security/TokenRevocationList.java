@@ -0,0 +1,184 @@
+package com.test.user.security;
+
+import com.test.user.entity.RevokedToken;
+import com.test.user.entity.UserTokenCutoff;
+import com.test.user.repository.RevokedTokenRepository;
+import com.test.user.repository.UserTokenCutoffRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Revoked access tokens, checked on every authenticated request after the verified token cache.
+ * <p>
+ * Single tokens are revoked by jti and looked up through a Bloom filter first, so the common
+ * case (not revoked) is a few bit tests; a filter hit is confirmed against the exact set.
+ * Revoking all of a user's tokens stores a cutoff instead: tokens issued before it are rejected.
+ * Both are persisted and reloaded at startup and on the resync interval, which also picks up
+ * revocations made by other instances and drops entries whose tokens have expired anyway.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final UserTokenCutoffRepository userTokenCutoffRepository;
+    private final JwtTokenUtil jwtTokenUtil;
+    private final int bloomBits;
+
+    // Writes are rare and serialized on this; reads are lock-free
+    private final Map<UUID, Instant> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<UUID, Instant> userCutoffs = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter;
+
+    public TokenRevocationList(RevokedTokenRepository revokedTokenRepository,
+                               UserTokenCutoffRepository userTokenCutoffRepository,
+                               JwtTokenUtil jwtTokenUtil,
+                               @Value("${jwt.revocation.bloom-bits:1048576}") int bloomBits) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.userTokenCutoffRepository = userTokenCutoffRepository;
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.bloomBits = bloomBits;
+        this.bloomFilter = new BloomFilter(bloomBits);
+    }
+
+    public boolean isRevoked(JwtPrincipal principal) {
+        UUID tokenId = principal.getTokenId();
+        if (tokenId != null && bloomFilter.mightContain(tokenId) && revokedTokens.containsKey(tokenId)) {
+            return true;
+        }
+        if (userCutoffs.isEmpty()) {
+            return false;
+        }
+        Instant cutoff = userCutoffs.get(principal.getUserId());
+        // Both have millisecond precision, and a token from the cutoff's own millisecond counts as revoked
+        return cutoff != null && !principal.getIssuedAt().isAfter(cutoff);
+    }
+
+    /**
+     * Revokes one access token until its own expiry.
+     */
+    public synchronized void revokeToken(UUID tokenId, Instant expiresAt) {
+        revokedTokenRepository.save(new RevokedToken(tokenId, toLocal(expiresAt)));
+        revokedTokens.put(tokenId, expiresAt);
+        bloomFilter.add(tokenId);
+    }
+
+    /**
+     * Revokes every access token issued to the user so far (logout everywhere, deletion, role change).
+     */
+    public synchronized void revokeAllForUser(UUID userId) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        userTokenCutoffRepository.save(new UserTokenCutoff(userId, toLocal(now)));
+        userCutoffs.put(userId, now);
+    }
+
+    public int size() {
+        return revokedTokens.size() + userCutoffs.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jwt.revocation.resync-interval:PT30S}",
+            initialDelayString = "${jwt.revocation.resync-interval:PT30S}")
+    public synchronized void reload() {
+        Instant now = Instant.now();
+        LocalDateTime localNow = toLocal(now);
+        LocalDateTime oldestLiveToken = toLocal(now.minus(jwtTokenUtil.getAccessTokenLifetime()));
+
+        revokedTokenRepository.deleteExpired(localNow);
+        userTokenCutoffRepository.deleteExpired(oldestLiveToken);
+
+        // Revocations are never undone, so merging the stored ones into memory is enough
+        for (RevokedToken revoked : revokedTokenRepository.findByExpiresAtAfter(localNow)) {
+            revokedTokens.put(revoked.getJti(), toInstant(revoked.getExpiresAt()));
+        }
+        for (UserTokenCutoff cutoff : userTokenCutoffRepository.findByRevokedBeforeAfter(oldestLiveToken)) {
+            userCutoffs.merge(cutoff.getUserId(), toInstant(cutoff.getRevokedBefore()),
+                    (current, stored) -> current.isAfter(stored) ? current : stored);
+        }
+        revokedTokens.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+        userCutoffs.values().removeIf(cutoff -> cutoff.isBefore(now.minus(jwtTokenUtil.getAccessTokenLifetime())));
+
+        // Bloom filters can't forget, so rebuild from what is still revoked
+        BloomFilter rebuilt = new BloomFilter(bloomBits);
+        revokedTokens.keySet().forEach(rebuilt::add);
+        bloomFilter = rebuilt;
+        log.debug("Token revocation list holds {} tokens and {} user cutoffs", revokedTokens.size(), userCutoffs.size());
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    /**
+     * Bloom filter over UUIDs. Probe positions come from the two mixed halves of the id by
+     * double hashing; mixing spreads the fixed version and variant bits of random UUIDs.
+     */
+    private static final class BloomFilter {
+
+        private static final int PROBES = 4;
+
+        private final AtomicLongArray words;
+        private final long mask;
+
+        BloomFilter(int bits) {
+            int size = Integer.highestOneBit(Math.max(bits, Long.SIZE));
+            this.words = new AtomicLongArray(size / Long.SIZE);
+            this.mask = size - 1;
+        }
+
+        void add(UUID id) {
+            long h1 = mix(id.getMostSignificantBits());
+            long h2 = mix(id.getLeastSignificantBits()) | 1;
+            for (int i = 0; i < PROBES; i++) {
+                long bit = (h1 + i * h2) & mask;
+                int word = (int) (bit >>> 6);
+                long bitMask = 1L << bit;
+                long current;
+                do {
+                    current = words.get(word);
+                } while ((current & bitMask) == 0 && !words.compareAndSet(word, current, current | bitMask));
+            }
+        }
+
+        boolean mightContain(UUID id) {
+            long h1 = mix(id.getMostSignificantBits());
+            long h2 = mix(id.getLeastSignificantBits()) | 1;
+            for (int i = 0; i < PROBES; i++) {
+                long bit = (h1 + i * h2) & mask;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // MurmurHash3 fmix64
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.test.user.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of already verified tokens, keyed by the SHA-256 digest of the raw token so
+ * the cache never holds usable credentials. Entries never outlive the token's {@code exp}
+ * claim, so a hit can safely skip signature verification.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final boolean enabled;
+    private final Cache<TokenDigest, JwtPrincipal> cache;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.enabled:true}") boolean enabled,
+                              @Value("${jwt.cache.maximum-size:10000}") long maximumSize) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the principal of a previously verified token, or verifies it with the given
+     * function and caches the result. Verification failures are propagated and never cached.
+     */
+    public JwtPrincipal get(String token, Function<String, JwtPrincipal> verifier) {
+        if (!enabled) {
+            return verifier.apply(token);
+        }
+        return cache.get(digest(token), key -> verifier.apply(token));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Runs pending expiry and size eviction now instead of on a later access.
+     */
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Hit, miss and eviction counts since startup.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static TokenDigest digest(String token) {
+        MessageDigest sha256 = SHA_256.get();
+        ByteBuffer hash = ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        return new TokenDigest(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+    }
+
+    private record TokenDigest(long h0, long h1, long h2, long h3) {
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<TokenDigest, JwtPrincipal> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, JwtPrincipal principal, long currentTime) {
+            // Tokens without exp never get a principal, see JwtTokenUtil.toPrincipal
+            return Math.max(0, Duration.between(Instant.now(), principal.getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, JwtPrincipal principal, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(key, principal, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, JwtPrincipal principal, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
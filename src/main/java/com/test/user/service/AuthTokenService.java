@@ -0,0 +1,16 @@
+package com.test.user.service;
+
+import com.test.user.dto.AuthResponse;
+import com.test.user.entity.User;
+
+public interface AuthTokenService {
+
+    // A fresh access token and the first refresh token of a new rotation family
+    AuthResponse issueTokens(User user);
+
+    // Throws BadCredentialsException for an unknown, expired, revoked or reused refresh token
+    AuthResponse refresh(String refreshToken);
+
+    // Either token may be null
+    void logout(String accessToken, String refreshToken);
+}
@@ -0,0 +1,10 @@
+package com.test.user.service;
+
+import com.test.user.dto.AuthRequest;
+import com.test.user.dto.AuthResponse;
+
+public interface LoginService {
+
+    // Throws BadCredentialsException for an unknown email or a wrong password
+    AuthResponse login(AuthRequest request);
+}
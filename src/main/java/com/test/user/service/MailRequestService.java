@@ -1,8 +1,17 @@
 package com.test.user.service;
 
+import com.test.user.dto.CursorPage;
+import com.test.user.dto.ExportFormat;
 import com.test.user.dto.MailRequestApprovalDto;
 import com.test.user.dto.MailRequestDto;
-
+import com.test.user.dto.MailRequestFilter;
+import com.test.user.dto.MailRequestReviewResult;
+import com.test.user.dto.TeamStatusStats;
+import com.test.user.entity.MailRequest;
+import com.test.user.entity.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -11,24 +20,37 @@ public interface MailRequestService {
     // Employee operations
     MailRequestDto createMailRequest(MailRequestDto requestDto, UUID userId);
 
-    List<MailRequestDto> getUserMailRequests(UUID userId);
+    CursorPage<MailRequestDto> getUserMailRequests(UUID userId, MailRequestFilter filter, String cursor, Integer limit);
 
     // Manager operations
-    List<MailRequestDto> getPendingRequestsForManager(UUID managerId);
+    CursorPage<MailRequestDto> getPendingRequestsForManager(UUID managerId, MailRequestFilter filter, String cursor,
+            Integer limit);
 
-    List<MailRequestDto> getPendingRequestsActionRequired(UUID managerId);
+    CursorPage<MailRequestDto> getPendingRequestsActionRequired(UUID managerId, MailRequestFilter filter, String cursor,
+            Integer limit);
 
     MailRequestDto reviewMailRequest(MailRequestApprovalDto approvalDto, UUID managerId);
 
+    List<MailRequestReviewResult> reviewMailRequests(List<MailRequestApprovalDto> approvals, UUID managerId);
+
     MailRequestDto reviewMailRequestHelpDesk(MailRequestApprovalDto approvalDto, UUID managerId);
 
+    // Counts by status of the caller's team, or of a team further down the caller's hierarchy
+    TeamStatusStats getTeamStats(UUID callerId, UUID leaderId);
+
     // Admin operations
-    List<MailRequestDto> getAllApprovedRequests();
+    CursorPage<MailRequestDto> getAllApprovedRequests(MailRequestFilter filter, String cursor, Integer limit);
 
-    List<MailRequestDto> getAllPenreqAft();
+    CursorPage<MailRequestDto> getAllPenreqAft(MailRequestFilter filter, String cursor, Integer limit);
 
-    List<MailRequestDto> getAllPenreqAftHelpDesk();
+    CursorPage<MailRequestDto> getAllPenreqAftHelpDesk(MailRequestFilter filter, String cursor, Integer limit);
+
+    void exportMailRequests(MailRequest.Status status, ExportFormat format, OutputStream out) throws IOException;
 
     // Common operations
     MailRequestDto getMailRequestById(UUID id);
+
+    // Ranked full-text search over the subjects and bodies of the requests the caller may see
+    CursorPage<MailRequestDto> searchMailRequests(UUID callerId, User.Role role, String query,
+            MailRequest.Status status, String cursor, Integer limit);
 }
@@ -1,9 +1,13 @@
 package com.test.user.service;
 
+import com.test.user.dto.CursorPage;
 import com.test.user.dto.RegisterRequest;
 import com.test.user.dto.UserDto;
 import com.test.user.entity.User;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,10 +24,18 @@ public interface UserService {
 
     User createEmployee(RegisterRequest request, UUID leaderId);
 
+    // Bulk provisioning; writes one NDJSON result per row to out
+    List<RegisterRequest> readImportCsv(InputStream in) throws IOException;
+
+    void importUsers(List<RegisterRequest> rows, UUID importerId, OutputStream out) throws IOException;
+
     // User retrieval
-    List<UserDto> getTeamLeadersByManager(UUID managerId);
+    CursorPage<UserDto> getTeamLeadersByManager(UUID managerId, String cursor, Integer limit);
+
+    CursorPage<UserDto> getEmployeesByLeader(UUID leaderId, String cursor, Integer limit);
 
-    List<UserDto> getEmployeesByLeader(UUID leaderId);
+    // Everyone below the leader at any depth, optionally of one role
+    CursorPage<UserDto> getSubordinates(UUID leaderId, User.Role role, String cursor, Integer limit);
 
     // User operations
     UserDto getUserById(UUID id);
@@ -0,0 +1,140 @@
+package com.test.user.service.impl;
+
+import com.test.user.dto.AuthResponse;
+import com.test.user.entity.RefreshToken;
+import com.test.user.entity.User;
+import com.test.user.repository.RefreshTokenRepository;
+import com.test.user.security.JwtPrincipal;
+import com.test.user.security.JwtTokenUtil;
+import com.test.user.security.TokenRevocationList;
+import com.test.user.service.AuthTokenService;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Issues access tokens together with rotating refresh tokens. Every refresh token can be used
+ * once; presenting one that was already rotated means it leaked, so its whole family is revoked
+ * along with every access token of the user.
+ */
+@Service
+@Transactional
+public class AuthTokenServiceImpl implements AuthTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthTokenServiceImpl.class);
+
+    private static final int REFRESH_TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final JwtTokenUtil jwtTokenUtil;
+    private final TokenRevocationList tokenRevocationList;
+    private final Duration refreshTokenLifetime;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Autowired
+    public AuthTokenServiceImpl(RefreshTokenRepository refreshTokenRepository, JwtTokenUtil jwtTokenUtil,
+            TokenRevocationList tokenRevocationList,
+            @Value("${jwt.refresh-expiration:14d}") Duration refreshTokenLifetime) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.tokenRevocationList = tokenRevocationList;
+        this.refreshTokenLifetime = refreshTokenLifetime;
+    }
+
+    @Override
+    public AuthResponse issueTokens(User user) {
+        return issue(user, UUID.randomUUID());
+    }
+
+    @Override
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public AuthResponse refresh(String refreshToken) {
+        RefreshToken stored = refreshTokenRepository.findWithUserByTokenHash(hash(refreshToken))
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+        LocalDateTime now = LocalDateTime.now();
+
+        if (stored.getRevokedAt() != null || stored.getExpiresAt().isBefore(now)) {
+            throw new BadCredentialsException("Invalid refresh token");
+        }
+        // The conditional update claims the token, so of two refreshes racing with it only one wins
+        if (stored.getUsedAt() != null || refreshTokenRepository.markUsed(stored.getId(), now) == 0) {
+            // Reuse of a rotated token: the family is compromised. Committed despite the exception.
+            log.warn("Refresh token reuse detected for user {}, revoking its sessions", stored.getUser().getId());
+            refreshTokenRepository.revokeFamily(stored.getFamilyId(), now);
+            tokenRevocationList.revokeAllForUser(stored.getUser().getId());
+            throw new BadCredentialsException("Invalid refresh token");
+        }
+
+        return issue(stored.getUser(), stored.getFamilyId());
+    }
+
+    @Override
+    public void logout(String accessToken, String refreshToken) {
+        if (accessToken != null) {
+            try {
+                JwtPrincipal principal = jwtTokenUtil.verify(accessToken);
+                if (principal.getTokenId() != null) {
+                    tokenRevocationList.revokeToken(principal.getTokenId(), principal.getExpiresAt());
+                }
+            } catch (JwtException | IllegalArgumentException e) {
+                // Expired or invalid: nothing left to revoke
+            }
+        }
+        if (refreshToken != null) {
+            refreshTokenRepository.findWithUserByTokenHash(hash(refreshToken))
+                    .ifPresent(stored -> refreshTokenRepository.revokeFamily(stored.getFamilyId(), LocalDateTime.now()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-purge-interval:PT1H}")
+    public void purgeExpiredRefreshTokens() {
+        int purged = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        log.debug("Purged {} expired refresh tokens", purged);
+    }
+
+    private AuthResponse issue(User user, UUID familyId) {
+        byte[] secret = new byte[REFRESH_TOKEN_BYTES];
+        secureRandom.nextBytes(secret);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+
+        RefreshToken stored = new RefreshToken();
+        stored.setUser(user);
+        stored.setFamilyId(familyId);
+        stored.setTokenHash(hash(refreshToken));
+        stored.setExpiresAt(LocalDateTime.now().plus(refreshTokenLifetime));
+        refreshTokenRepository.save(stored);
+
+        return AuthResponse.builder()
+                .token(jwtTokenUtil.generateToken(user))
+                .expiresIn(jwtTokenUtil.getAccessTokenLifetime().toSeconds())
+                .refreshToken(refreshToken)
+                .userId(user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .role(user.getRole())
+                .build();
+    }
+
+    private static byte[] hash(String refreshToken) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.test.user.service.impl;
+
+import com.test.user.dto.CursorPage;
+import com.test.user.exception.InvalidCursorException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Opaque cursors for keyset pagination on (createdAt, id), newest first.
+ * A cursor is the base64url encoding of {@code <createdAt>|<id>} of the last row of a page.
+ */
+final class KeysetCursors {
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+
+    static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+
+    private static final String SEPARATOR = "|";
+
+    private KeysetCursors() {
+    }
+
+    static int pageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    static ScrollPosition decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put("createdAt", LocalDateTime.parse(decoded.substring(0, separator)));
+            keys.put("id", UUID.fromString(decoded.substring(separator + 1)));
+            return ScrollPosition.forward(keys);
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+    }
+
+    static String encode(KeysetScrollPosition position) {
+        Map<String, ?> keys = position.getKeys();
+        return encode((LocalDateTime) keys.get("createdAt"), (UUID) keys.get("id"));
+    }
+
+    static String encode(LocalDateTime createdAt, UUID id) {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static <T, R> CursorPage<R> toPage(Window<T> window, Function<T, R> mapper) {
+        String next = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            next = encode((KeysetScrollPosition) window.positionAt(window.size() - 1));
+        }
+        return new CursorPage<>(window.getContent().stream().map(mapper).toList(), next);
+    }
+}
@@ -0,0 +1,72 @@
+package com.test.user.service.impl;
+
+import com.test.user.dto.AuthRequest;
+import com.test.user.dto.AuthResponse;
+import com.test.user.entity.User;
+import com.test.user.repository.UserRepository;
+import com.test.user.security.PasswordVerificationPool;
+import com.test.user.service.AuthTokenService;
+import com.test.user.service.LoginService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Login with a single user lookup. The password check runs on {@link PasswordVerificationPool};
+ * no transaction is open meanwhile, so a slow hash never holds a database connection.
+ */
+@Service
+public class LoginServiceImpl implements LoginService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginServiceImpl.class);
+
+    private final UserRepository userRepository;
+    private final PasswordVerificationPool passwordVerificationPool;
+    private final AuthTokenService authTokenService;
+
+    // Checked against when the email is unknown, so both cases cost one hash
+    private final String dummyHash;
+
+    @Autowired
+    public LoginServiceImpl(UserRepository userRepository, PasswordVerificationPool passwordVerificationPool,
+            AuthTokenService authTokenService, PasswordEncoder passwordEncoder) {
+        this.userRepository = userRepository;
+        this.passwordVerificationPool = passwordVerificationPool;
+        this.authTokenService = authTokenService;
+        this.dummyHash = passwordEncoder.encode(UUID.randomUUID().toString());
+    }
+
+    @Override
+    public AuthResponse login(AuthRequest request) {
+        Optional<User> found = userRepository.findByEmail(request.getEmail());
+        String encodedPassword = found.map(User::getPassword).orElse(dummyHash);
+        boolean matches = passwordVerificationPool.matches(request.getPassword(), encodedPassword).join();
+        if (found.isEmpty() || !matches) {
+            throw new BadCredentialsException("Invalid email or password");
+        }
+
+        User user = found.get();
+        if (passwordVerificationPool.upgradeEncoding(encodedPassword)) {
+            rehash(user, request.getPassword());
+        }
+
+        return authTokenService.issueTokens(user);
+    }
+
+    // Stored with an older algorithm or cost: store a current hash while the plain password is at hand.
+    // Best effort; the login succeeds either way and the next one retries.
+    private void rehash(User user, String rawPassword) {
+        try {
+            String upgraded = passwordVerificationPool.encode(rawPassword).join();
+            userRepository.updatePassword(user.getId(), user.getPassword(), upgraded);
+        } catch (RuntimeException e) {
+            log.debug("Password rehash for user {} skipped: {}", user.getId(), e.getMessage());
+        }
+    }
+}
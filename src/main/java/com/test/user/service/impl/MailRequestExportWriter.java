@@ -0,0 +1,127 @@
+package com.test.user.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.test.user.dto.ExportFormat;
+import com.test.user.dto.MailRequestDto;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes exported mail requests one row at a time, so nothing but the current row is held in memory.
+ */
+abstract class MailRequestExportWriter implements AutoCloseable {
+
+    static MailRequestExportWriter create(ExportFormat format, OutputStream out, ObjectMapper objectMapper)
+            throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonWriter(out, objectMapper);
+            case CSV -> new CsvWriter(out);
+        };
+    }
+
+    abstract void write(MailRequestDto row) throws IOException;
+
+    abstract void flush() throws IOException;
+
+    @Override
+    public abstract void close() throws IOException;
+
+    private static final class NdjsonWriter extends MailRequestExportWriter {
+
+        private final ObjectWriter objectWriter;
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            // Flushing is left to the caller's flush interval, not done after every row
+            this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            this.generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setRootValueSeparator(null);
+        }
+
+        @Override
+        void write(MailRequestDto row) throws IOException {
+            objectWriter.writeValue(generator, row);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CsvWriter extends MailRequestExportWriter {
+
+        private static final String HEADER = "id,subject,body,status,managerApproved,comments,createdAt,reviewedAt,"
+                + "userId,userName,userEmail,managerId,managerName,managerRole";
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write(HEADER);
+            writer.write("\r\n");
+        }
+
+        @Override
+        void write(MailRequestDto row) throws IOException {
+            writeField(row.getId(), true);
+            writeField(row.getSubject(), true);
+            writeField(row.getBody(), true);
+            writeField(row.getStatus(), true);
+            writeField(row.getManagerApproved(), true);
+            writeField(row.getComments(), true);
+            writeField(row.getCreatedAt(), true);
+            writeField(row.getReviewedAt(), true);
+            writeField(row.getUserId(), true);
+            writeField(row.getUserName(), true);
+            writeField(row.getUserEmail(), true);
+            writeField(row.getManagerId(), true);
+            writeField(row.getManagerName(), true);
+            writeField(row.getManagerRole(), false);
+            writer.write("\r\n");
+        }
+
+        private void writeField(Object value, boolean separator) throws IOException {
+            if (value != null) {
+                String text = value.toString();
+                if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+                        || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                    writer.write('"');
+                    writer.write(text.replace("\"", "\"\""));
+                    writer.write('"');
+                } else {
+                    writer.write(text);
+                }
+            }
+            if (separator) {
+                writer.write(',');
+            }
+        }
+
+        @Override
+        void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Flush only: the servlet container owns the response stream
+            writer.flush();
+        }
+    }
+}
@@ -1,32 +1,135 @@
 package com.test.user.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.user.directory.UserDirectory;
+import com.test.user.dto.CursorPage;
+import com.test.user.dto.ExportFormat;
 import com.test.user.dto.MailRequestApprovalDto;
 import com.test.user.dto.MailRequestDto;
+import com.test.user.dto.MailRequestFilter;
+import com.test.user.dto.MailRequestReviewResult;
+import com.test.user.dto.TeamStatusStats;
 import com.test.user.entity.MailRequest;
 import com.test.user.entity.User;
+import com.test.user.escalation.EscalationTracker;
+import com.test.user.event.MailRequestCreatedEvent;
+import com.test.user.event.MailRequestReviewedEvent;
+import com.test.user.exception.InvalidStatusTransitionException;
+import com.test.user.metrics.StatementCounter;
+import com.test.user.metrics.StatementTally;
 import com.test.user.repository.MailRequestRepository;
+import com.test.user.repository.UserHierarchyRepository;
 import com.test.user.repository.UserRepository;
+import com.test.user.search.MailRequestSearchIndex;
+import com.test.user.search.SearchHit;
+import com.test.user.search.SearchScope;
 import com.test.user.service.MailRequestService;
+import com.test.user.stats.TeamStatusCounters;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.test.user.repository.MailRequestSpecifications.createdBefore;
+import static com.test.user.repository.MailRequestSpecifications.fetchUserAndManager;
+import static com.test.user.repository.MailRequestSpecifications.idIn;
+import static com.test.user.repository.MailRequestSpecifications.managerApproved;
+import static com.test.user.repository.MailRequestSpecifications.matching;
+import static com.test.user.repository.MailRequestSpecifications.ofSubtree;
+import static com.test.user.repository.MailRequestSpecifications.ofTeam;
+import static com.test.user.repository.MailRequestSpecifications.ofUser;
+import static com.test.user.repository.MailRequestSpecifications.pendingReview;
+import static com.test.user.repository.MailRequestSpecifications.statusIn;
+import static com.test.user.repository.MailRequestSpecifications.statusInOrNull;
 
 @Service
 @Transactional
+@Timed(value = "mail.request.service", description = "MailRequestService calls, by method")
 public class MailRequestServiceImpl implements MailRequestService {
 
+    // Statuses a requester sees in their own history (HD_REQ and MANAGER_REJECT are hidden,
+    // rows without a status are shown)
+    private static final Set<MailRequest.Status> REQUESTER_VISIBLE_STATUSES = EnumSet.complementOf(
+            EnumSet.of(MailRequest.Status.HD_REQ, MailRequest.Status.MANAGER_REJECT));
+
+    // Statuses in the help desk's queues: approved requests it carries out and ones it has handled.
+    // Pending requests only count once escalated to it, like /help-desk/pending-approval
+    private static final Set<MailRequest.Status> HELP_DESK_VISIBLE_STATUSES = EnumSet.of(
+            MailRequest.Status.HD_REQ, MailRequest.Status.TL_ACCEPT, MailRequest.Status.MANAGER_ACCEPT,
+            MailRequest.Status.HD_ACCEPT, MailRequest.Status.HD_REJECT);
+
+    // Statuses that need the team leader's attention
+    private static final Set<MailRequest.Status> ACTION_REQUIRED_STATUSES = EnumSet.of(
+            MailRequest.Status.MANAGER_REJECT, MailRequest.Status.HD_REQ);
+
+    private static final String NOT_YOUR_TEAM = "You can only review requests from your team members";
+    private static final String CHANGED_CONCURRENTLY = "Mail request was changed by another reviewer";
+
+    // Rows written between explicit flushes of the export stream
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+
+    private static final String EXPORT_QUERY = "select m from MailRequest m join fetch m.user left join fetch m.manager "
+            + "where :status is null or m.status = :status";
+
     private final MailRequestRepository mailRequestRepository;
     private final UserRepository userRepository;
+    private final UserHierarchyRepository userHierarchyRepository;
+    private final UserDirectory userDirectory;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EscalationTracker escalationTracker;
+    private final ReviewTransitions reviewTransitions;
+    private final TeamStatusCounters teamStatusCounters;
+    private final MailRequestSearchIndex searchIndex;
+    private final StatementCounter statementCounter;
+    private final int exportFetchSize;
 
     @Autowired
-    public MailRequestServiceImpl(MailRequestRepository mailRequestRepository, UserRepository userRepository) {
+    public MailRequestServiceImpl(MailRequestRepository mailRequestRepository, UserRepository userRepository,
+            UserHierarchyRepository userHierarchyRepository, UserDirectory userDirectory, EntityManager entityManager,
+            ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher, EscalationTracker escalationTracker,
+            ReviewTransitions reviewTransitions, TeamStatusCounters teamStatusCounters,
+            MailRequestSearchIndex searchIndex, StatementCounter statementCounter,
+            @Value("${jdbc.streaming-fetch-size:500}") int exportFetchSize) {
         this.mailRequestRepository = mailRequestRepository;
         this.userRepository = userRepository;
+        this.userHierarchyRepository = userHierarchyRepository;
+        this.userDirectory = userDirectory;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.escalationTracker = escalationTracker;
+        this.reviewTransitions = reviewTransitions;
+        this.teamStatusCounters = teamStatusCounters;
+        this.searchIndex = searchIndex;
+        this.statementCounter = statementCounter;
+        this.exportFetchSize = exportFetchSize;
     }
 
     @Override
@@ -46,95 +149,126 @@ public class MailRequestServiceImpl implements MailRequestService {
         mailRequest.setStatus(MailRequest.Status.HD_REQ); // Initial status is help desk request
 
         MailRequest savedRequest = mailRequestRepository.save(mailRequest);
+        eventPublisher.publishEvent(MailRequestCreatedEvent.of(savedRequest));
         return mapToDto(savedRequest);
     }
 
     @Override
-    public List<MailRequestDto> getUserMailRequests(UUID userId) {
-        return mailRequestRepository.findByUserId(userId).stream()
-                .filter(data -> data.getStatus() != MailRequest.Status.HD_REQ
-                        && data.getStatus() != MailRequest.Status.MANAGER_REJECT)
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+    public CursorPage<MailRequestDto> getUserMailRequests(UUID userId, MailRequestFilter filter, String cursor,
+            Integer limit) {
+        return findPage(ofUser(userId).and(statusInOrNull(REQUESTER_VISIBLE_STATUSES)), filter, cursor, limit);
     }
 
     @Override
-    public List<MailRequestDto> getPendingRequestsForManager(UUID managerId) {
-        User manager = userRepository.findById(managerId)
-                .orElseThrow(() -> new RuntimeException("Manager not found"));
+    public CursorPage<MailRequestDto> getPendingRequestsForManager(UUID managerId, MailRequestFilter filter,
+            String cursor, Integer limit) {
+        User.Role role = userDirectory.roleOf(managerId);
+        if (role == null) {
+            role = userRepository.findById(managerId)
+                    .map(User::getRole)
+                    .orElseThrow(() -> new RuntimeException("Manager not found"));
+        }
 
-        if (manager.getRole() != User.Role.MANAGER && manager.getRole() != User.Role.TEAM_LEADER) {
+        if (role != User.Role.MANAGER && role != User.Role.TEAM_LEADER) {
             throw new RuntimeException("Only managers or team leaders can review mail requests");
         }
 
-        return mailRequestRepository.findByUser_LeaderId(managerId).stream()
-                .filter(request -> request.getManagerApproved() == null) // Only pending requests
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+        // Managers see requests from every level below them, not just their direct reports
+        return findPage(ofSubtree(managerId).and(pendingReview()), filter, cursor, limit);
     }
 
     @Override
-    public List<MailRequestDto> getPendingRequestsActionRequired(UUID managerId) {
-        return mailRequestRepository.findByUser_LeaderId(managerId).stream()
-                .filter(request -> request.getStatus() == MailRequest.Status.MANAGER_REJECT
-                        || request.getStatus() == MailRequest.Status.HD_REQ)
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+    public CursorPage<MailRequestDto> getPendingRequestsActionRequired(UUID managerId, MailRequestFilter filter,
+            String cursor, Integer limit) {
+        return findPage(ofTeam(managerId).and(statusIn(ACTION_REQUIRED_STATUSES)), filter, cursor, limit);
     }
 
     @Override
     public MailRequestDto reviewMailRequest(MailRequestApprovalDto approvalDto, UUID managerId) {
-        User manager = userRepository.findById(managerId)
-                .orElseThrow(() -> new RuntimeException("Manager not found"));
+        User manager = findReviewer(managerId);
 
-        if (manager.getRole() != User.Role.MANAGER && manager.getRole() != User.Role.TEAM_LEADER
-                && manager.getRole() != User.Role.HELP_DESK) {
-            throw new RuntimeException("Only managers or team leaders can review mail requests");
-        }
-
-        MailRequest mailRequest = mailRequestRepository.findById(approvalDto.getRequestId())
+        MailRequest mailRequest = mailRequestRepository.findWithUserAndManagerById(approvalDto.getRequestId())
                 .orElseThrow(() -> new RuntimeException("Mail request not found"));
 
         // Verify the request belongs to a user under this manager
-        // if (!mailRequest.getUser().getLeader().getId().equals(managerId)) {
-        // throw new RuntimeException("You can only review requests from your team
-        // members");
-        // }
-
-        mailRequest.setManager(manager);
-        if (approvalDto.getApproved()) {
-            mailRequest.setManagerApproved(true);
-        } else if (approvalDto.getApproved() == false) {
-            mailRequest.setManagerApproved(false);
-        } else {
-            mailRequest.setManagerApproved(null);
+        if (reviewsOwnTeamOnly(manager) && !isBelow(managerId, mailRequest.getUser().getId())) {
+            throw new AccessDeniedException(NOT_YOUR_TEAM);
         }
-        mailRequest.setComments(approvalDto.getComments());
-        mailRequest.setReviewedAt(LocalDateTime.now());
 
-        // Set appropriate status based on approver's role and decision
-        if (manager.getRole() == User.Role.MANAGER) {
-            if (approvalDto.getApproved()) {
-                mailRequest.setStatus(MailRequest.Status.MANAGER_ACCEPT);
-            } else {
-                mailRequest.setStatus(MailRequest.Status.MANAGER_REJECT);
+        checkVersion(mailRequest, approvalDto.getVersion());
+        MailRequest.Status previousStatus = mailRequest.getStatus();
+        applyReview(mailRequest, manager, approvalDto);
+
+        // Flushing runs the versioned update now, so a concurrent review fails here and the
+        // returned version is the new one
+        MailRequest updatedRequest = mailRequestRepository.saveAndFlush(mailRequest);
+        eventPublisher.publishEvent(MailRequestReviewedEvent.of(updatedRequest, previousStatus));
+        return mapToDto(updatedRequest);
+    }
+
+    @Override
+    public List<MailRequestReviewResult> reviewMailRequests(List<MailRequestApprovalDto> approvals, UUID managerId) {
+        User manager = findReviewer(managerId);
+
+        // All targets in one query; the updates are flushed as one JDBC batch
+        Set<UUID> ids = new HashSet<>();
+        approvals.forEach(approval -> ids.add(approval.getRequestId()));
+        Map<UUID, MailRequest> requests = new HashMap<>();
+        mailRequestRepository.findAll(idIn(ids).and(fetchUserAndManager()))
+                .forEach(mailRequest -> requests.put(mailRequest.getId(), mailRequest));
+
+        Set<UUID> team = null;
+        if (reviewsOwnTeamOnly(manager) && !requests.isEmpty()) {
+            team = new HashSet<>();
+            // Requesters the directory can't place are checked in one query
+            Set<UUID> unknown = new HashSet<>();
+            for (MailRequest mailRequest : requests.values()) {
+                UUID requesterId = mailRequest.getUser().getId();
+                Boolean below = userDirectory.isBelow(managerId, requesterId);
+                if (below == null) {
+                    unknown.add(requesterId);
+                } else if (below) {
+                    team.add(requesterId);
+                }
             }
-        } else if (manager.getRole() == User.Role.TEAM_LEADER) {
-            if (approvalDto.getApproved()) {
-                mailRequest.setStatus(MailRequest.Status.TL_ACCEPT);
-            } else {
-                mailRequest.setStatus(MailRequest.Status.TL_REJECT);
+            if (!unknown.isEmpty()) {
+                team.addAll(userHierarchyRepository.findDescendantsAmong(managerId, unknown));
             }
-        } else if (manager.getRole() == User.Role.HELP_DESK) {
-            if (approvalDto.getApproved()) {
-                mailRequest.setStatus(MailRequest.Status.HD_ACCEPT);
+        }
+
+        Set<UUID> reviewed = new HashSet<>();
+        MailRequestReviewResult[] results = new MailRequestReviewResult[approvals.size()];
+        Map<Integer, MailRequest> applied = new HashMap<>();
+        for (int i = 0; i < approvals.size(); i++) {
+            MailRequestApprovalDto approval = approvals.get(i);
+            UUID requestId = approval.getRequestId();
+            MailRequest mailRequest = requests.get(requestId);
+            if (mailRequest == null) {
+                results[i] = MailRequestReviewResult.failed(requestId, "Mail request not found");
+            } else if (team != null && !team.contains(mailRequest.getUser().getId())) {
+                results[i] = MailRequestReviewResult.failed(requestId, NOT_YOUR_TEAM);
+            } else if (approval.getApproved() == null) {
+                results[i] = MailRequestReviewResult.failed(requestId, "Approval decision is required");
+            } else if (!reviewed.add(requestId)) {
+                results[i] = MailRequestReviewResult.failed(requestId, "Mail request appears more than once in the batch");
+            } else if (approval.getVersion() != null && !approval.getVersion().equals(mailRequest.getVersion())) {
+                results[i] = MailRequestReviewResult.failed(requestId, CHANGED_CONCURRENTLY);
             } else {
-                mailRequest.setStatus(MailRequest.Status.HD_REJECT);
+                try {
+                    MailRequest.Status previousStatus = mailRequest.getStatus();
+                    applyReview(mailRequest, manager, approval);
+                    eventPublisher.publishEvent(MailRequestReviewedEvent.of(mailRequest, previousStatus));
+                    applied.put(i, mailRequest);
+                } catch (InvalidStatusTransitionException e) {
+                    results[i] = MailRequestReviewResult.failed(requestId, e.getMessage());
+                }
             }
         }
 
-        MailRequest updatedRequest = mailRequestRepository.save(mailRequest);
-        return mapToDto(updatedRequest);
+        // One batched, versioned update for all of them; a lost race fails the whole batch with 409
+        mailRequestRepository.flush();
+        applied.forEach((i, mailRequest) -> results[i] = MailRequestReviewResult.succeeded(mapToDto(mailRequest)));
+        return List.of(results);
     }
 
     @Override
@@ -146,58 +280,242 @@ public class MailRequestServiceImpl implements MailRequestService {
             throw new RuntimeException("Only help desks can review mail requests");
         }
 
-        MailRequest mailRequest = mailRequestRepository.findById(approvalDto.getRequestId())
+        MailRequest mailRequest = mailRequestRepository.findWithUserAndManagerById(approvalDto.getRequestId())
                 .orElseThrow(() -> new RuntimeException("Mail request not found"));
+        checkVersion(mailRequest, approvalDto.getVersion());
+        MailRequest.Status previousStatus = mailRequest.getStatus();
+        // An undecided review (approved is null) puts the request back into the help desk queue
+        MailRequest.Status nextStatus = reviewTransitions.next(previousStatus, User.Role.HELP_DESK,
+                ReviewTransitions.Decision.of(approvalDto.getApproved()));
 
         mailRequest.setManager(helpDesk);
         mailRequest.setComments(approvalDto.getComments());
         mailRequest.setReviewedAt(LocalDateTime.now());
+        mailRequest.setStatus(nextStatus);
+
+        MailRequest updatedRequest = mailRequestRepository.saveAndFlush(mailRequest);
+        eventPublisher.publishEvent(MailRequestReviewedEvent.of(updatedRequest, previousStatus));
+        return mapToDto(updatedRequest);
+    }
 
-        Boolean approved = approvalDto.getApproved();
-        // Set help desk specific status
-        if (Boolean.TRUE.equals(approved)) {
-            mailRequest.setStatus(MailRequest.Status.HD_ACCEPT);
-        } else if (Boolean.FALSE.equals(approved)) {
-            mailRequest.setStatus(MailRequest.Status.HD_REJECT);
-        } else {
-            mailRequest.setStatus(MailRequest.Status.HD_REQ);
+    @Override
+    @Transactional(readOnly = true)
+    public TeamStatusStats getTeamStats(UUID callerId, UUID leaderId) {
+        UUID teamLeaderId = leaderId != null ? leaderId : callerId;
+        if (!teamLeaderId.equals(callerId) && !isBelow(callerId, teamLeaderId)) {
+            throw new AccessDeniedException("You can only see the stats of teams below you");
         }
+        Map<MailRequest.Status, Long> counts = teamStatusCounters.countsFor(teamLeaderId);
+        long total = counts.values().stream().mapToLong(Long::longValue).sum();
+        return new TeamStatusStats(teamLeaderId, counts, total);
+    }
 
-        MailRequest updatedRequest = mailRequestRepository.save(mailRequest);
-        return mapToDto(updatedRequest);
+    @Override
+    public CursorPage<MailRequestDto> getAllApprovedRequests(MailRequestFilter filter, String cursor, Integer limit) {
+        return findPage(managerApproved(true), filter, cursor, limit);
     }
 
     @Override
-    public List<MailRequestDto> getAllApprovedRequests() {
-        return mailRequestRepository.findByManagerApproved(true).stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+    public CursorPage<MailRequestDto> getAllPenreqAft(MailRequestFilter filter, String cursor, Integer limit) {
+        return findEscalatedPage(User.Role.MANAGER, filter, cursor, limit);
     }
 
     @Override
-    public List<MailRequestDto> getAllPenreqAft() {
-        return mailRequestRepository.findByManagerApproved(null).stream()
-                .filter(data -> data.getCreatedAt().plusMinutes(1).isBefore(LocalDateTime.now()))
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+    public CursorPage<MailRequestDto> getAllPenreqAftHelpDesk(MailRequestFilter filter, String cursor, Integer limit) {
+        return findEscalatedPage(User.Role.HELP_DESK, filter, cursor, limit);
     }
 
     @Override
-    public List<MailRequestDto> getAllPenreqAftHelpDesk() {
-        return mailRequestRepository.findByManagerApproved(null).stream()
-                .filter(data -> data.getCreatedAt().plusMinutes(2).isBefore(LocalDateTime.now()))
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public void exportMailRequests(MailRequest.Status status, ExportFormat format, OutputStream out)
+            throws IOException {
+        try (Stream<MailRequest> rows = streamForExport(status);
+             MailRequestExportWriter writer = MailRequestExportWriter.create(format, out, objectMapper)) {
+            int written = 0;
+            for (Iterator<MailRequest> it = rows.iterator(); it.hasNext(); ) {
+                MailRequest mailRequest = it.next();
+                writer.write(mapToDto(mailRequest));
+                detach(mailRequest);
+                if (++written % EXPORT_FLUSH_INTERVAL == 0) {
+                    writer.flush();
+                }
+            }
+        }
     }
 
     @Override
     public MailRequestDto getMailRequestById(UUID id) {
-        MailRequest mailRequest = mailRequestRepository.findById(id)
+        MailRequest mailRequest = mailRequestRepository.findWithUserAndManagerById(id)
                 .orElseThrow(() -> new RuntimeException("Mail request not found"));
         return mapToDto(mailRequest);
     }
 
-    private MailRequestDto mapToDto(MailRequest mailRequest) {
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<MailRequestDto> searchMailRequests(UUID callerId, User.Role role, String query,
+            MailRequest.Status status, String cursor, Integer limit) {
+        // The same requests the caller's list endpoints show
+        SearchScope scope = switch (role) {
+            case EMPLOYEE -> new SearchScope(Set.of(callerId), REQUESTER_VISIBLE_STATUSES);
+            case TEAM_LEADER, MANAGER ->
+                    new SearchScope(new HashSet<>(userHierarchyRepository.findDescendantIds(callerId)), null);
+            case HELP_DESK -> new SearchScope(null, HELP_DESK_VISIBLE_STATUSES,
+                    LocalDateTime.now().minus(escalationTracker.threshold(User.Role.HELP_DESK)));
+        };
+        if (status != null) {
+            boolean visible = scope.statuses() == null || scope.statuses().contains(status);
+            scope = new SearchScope(scope.requesters(), visible ? Set.of(status) : Set.of(),
+                    scope.pendingCreatedBefore());
+        }
+
+        MailRequestSearchIndex.SearchResult result = searchIndex.search(query, scope, cursor,
+                KeysetCursors.pageSize(limit));
+        if (result.hits().isEmpty()) {
+            return new CursorPage<>(List.of(), null);
+        }
+        Map<UUID, MailRequest> rows = new HashMap<>();
+        List<UUID> ids = result.hits().stream().map(SearchHit::requestId).toList();
+        mailRequestRepository.findAll(idIn(ids).and(fetchUserAndManager()))
+                .forEach(mailRequest -> rows.put(mailRequest.getId(), mailRequest));
+        List<MailRequestDto> items = ids.stream()
+                .map(rows::get)
+                .filter(Objects::nonNull)
+                .map(MailRequestServiceImpl::mapToDto)
+                .toList();
+        return new CursorPage<>(items, result.next());
+    }
+
+    private User findReviewer(UUID managerId) {
+        User manager = userRepository.findById(managerId)
+                .orElseThrow(() -> new RuntimeException("Manager not found"));
+
+        if (manager.getRole() != User.Role.MANAGER && manager.getRole() != User.Role.TEAM_LEADER
+                && manager.getRole() != User.Role.HELP_DESK) {
+            throw new RuntimeException("Only managers or team leaders can review mail requests");
+        }
+        return manager;
+    }
+
+    private boolean isBelow(UUID ancestorId, UUID descendantId) {
+        Boolean below = userDirectory.isBelow(ancestorId, descendantId);
+        return below != null ? below : userHierarchyRepository.isAncestor(ancestorId, descendantId);
+    }
+
+    // Help desks review escalated requests from the whole organisation
+    private boolean reviewsOwnTeamOnly(User reviewer) {
+        return reviewer.getRole() == User.Role.MANAGER || reviewer.getRole() == User.Role.TEAM_LEADER;
+    }
+
+    private void applyReview(MailRequest mailRequest, User manager, MailRequestApprovalDto approvalDto) {
+        MailRequest.Status nextStatus = reviewTransitions.next(mailRequest.getStatus(), manager.getRole(),
+                ReviewTransitions.Decision.of(approvalDto.getApproved()));
+
+        mailRequest.setManager(manager);
+        mailRequest.setManagerApproved(approvalDto.getApproved());
+        mailRequest.setComments(approvalDto.getComments());
+        mailRequest.setReviewedAt(LocalDateTime.now());
+        mailRequest.setStatus(nextStatus);
+    }
+
+    // The reviewer decided on an older version than the one just loaded
+    private static void checkVersion(MailRequest mailRequest, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(mailRequest.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(MailRequest.class, mailRequest.getId());
+        }
+    }
+
+    // One keyset page, newest first, of the requests matching the query and the caller's filter
+    private CursorPage<MailRequestDto> findPage(Specification<MailRequest> query, MailRequestFilter filter,
+            String cursor, Integer limit) {
+        ScrollPosition position = KeysetCursors.decode(cursor);
+        Window<MailRequest> window = mailRequestRepository.findBy(query.and(matching(filter)).and(fetchUserAndManager()), q -> q
+                .sortBy(KeysetCursors.NEWEST_FIRST)
+                .limit(KeysetCursors.pageSize(limit))
+                .scroll(position));
+        return KeysetCursors.toPage(window, MailRequestServiceImpl::mapToDto);
+    }
+
+    // Requests escalated to the role. Unfiltered pages come from the in-memory escalation index and
+    // only load the page's rows by id, kept in the index's order, which the cursor continues. Rows the
+    // index still holds but another instance has reviewed are skipped, and the page is refilled from
+    // further down the index at one more statement each time.
+    private CursorPage<MailRequestDto> findEscalatedPage(User.Role role, MailRequestFilter filter, String cursor,
+            Integer limit) {
+        if (filter != null && (filter.getStatus() != null || filter.getCreatedAfter() != null)) {
+            LocalDateTime deadline = LocalDateTime.now().minus(escalationTracker.threshold(role));
+            return findPage(pendingReview().and(createdBefore(deadline)), filter, cursor, limit);
+        }
+
+        int pageSize = KeysetCursors.pageSize(limit);
+        var after = ((KeysetScrollPosition) KeysetCursors.decode(cursor)).getKeys();
+        LocalDateTime afterCreatedAt = (LocalDateTime) after.get("createdAt");
+        UUID afterId = (UUID) after.get("id");
+        List<MailRequestDto> items = new ArrayList<>(pageSize);
+        for (int loads = 0; ; loads++) {
+            int wanted = pageSize - items.size();
+            List<EscalationTracker.PendingRequest> batch =
+                    escalationTracker.escalated(role, afterCreatedAt, afterId, wanted + 1);
+            boolean hasNext = batch.size() > wanted;
+            if (hasNext) {
+                batch = batch.subList(0, wanted);
+            }
+            if (batch.isEmpty()) {
+                return new CursorPage<>(items, null);
+            }
+            if (loads > 0) {
+                StatementTally tally = statementCounter.current();
+                if (tally != null) {
+                    tally.allow(1);
+                }
+            }
+            items.addAll(loadPending(batch));
+
+            EscalationTracker.PendingRequest last = batch.get(batch.size() - 1);
+            if (!hasNext) {
+                return new CursorPage<>(items, null);
+            }
+            if (items.size() == pageSize) {
+                return new CursorPage<>(items, KeysetCursors.encode(last.createdAt(), last.id()));
+            }
+            afterCreatedAt = last.createdAt();
+            afterId = last.id();
+        }
+    }
+
+    // The rows of the batch still waiting for a review, in the batch's order
+    private List<MailRequestDto> loadPending(List<EscalationTracker.PendingRequest> batch) {
+        Map<UUID, MailRequest> rows = new HashMap<>();
+        mailRequestRepository.findAll(idIn(batch.stream().map(EscalationTracker.PendingRequest::id).toList())
+                        .and(fetchUserAndManager()))
+                .forEach(row -> rows.put(row.getId(), row));
+        return batch.stream()
+                .map(request -> rows.get(request.id()))
+                .filter(row -> row != null && row.getManagerApproved() == null)
+                .map(MailRequestServiceImpl::mapToDto)
+                .toList();
+    }
+
+    // Forward-only stream over all requests (optionally of one status). The fetch size lets the driver
+    // page through the result set instead of buffering it, and applies to this statement only.
+    private Stream<MailRequest> streamForExport(MailRequest.Status status) {
+        return entityManager.createQuery(EXPORT_QUERY, MailRequest.class)
+                .setParameter("status", status)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_CACHEABLE, false)
+                .getResultStream();
+    }
+
+    // Keeps the persistence context from growing with every exported row
+    private void detach(MailRequest mailRequest) {
+        entityManager.detach(mailRequest);
+        entityManager.detach(mailRequest.getUser());
+        if (mailRequest.getManager() != null) {
+            entityManager.detach(mailRequest.getManager());
+        }
+    }
+
+    static MailRequestDto mapToDto(MailRequest mailRequest) {
         MailRequestDto dto = new MailRequestDto();
         dto.setId(mailRequest.getId());
         dto.setSubject(mailRequest.getSubject());
@@ -208,6 +526,7 @@ public class MailRequestServiceImpl implements MailRequestService {
         dto.setComments(mailRequest.getComments());
         dto.setCreatedAt(mailRequest.getCreatedAt());
         dto.setReviewedAt(mailRequest.getReviewedAt());
+        dto.setVersion(mailRequest.getVersion());
         dto.setStatus(mailRequest.getStatus());
 
         // User information
@@ -220,7 +539,6 @@ public class MailRequestServiceImpl implements MailRequestService {
 
         // Manager information
         User manager = mailRequest.getManager();
-        System.out.println("manager: " + manager);
         if (manager != null) {
             dto.setManagerId(manager.getId());
             dto.setManagerName(manager.getName());
@@ -0,0 +1,154 @@
+package com.test.user.service.impl;
+
+import com.test.user.entity.MailRequest.Status;
+import com.test.user.entity.User.Role;
+import com.test.user.exception.InvalidStatusTransitionException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The review workflow as a table of (from status, reviewer role, decision) to status.
+ * <p>
+ * The table is checked when the bean is created, so a broken edit fails the startup instead of
+ * a review. Lookups index a dense array by the three ordinals.
+ */
+@Component
+public class ReviewTransitions {
+
+    public enum Decision {
+        APPROVE,
+        REJECT,
+        // Help desk puts a handled request back into its queue
+        REOPEN;
+
+        public static Decision of(Boolean approved) {
+            if (approved == null) {
+                return REOPEN;
+            }
+            return approved ? APPROVE : REJECT;
+        }
+    }
+
+    public record Transition(Status from, Role role, Decision decision, Status to) {
+    }
+
+    static final Status INITIAL = Status.HD_REQ;
+
+    static final List<Transition> DEFAULT_TRANSITIONS = List.of(
+            // New requests can be decided by anyone in the reviewing chain
+            new Transition(Status.HD_REQ, Role.TEAM_LEADER, Decision.APPROVE, Status.TL_ACCEPT),
+            new Transition(Status.HD_REQ, Role.TEAM_LEADER, Decision.REJECT, Status.TL_REJECT),
+            new Transition(Status.HD_REQ, Role.MANAGER, Decision.APPROVE, Status.MANAGER_ACCEPT),
+            new Transition(Status.HD_REQ, Role.MANAGER, Decision.REJECT, Status.MANAGER_REJECT),
+            new Transition(Status.HD_REQ, Role.HELP_DESK, Decision.APPROVE, Status.HD_ACCEPT),
+            new Transition(Status.HD_REQ, Role.HELP_DESK, Decision.REJECT, Status.HD_REJECT),
+            // Managers may overrule their team leaders
+            new Transition(Status.TL_ACCEPT, Role.MANAGER, Decision.APPROVE, Status.MANAGER_ACCEPT),
+            new Transition(Status.TL_ACCEPT, Role.MANAGER, Decision.REJECT, Status.MANAGER_REJECT),
+            new Transition(Status.TL_REJECT, Role.MANAGER, Decision.APPROVE, Status.MANAGER_ACCEPT),
+            new Transition(Status.TL_REJECT, Role.MANAGER, Decision.REJECT, Status.MANAGER_REJECT),
+            // A manager rejection goes back to the team leader (see the action-required queue)
+            new Transition(Status.MANAGER_REJECT, Role.TEAM_LEADER, Decision.APPROVE, Status.TL_ACCEPT),
+            new Transition(Status.MANAGER_REJECT, Role.TEAM_LEADER, Decision.REJECT, Status.TL_REJECT),
+            // Approved requests are carried out by the help desk
+            new Transition(Status.TL_ACCEPT, Role.HELP_DESK, Decision.APPROVE, Status.HD_ACCEPT),
+            new Transition(Status.TL_ACCEPT, Role.HELP_DESK, Decision.REJECT, Status.HD_REJECT),
+            new Transition(Status.MANAGER_ACCEPT, Role.HELP_DESK, Decision.APPROVE, Status.HD_ACCEPT),
+            new Transition(Status.MANAGER_ACCEPT, Role.HELP_DESK, Decision.REJECT, Status.HD_REJECT),
+            new Transition(Status.HD_ACCEPT, Role.HELP_DESK, Decision.REOPEN, Status.HD_REQ),
+            new Transition(Status.HD_REJECT, Role.HELP_DESK, Decision.REOPEN, Status.HD_REQ));
+
+    // The statuses each role's decisions may produce
+    private static final Map<Role, Set<Status>> OUTCOMES = new EnumMap<>(Map.of(
+            Role.EMPLOYEE, EnumSet.noneOf(Status.class),
+            Role.TEAM_LEADER, EnumSet.of(Status.TL_ACCEPT, Status.TL_REJECT),
+            Role.MANAGER, EnumSet.of(Status.MANAGER_ACCEPT, Status.MANAGER_REJECT),
+            Role.HELP_DESK, EnumSet.of(Status.HD_ACCEPT, Status.HD_REJECT, Status.HD_REQ)));
+
+    private static final Status[] STATUSES = Status.values();
+    private static final Role[] ROLES = Role.values();
+    private static final Decision[] DECISIONS = Decision.values();
+
+    private final Status[] table = new Status[STATUSES.length * ROLES.length * DECISIONS.length];
+
+    public ReviewTransitions() {
+        this(DEFAULT_TRANSITIONS);
+    }
+
+    ReviewTransitions(List<Transition> transitions) {
+        for (Transition transition : transitions) {
+            int key = key(transition.from(), transition.role(), transition.decision());
+            if (table[key] != null) {
+                throw new IllegalStateException("Duplicate review transition " + transition);
+            }
+            if (transition.from() == transition.to()) {
+                throw new IllegalStateException("Review transition does not change the status: " + transition);
+            }
+            if (!OUTCOMES.get(transition.role()).contains(transition.to())) {
+                throw new IllegalStateException("A " + transition.role() + " cannot move a request to " + transition.to());
+            }
+            table[key] = transition.to();
+        }
+        validatePairedDecisions();
+        validateReachability();
+    }
+
+    /**
+     * The status a review moves the request to. Throws {@link InvalidStatusTransitionException}
+     * when the role can't make that decision on a request in the current status.
+     */
+    public Status next(Status from, Role role, Decision decision) {
+        Status to = table[key(from, role, decision)];
+        if (to == null) {
+            throw new InvalidStatusTransitionException(
+                    "A " + role + " cannot " + decision.name().toLowerCase() + " a request in status " + from);
+        }
+        return to;
+    }
+
+    // A reviewer who may approve in a status may also reject, and the other way round
+    private void validatePairedDecisions() {
+        for (Status from : STATUSES) {
+            for (Role role : ROLES) {
+                boolean approve = table[key(from, role, Decision.APPROVE)] != null;
+                boolean reject = table[key(from, role, Decision.REJECT)] != null;
+                if (approve != reject) {
+                    throw new IllegalStateException(
+                            "A " + role + " can " + (approve ? "approve" : "reject") + " but not "
+                                    + (approve ? "reject" : "approve") + " a request in status " + from);
+                }
+            }
+        }
+    }
+
+    // Every status must be reachable from the one requests are created in
+    private void validateReachability() {
+        Set<Status> reached = EnumSet.of(INITIAL);
+        Deque<Status> pending = new ArrayDeque<>(reached);
+        while (!pending.isEmpty()) {
+            Status from = pending.poll();
+            for (Role role : ROLES) {
+                for (Decision decision : DECISIONS) {
+                    Status to = table[key(from, role, decision)];
+                    if (to != null && reached.add(to)) {
+                        pending.add(to);
+                    }
+                }
+            }
+        }
+        if (reached.size() != STATUSES.length) {
+            throw new IllegalStateException("Unreachable review statuses: " + EnumSet.complementOf(EnumSet.copyOf(reached)));
+        }
+    }
+
+    private static int key(Status from, Role role, Decision decision) {
+        return (from.ordinal() * ROLES.length + role.ordinal()) * DECISIONS.length + decision.ordinal();
+    }
+}
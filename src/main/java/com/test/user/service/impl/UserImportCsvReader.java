@@ -0,0 +1,117 @@
+package com.test.user.service.impl;
+
+import com.test.user.dto.RegisterRequest;
+import com.test.user.entity.User;
+import com.test.user.exception.InvalidImportFileException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads a user import CSV: a header naming the {@code name}, {@code email} and {@code password}
+ * columns (and optionally {@code role}) in any order, then one user per line. Fields may be quoted
+ * the way the mail request export quotes them.
+ */
+final class UserImportCsvReader {
+
+    private UserImportCsvReader() {
+    }
+
+    static List<RegisterRequest> read(Reader source, int maxRows) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        List<String> record = nextRecord(reader);
+        if (record == null) {
+            throw new InvalidImportFileException("CSV file is empty");
+        }
+        List<String> header = record.stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).toList();
+        int nameColumn = column(header, "name");
+        int emailColumn = column(header, "email");
+        int passwordColumn = column(header, "password");
+        int roleColumn = header.indexOf("role");
+
+        List<RegisterRequest> rows = new ArrayList<>();
+        List<String> fields;
+        int line = 1;
+        while ((fields = nextRecord(reader)) != null) {
+            line++;
+            if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                continue; // blank line
+            }
+            if (fields.size() != header.size()) {
+                throw new InvalidImportFileException(
+                        "Line " + line + " has " + fields.size() + " fields, expected " + header.size());
+            }
+            if (rows.size() == maxRows) {
+                throw new InvalidImportFileException("At most " + maxRows + " users can be imported at once");
+            }
+            RegisterRequest row = new RegisterRequest();
+            row.setName(fields.get(nameColumn));
+            row.setEmail(fields.get(emailColumn));
+            row.setPassword(fields.get(passwordColumn));
+            if (roleColumn >= 0 && !fields.get(roleColumn).isBlank()) {
+                row.setRole(parseRole(fields.get(roleColumn), line));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static int column(List<String> header, String name) {
+        int index = header.indexOf(name);
+        if (index < 0) {
+            throw new InvalidImportFileException("CSV header must contain name, email and password columns");
+        }
+        return index;
+    }
+
+    private static User.Role parseRole(String value, int line) {
+        try {
+            return User.Role.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidImportFileException("Unknown role '" + value + "' on line " + line);
+        }
+    }
+
+    // One record, or null at end of input. Quoted fields may contain separators, quotes and line breaks.
+    private static List<String> nextRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -1,32 +1,88 @@
 package com.test.user.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.user.dto.CursorPage;
 import com.test.user.dto.RegisterRequest;
 import com.test.user.dto.UserDto;
+import com.test.user.directory.UserDirectory;
+import com.test.user.dto.UserImportResult;
 import com.test.user.entity.User;
+import com.test.user.event.UserCreatedEvent;
+import com.test.user.event.UserDeletedEvent;
 import com.test.user.exception.EmailAlreadyExistsException;
+import com.test.user.exception.InvalidImportFileException;
+import com.test.user.repository.UserHierarchyRepository;
 import com.test.user.repository.UserRepository;
+import com.test.user.security.PasswordHashingPool;
+import com.test.user.security.TokenRevocationList;
 import com.test.user.service.UserService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+
+import static com.test.user.repository.UserSpecifications.hasRole;
+import static com.test.user.repository.UserSpecifications.inSubtreeOf;
+import static com.test.user.repository.UserSpecifications.ledBy;
 
 @Service
 @Transactional
 public class userServiceImpl implements UserService {
 
+    static final int MAX_IMPORT_ROWS = 10_000;
+
+    // Rows validated, hashed and inserted together; also the number of emails per uniqueness query
+    private static final int IMPORT_CHUNK_SIZE = 500;
+
     private final UserRepository userRepository;
+    private final UserHierarchyRepository userHierarchyRepository;
+    private final UserDirectory userDirectory;
     private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingPool passwordHashingPool;
+    private final TokenRevocationList tokenRevocationList;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public userServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public userServiceImpl(UserRepository userRepository, UserHierarchyRepository userHierarchyRepository,
+            UserDirectory userDirectory, PasswordEncoder passwordEncoder, PasswordHashingPool passwordHashingPool,
+            TokenRevocationList tokenRevocationList, TransactionTemplate transactionTemplate, Validator validator,
+            ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.userHierarchyRepository = userHierarchyRepository;
+        this.userDirectory = userDirectory;
         this.passwordEncoder = passwordEncoder;
+        this.passwordHashingPool = passwordHashingPool;
+        this.tokenRevocationList = tokenRevocationList;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -41,7 +97,7 @@ public class userServiceImpl implements UserService {
         user.setPassword(passwordEncoder.encode(request.getPassword()));
         user.setRole(request.getRole());
 
-        return userRepository.save(user);
+        return saveWithHierarchy(user);
     }
 
     @Override
@@ -52,10 +108,7 @@ public class userServiceImpl implements UserService {
 
     @Override
     public User createTeamLeader(RegisterRequest request, UUID managerId) {
-        User manager = userRepository.findById(managerId)
-                .orElseThrow(() -> new RuntimeException("Manager not found"));
-
-        if (manager.getRole() != User.Role.MANAGER) {
+        if (roleOf(managerId, "Manager not found") != User.Role.MANAGER) {
             throw new RuntimeException("Only managers can create team leaders");
         }
 
@@ -68,17 +121,14 @@ public class userServiceImpl implements UserService {
         teamLeader.setEmail(request.getEmail());
         teamLeader.setPassword(passwordEncoder.encode(request.getPassword()));
         teamLeader.setRole(User.Role.TEAM_LEADER);
-        teamLeader.setLeader(manager);
+        teamLeader.setLeader(userRepository.getReferenceById(managerId));
 
-        return userRepository.save(teamLeader);
+        return saveWithHierarchy(teamLeader);
     }
 
     @Override
     public User createTeamHelpDesk(RegisterRequest request, UUID managerId) {
-        User manager = userRepository.findById(managerId)
-                .orElseThrow(() -> new RuntimeException("Manager not found"));
-
-        if (manager.getRole() != User.Role.MANAGER) {
+        if (roleOf(managerId, "Manager not found") != User.Role.MANAGER) {
             throw new RuntimeException("Only managers can create team help desks");
         }
 
@@ -91,18 +141,14 @@ public class userServiceImpl implements UserService {
         teamHelpDesk.setEmail(request.getEmail());
         teamHelpDesk.setPassword(passwordEncoder.encode(request.getPassword()));
         teamHelpDesk.setRole(User.Role.HELP_DESK);
-        teamHelpDesk.setLeader(manager);
+        teamHelpDesk.setLeader(userRepository.getReferenceById(managerId));
 
-        System.out.println("teamHelpDesk: " + teamHelpDesk);
-        return userRepository.save(teamHelpDesk);
+        return saveWithHierarchy(teamHelpDesk);
     }
 
     @Override
     public User createEmployee(RegisterRequest request, UUID leaderId) {
-        User leader = userRepository.findById(leaderId)
-                .orElseThrow(() -> new RuntimeException("Team leader not found"));
-
-        if (leader.getRole() != User.Role.TEAM_LEADER) {
+        if (roleOf(leaderId, "Team leader not found") != User.Role.TEAM_LEADER) {
             throw new RuntimeException("Only team leaders can create employees");
         }
 
@@ -115,45 +161,166 @@ public class userServiceImpl implements UserService {
         employee.setEmail(request.getEmail());
         employee.setPassword(passwordEncoder.encode(request.getPassword()));
         employee.setRole(User.Role.EMPLOYEE);
-        employee.setLeader(leader);
+        employee.setLeader(userRepository.getReferenceById(leaderId));
 
-        return userRepository.save(employee);
+        return saveWithHierarchy(employee);
     }
 
     @Override
-    public List<UserDto> getTeamLeadersByManager(UUID managerId) {
-        User manager = userRepository.findById(managerId)
-                .orElseThrow(() -> new RuntimeException("Manager not found"));
+    public List<RegisterRequest> readImportCsv(InputStream in) throws IOException {
+        return UserImportCsvReader.read(new InputStreamReader(in, StandardCharsets.UTF_8), MAX_IMPORT_ROWS);
+    }
 
-        if (manager.getRole() != User.Role.MANAGER) {
-            throw new RuntimeException("User is not a manager");
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void importUsers(List<RegisterRequest> rows, UUID importerId, OutputStream out) throws IOException {
+        if (rows.size() > MAX_IMPORT_ROWS) {
+            throw new InvalidImportFileException("At most " + MAX_IMPORT_ROWS + " users can be imported at once");
+        }
+        User.Role importerRole = roleOf(importerId, "User not found");
+        if (importerRole != User.Role.MANAGER && importerRole != User.Role.TEAM_LEADER) {
+            throw new RuntimeException("Only managers or team leaders can import users");
+        }
+
+        // Emails seen earlier in this import, lower-cased
+        Set<String> seenEmails = new HashSet<>();
+        for (int start = 0; start < rows.size(); start += IMPORT_CHUNK_SIZE) {
+            List<RegisterRequest> chunk = rows.subList(start, Math.min(start + IMPORT_CHUNK_SIZE, rows.size()));
+            for (UserImportResult result : importChunk(chunk, start + 1, importerId, importerRole, seenEmails)) {
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+            }
+            out.flush();
+        }
+    }
+
+    // Validates, hashes and inserts one chunk. Hashing runs before the transaction, so no connection
+    // is held while the CPU pool works.
+    private UserImportResult[] importChunk(List<RegisterRequest> chunk, int firstRow, UUID importerId,
+            User.Role importerRole, Set<String> seenEmails) {
+        UserImportResult[] results = new UserImportResult[chunk.size()];
+        List<Integer> accepted = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            RegisterRequest row = chunk.get(i);
+            String error = validateImportRow(row, importerRole);
+            if (error == null && !seenEmails.add(row.getEmail().toLowerCase(Locale.ROOT))) {
+                error = "Email appears more than once in the import";
+            }
+            if (error != null) {
+                results[i] = UserImportResult.failed(firstRow + i, row.getEmail(), error);
+            } else {
+                accepted.add(i);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return results;
+        }
+
+        // The lookup matches case-insensitively under the column collation and returns the stored
+        // spelling, so both sides are compared lower-cased
+        Set<String> existing = new HashSet<>();
+        userRepository.findExistingEmails(accepted.stream().map(i -> chunk.get(i).getEmail()).toList())
+                .forEach(email -> existing.add(email.toLowerCase(Locale.ROOT)));
+        accepted.removeIf(i -> {
+            if (existing.contains(chunk.get(i).getEmail().toLowerCase(Locale.ROOT))) {
+                results[i] = UserImportResult.failed(firstRow + i, chunk.get(i).getEmail(), "Email already in use");
+                return true;
+            }
+            return false;
+        });
+        if (accepted.isEmpty()) {
+            return results;
+        }
+
+        List<String> hashes = passwordHashingPool.encodeAll(
+                accepted.stream().map(i -> chunk.get(i).getPassword()).toList());
+        try {
+            List<User> saved = transactionTemplate.execute(status -> {
+                User leader = userRepository.getReferenceById(importerId);
+                List<User> users = new ArrayList<>(accepted.size());
+                for (int j = 0; j < accepted.size(); j++) {
+                    RegisterRequest row = chunk.get(accepted.get(j));
+                    User user = new User();
+                    user.setName(row.getName());
+                    user.setEmail(row.getEmail());
+                    user.setPassword(hashes.get(j));
+                    user.setRole(importedRole(row, importerRole));
+                    user.setLeader(leader);
+                    users.add(user);
+                }
+                List<User> savedUsers = userRepository.saveAll(users);
+                userHierarchyRepository.addUsers(savedUsers.stream().map(User::getId).toList());
+                savedUsers.forEach(user -> eventPublisher.publishEvent(UserCreatedEvent.of(user)));
+                return savedUsers;
+            });
+            for (int j = 0; j < accepted.size(); j++) {
+                results[accepted.get(j)] = UserImportResult.succeeded(firstRow + accepted.get(j), saved.get(j));
+            }
+        } catch (DataAccessException e) {
+            // Usually an email registered concurrently; the whole chunk was rolled back
+            for (int i : accepted) {
+                results[i] = UserImportResult.failed(firstRow + i, chunk.get(i).getEmail(),
+                        "Could not save user, the chunk was rolled back");
+            }
         }
+        return results;
+    }
+
+    private String validateImportRow(RegisterRequest row, User.Role importerRole) {
+        Set<ConstraintViolation<RegisterRequest>> violations = validator.validate(row);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                    .map(ConstraintViolation::getMessage)
+                    .findFirst()
+                    .orElseThrow();
+        }
+        User.Role role = importedRole(row, importerRole);
+        boolean allowed = importerRole == User.Role.MANAGER
+                ? role == User.Role.TEAM_LEADER || role == User.Role.HELP_DESK
+                : role == User.Role.EMPLOYEE;
+        return allowed ? null : "A " + importerRole + " cannot create users with role " + role;
+    }
 
-        return userRepository.findByLeaderId(managerId).stream()
-                .filter(user -> user.getRole() == User.Role.TEAM_LEADER)
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+    // Managers import team leaders (or help desks), team leaders import employees
+    private User.Role importedRole(RegisterRequest row, User.Role importerRole) {
+        if (row.getRole() != null) {
+            return row.getRole();
+        }
+        return importerRole == User.Role.MANAGER ? User.Role.TEAM_LEADER : User.Role.EMPLOYEE;
     }
 
     @Override
-    public List<UserDto> getEmployeesByLeader(UUID leaderId) {
-        User leader = userRepository.findById(leaderId)
-                .orElseThrow(() -> new RuntimeException("Team leader not found"));
+    public CursorPage<UserDto> getTeamLeadersByManager(UUID managerId, String cursor, Integer limit) {
+        if (roleOf(managerId, "Manager not found") != User.Role.MANAGER) {
+            throw new RuntimeException("User is not a manager");
+        }
+
+        return findPage(ledBy(managerId).and(hasRole(User.Role.TEAM_LEADER)), cursor, limit);
+    }
 
-        if (leader.getRole() != User.Role.TEAM_LEADER) {
+    @Override
+    public CursorPage<UserDto> getEmployeesByLeader(UUID leaderId, String cursor, Integer limit) {
+        if (roleOf(leaderId, "Team leader not found") != User.Role.TEAM_LEADER) {
             throw new RuntimeException("User is not a team leader");
         }
 
-        return userRepository.findByLeaderId(leaderId).stream()
-                .filter(user -> user.getRole() == User.Role.EMPLOYEE)
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+        return findPage(ledBy(leaderId).and(hasRole(User.Role.EMPLOYEE)), cursor, limit);
+    }
+
+    @Override
+    public CursorPage<UserDto> getSubordinates(UUID leaderId, User.Role role, String cursor, Integer limit) {
+        Specification<User> query = inSubtreeOf(leaderId);
+        if (role != null) {
+            query = query.and(hasRole(role));
+        }
+        return findPage(query, cursor, limit);
     }
 
     @Override
     public UserDto getUserById(UUID id) {
         return userRepository.findById(id)
-                .map(this::mapToDto)
+                .map(userServiceImpl::mapToDto)
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
@@ -162,10 +329,43 @@ public class userServiceImpl implements UserService {
         if (!userRepository.existsById(id)) {
             throw new RuntimeException("User not found");
         }
+        userHierarchyRepository.deleteUser(id);
         userRepository.deleteById(id);
+        eventPublisher.publishEvent(new UserDeletedEvent(id));
+        // Outstanding access tokens would otherwise stay valid until they expire
+        tokenRevocationList.revokeAllForUser(id);
+    }
+
+    // Saves a new user and links it into the org chart below its leader
+    private User saveWithHierarchy(User user) {
+        User saved = userRepository.save(user);
+        userHierarchyRepository.addUsers(List.of(saved.getId()));
+        eventPublisher.publishEvent(UserCreatedEvent.of(saved));
+        return saved;
+    }
+
+    // The user's role from the directory, or from the database for users it doesn't know yet
+    private User.Role roleOf(UUID userId, String notFoundMessage) {
+        User.Role role = userDirectory.roleOf(userId);
+        if (role == null) {
+            role = userRepository.findById(userId)
+                    .map(User::getRole)
+                    .orElseThrow(() -> new RuntimeException(notFoundMessage));
+        }
+        return role;
+    }
+
+    // One keyset page, newest first, of the users matching the query
+    private CursorPage<UserDto> findPage(Specification<User> query, String cursor, Integer limit) {
+        ScrollPosition position = KeysetCursors.decode(cursor);
+        Window<User> window = userRepository.findBy(query, q -> q
+                .sortBy(KeysetCursors.NEWEST_FIRST)
+                .limit(KeysetCursors.pageSize(limit))
+                .scroll(position));
+        return KeysetCursors.toPage(window, userServiceImpl::mapToDto);
     }
 
-    private UserDto mapToDto(User user) {
+    static UserDto mapToDto(User user) {
         UserDto dto = new UserDto();
         dto.setId(user.getId());
         dto.setName(user.getName());
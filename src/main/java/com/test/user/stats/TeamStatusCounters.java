@@ -0,0 +1,97 @@
+package com.test.user.stats;
+
+import com.test.user.entity.MailRequest;
+import com.test.user.event.MailRequestCreatedEvent;
+import com.test.user.event.MailRequestReviewedEvent;
+import com.test.user.repository.MailRequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of requests per team (the requester's leader) and status, for the dashboard headers.
+ * <p>
+ * Every committed create and review moves a request between two counters, so reading a team's
+ * counts is a map lookup. The counters are striped {@link LongAdder}s, so concurrent reviews of
+ * one team don't contend. They are recounted from the database at startup and periodically,
+ * which corrects drift from writes made by other instances or committed while a recount ran.
+ */
+@Component
+public class TeamStatusCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(TeamStatusCounters.class);
+
+    private static final MailRequest.Status[] STATUSES = MailRequest.Status.values();
+
+    private final MailRequestRepository mailRequestRepository;
+
+    // Per leader, one counter per status ordinal; replaced as a whole on reconciliation
+    private volatile Map<UUID, LongAdder[]> counters = new ConcurrentHashMap<>();
+
+    public TeamStatusCounters(MailRequestRepository mailRequestRepository) {
+        this.mailRequestRepository = mailRequestRepository;
+    }
+
+    @TransactionalEventListener
+    public void onCreated(MailRequestCreatedEvent event) {
+        if (event.leaderId() != null && event.status() != null) {
+            countersOf(counters, event.leaderId())[event.status().ordinal()].increment();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onReviewed(MailRequestReviewedEvent event) {
+        if (event.leaderId() == null || event.previousStatus() == event.status()) {
+            return;
+        }
+        LongAdder[] team = countersOf(counters, event.leaderId());
+        if (event.previousStatus() != null) {
+            team[event.previousStatus().ordinal()].decrement();
+        }
+        team[event.status().ordinal()].increment();
+    }
+
+    /**
+     * The team's count for every status, zero included.
+     */
+    public Map<MailRequest.Status, Long> countsFor(UUID leaderId) {
+        LongAdder[] team = counters.get(leaderId);
+        Map<MailRequest.Status, Long> counts = new EnumMap<>(MailRequest.Status.class);
+        for (MailRequest.Status status : STATUSES) {
+            counts.put(status, team == null ? 0L : Math.max(0L, team[status.ordinal()].sum()));
+        }
+        return counts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${stats.reconcile-interval:PT5M}",
+            initialDelayString = "${stats.reconcile-interval:PT5M}")
+    public synchronized void reconcile() {
+        Map<UUID, LongAdder[]> recounted = new ConcurrentHashMap<>();
+        for (MailRequestRepository.TeamStatusCount count : mailRequestRepository.countByTeamAndStatus()) {
+            countersOf(recounted, count.getLeaderId())[count.getStatus().ordinal()].add(count.getCount());
+        }
+        counters = recounted;
+        log.debug("Recounted mail request statuses of {} teams", recounted.size());
+    }
+
+    private static LongAdder[] countersOf(Map<UUID, LongAdder[]> counters, UUID leaderId) {
+        return counters.computeIfAbsent(leaderId, id -> {
+            LongAdder[] team = new LongAdder[STATUSES.length];
+            for (int i = 0; i < team.length; i++) {
+                team[i] = new LongAdder();
+            }
+            return team;
+        });
+    }
+}
@@ -0,0 +1,400 @@
+package com.test.user.stream;
+
+import com.test.user.directory.UserDirectory;
+import com.test.user.entity.User;
+import com.test.user.escalation.EscalationProperties;
+import com.test.user.escalation.MailRequestEscalatedEvent;
+import com.test.user.event.MailRequestCreatedEvent;
+import com.test.user.event.MailRequestReviewedEvent;
+import com.test.user.repository.UserHierarchyRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent events for the pending queue dashboards, so they no longer poll the queue queries.
+ * <p>
+ * Committed creates, reviews and escalations become {@link QueueDelta}s addressed to the users
+ * whose queues show the request: every leader above the requester (/pending and
+ * /pending/action-required) and, once the request has escalated to a role, every subscriber with
+ * that role (/leader/pending-approval, /help-desk/pending-approval). Deltas are numbered and the
+ * most recent ones are kept, so a client reconnecting with {@code Last-Event-ID} gets what it
+ * missed, or a {@code reset} event telling it to refetch when it missed too much. Event ids carry
+ * a token picked at startup, so an id from another instance or from before a restart also gets a
+ * {@code reset} rather than a replay of unrelated deltas.
+ * <p>
+ * An idle subscription is an async request and a small object, without a thread. Each one has a
+ * bounded queue drained by a shared sender pool; a client too slow to keep it from filling up is
+ * disconnected and resumes from its last event on reconnect. Servlet writes block, so a client
+ * that stops reading altogether would hold a sender thread until the container's write timeout:
+ * a send running longer than {@code sse.send-timeout} closes the stream and the pool gets a
+ * replacement thread until the blocked write returns. Heartbeat comments keep proxies from
+ * closing idle streams.
+ * <p>
+ * Deltas only cover writes made through this instance.
+ */
+@Component
+public class PendingQueueStream {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingQueueStream.class);
+
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT =
+            SseEmitter.event().comment("heartbeat").build();
+
+    private final UserDirectory userDirectory;
+    private final UserHierarchyRepository userHierarchyRepository;
+    private final EscalationProperties escalationProperties;
+    private final long timeoutMillis;
+    private final int queueCapacity;
+    private final long sendTimeoutNanos;
+    private final ThreadPoolExecutor sender;
+
+    private final Map<UUID, Set<Subscription>> byUser = new ConcurrentHashMap<>();
+    private final Map<User.Role, Set<Subscription>> byRole = new EnumMap<>(User.Role.class);
+
+    // Recent deltas by id modulo the length, for resuming; guarded by this
+    private final Published[] recent;
+    private long nextId = 1;
+    // Event ids are "<epoch>.<sequence>"
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+
+    public PendingQueueStream(UserDirectory userDirectory,
+                              UserHierarchyRepository userHierarchyRepository,
+                              EscalationProperties escalationProperties,
+                              @Value("${sse.timeout:PT30M}") Duration timeout,
+                              @Value("${sse.queue-capacity:64}") int queueCapacity,
+                              @Value("${sse.replay-capacity:4096}") int replayCapacity,
+                              @Value("${sse.sender-threads:2}") int senderThreads,
+                              @Value("${sse.send-timeout:PT10S}") Duration sendTimeout) {
+        this.userDirectory = userDirectory;
+        this.userHierarchyRepository = userHierarchyRepository;
+        this.escalationProperties = escalationProperties;
+        this.timeoutMillis = timeout.toMillis();
+        this.queueCapacity = queueCapacity;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.recent = new Published[replayCapacity];
+        for (User.Role role : User.Role.values()) {
+            byRole.put(role, ConcurrentHashMap.newKeySet());
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "sse-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a stream of the deltas addressed to the user, starting after {@code lastEventId}
+     * when the client is resuming.
+     */
+    public SseEmitter subscribe(UUID userId, User.Role role, String lastEventId) {
+        SseEmitter emitter = newEmitter(timeoutMillis);
+        Subscription subscription = new Subscription(userId, role, emitter);
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> unsubscribe(subscription));
+
+        // Replaying and registering under the publishing lock, so nothing is missed or sent twice
+        synchronized (this) {
+            if (lastEventId != null) {
+                sendEarly(emitter, replay(subscription, lastEventId));
+            }
+            byUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+            byRole.get(role).add(subscription);
+        }
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return byUser.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @TransactionalEventListener
+    public void onCreated(MailRequestCreatedEvent event) {
+        publish(QueueDelta.of(event), leadersAbove(event.userId()), EnumSet.noneOf(User.Role.class));
+    }
+
+    @TransactionalEventListener
+    public void onReviewed(MailRequestReviewedEvent event) {
+        publish(QueueDelta.of(event), leadersAbove(event.userId()), escalatedRoles(event.createdAt()));
+    }
+
+    // Escalations are found by a scheduled tick, outside any transaction
+    @EventListener
+    public void onEscalated(MailRequestEscalatedEvent event) {
+        publish(QueueDelta.of(event), List.of(), EnumSet.of(event.escalatedTo()));
+    }
+
+    @Scheduled(fixedDelayString = "${sse.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        byUser.values().forEach(subscriptions -> subscriptions.forEach(subscription -> subscription.offer(HEARTBEAT)));
+    }
+
+    @Scheduled(fixedDelayString = "${sse.stall-check-interval:PT1S}")
+    public void closeStalledStreams() {
+        long now = System.nanoTime();
+        byUser.values().forEach(subscriptions -> subscriptions.forEach(subscription -> subscription.abandonIfStalled(now)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        byUser.values().forEach(subscriptions -> subscriptions.forEach(subscription -> subscription.emitter.complete()));
+    }
+
+    private synchronized void publish(QueueDelta delta, List<UUID> users, Set<User.Role> roles) {
+        long id = nextId++;
+        Published published = new Published(id, Set.copyOf(users), roles, SseEmitter.event()
+                .id(eventId(id))
+                .name(delta.type().name().toLowerCase())
+                .data(delta, MediaType.APPLICATION_JSON)
+                .build());
+        recent[(int) (published.id() % recent.length)] = published;
+
+        // A user subscribed both directly and by role gets the delta once
+        Set<Subscription> audience = new HashSet<>();
+        for (UUID userId : users) {
+            audience.addAll(byUser.getOrDefault(userId, Set.of()));
+        }
+        for (User.Role role : roles) {
+            audience.addAll(byRole.get(role));
+        }
+        audience.forEach(subscription -> subscription.offer(published.frames()));
+    }
+
+    // What a client resuming after the id missed, or a reset; guarded by this
+    private List<Set<ResponseBodyEmitter.DataWithMediaType>> replay(Subscription subscription, String lastEventId) {
+        long last = sequenceOf(lastEventId);
+        long oldest = Math.max(1, nextId - recent.length);
+        if (last < 0 || last >= nextId || last + 1 < oldest) {
+            return List.of(reset("Unknown or expired event id; fetch the queues again"));
+        }
+        List<Set<ResponseBodyEmitter.DataWithMediaType>> missed = new ArrayList<>();
+        for (long id = last + 1; id < nextId; id++) {
+            Published published = recent[(int) (id % recent.length)];
+            if (published.users().contains(subscription.userId) || published.roles().contains(subscription.role)) {
+                missed.add(published.frames());
+            }
+        }
+        // More than a client's queue holds is cheaper to refetch than to buffer
+        if (missed.size() > queueCapacity) {
+            return List.of(reset("Missed too many events; fetch the queues again"));
+        }
+        return missed;
+    }
+
+    // Carries the latest id, so the client resumes from here after refetching
+    private Set<ResponseBodyEmitter.DataWithMediaType> reset(String reason) {
+        return SseEmitter.event().id(eventId(nextId - 1)).name("reset").data(reason).build();
+    }
+
+    // Until the handler returns it, an emitter only buffers what is sent; the request thread writes
+    // that out while it sets up the response, so replayed events never race the response headers
+    private static void sendEarly(SseEmitter emitter, List<Set<ResponseBodyEmitter.DataWithMediaType>> events) {
+        try {
+            for (Set<ResponseBodyEmitter.DataWithMediaType> frames : events) {
+                emitter.send(frames);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "." + sequence;
+    }
+
+    // The sequence of an id this instance issued since it started, or -1
+    private long sequenceOf(String eventId) {
+        int separator = eventId.lastIndexOf('.');
+        if (separator < 0 || !eventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Overridden by tests to stand in for clients that stop reading
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    // Grows the pool while a thread is stuck in an abandoned write, and shrinks it back afterwards
+    private void resizeSender(int delta) {
+        synchronized (sender) {
+            if (delta > 0) {
+                sender.setMaximumPoolSize(sender.getMaximumPoolSize() + delta);
+                sender.setCorePoolSize(sender.getCorePoolSize() + delta);
+            } else {
+                sender.setCorePoolSize(sender.getCorePoolSize() + delta);
+                sender.setMaximumPoolSize(sender.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        subscription.close();
+        byUser.computeIfPresent(subscription.userId, (id, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+        byRole.get(subscription.role).remove(subscription);
+    }
+
+    private List<UUID> leadersAbove(UUID userId) {
+        List<UUID> leaders = userDirectory.ancestorsOf(userId);
+        return leaders != null ? leaders : userHierarchyRepository.findAncestorIds(userId);
+    }
+
+    // Roles whose escalation queue the request was in when it was reviewed
+    private Set<User.Role> escalatedRoles(LocalDateTime createdAt) {
+        Set<User.Role> roles = EnumSet.noneOf(User.Role.class);
+        LocalDateTime now = LocalDateTime.now();
+        escalationProperties.getThresholds().forEach((role, threshold) -> {
+            if (!createdAt.plus(threshold).isAfter(now)) {
+                roles.add(role);
+            }
+        });
+        return roles;
+    }
+
+    private record Published(long id, Set<UUID> users, Set<User.Role> roles,
+                             Set<ResponseBodyEmitter.DataWithMediaType> frames) {
+    }
+
+    /**
+     * One open stream. Frames queue up here and one sender task at a time writes them out.
+     */
+    private final class Subscription {
+
+        final UUID userId;
+        final User.Role role;
+        final SseEmitter emitter;
+
+        // Guarded by this
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> pending = new ArrayDeque<>();
+        private boolean draining;
+        private boolean closed;
+        // The thread of the send in progress and when it started
+        private Thread sendingThread;
+        private long sendStartedAt;
+        private boolean stalled;
+
+        Subscription(UUID userId, User.Role role, SseEmitter emitter) {
+            this.userId = userId;
+            this.role = role;
+            this.emitter = emitter;
+        }
+
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> frames) {
+            boolean drop;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                drop = pending.size() >= queueCapacity;
+                if (!drop) {
+                    pending.add(frames);
+                    if (!draining) {
+                        draining = true;
+                        sender.execute(this::drain);
+                    }
+                }
+            }
+            if (drop) {
+                log.debug("Dropping slow event stream of user {}", userId);
+                unsubscribe(this);
+                emitter.complete();
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            pending.clear();
+        }
+
+        void abandonIfStalled(long now) {
+            synchronized (this) {
+                if (sendingThread == null || stalled || now - sendStartedAt < sendTimeoutNanos) {
+                    return;
+                }
+                stalled = true;
+                // Still inside the stalled send, which clears sendingThread under this lock
+                sendingThread.interrupt();
+            }
+            log.debug("Closing stalled event stream of user {}", userId);
+            unsubscribe(this);
+            resizeSender(1);
+        }
+
+        private void drain() {
+            while (true) {
+                Set<ResponseBodyEmitter.DataWithMediaType> frames;
+                synchronized (this) {
+                    frames = pending.poll();
+                    if (frames == null) {
+                        draining = false;
+                        return;
+                    }
+                    sendingThread = Thread.currentThread();
+                    sendStartedAt = System.nanoTime();
+                }
+                boolean failed = false;
+                try {
+                    emitter.send(frames);
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away; the container reports it through onError/onCompletion too
+                    failed = true;
+                }
+                boolean abandoned;
+                synchronized (this) {
+                    sendingThread = null;
+                    abandoned = stalled;
+                }
+                if (abandoned) {
+                    Thread.interrupted();
+                    resizeSender(-1);
+                    emitter.complete();
+                    return;
+                }
+                if (failed) {
+                    unsubscribe(this);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.test.user.stream;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.test.user.entity.MailRequest;
+import com.test.user.entity.User;
+import com.test.user.escalation.MailRequestEscalatedEvent;
+import com.test.user.event.MailRequestCreatedEvent;
+import com.test.user.event.MailRequestReviewedEvent;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One change to a request in somebody's pending queue. Dashboards apply it to the queue they
+ * already show (add, update or drop the request) instead of fetching the queue again.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record QueueDelta(
+        Type type,
+        UUID requestId,
+        UUID userId,
+        MailRequest.Status previousStatus,
+        MailRequest.Status status,
+        Boolean managerApproved,
+        UUID reviewerId,
+        User.Role escalatedTo,
+        LocalDateTime createdAt,
+        LocalDateTime reviewedAt) {
+
+    public enum Type {
+        CREATED,
+        REVIEWED,
+        ESCALATED
+    }
+
+    static QueueDelta of(MailRequestCreatedEvent event) {
+        return new QueueDelta(Type.CREATED, event.requestId(), event.userId(), null, event.status(), null,
+                null, null, event.createdAt(), null);
+    }
+
+    static QueueDelta of(MailRequestReviewedEvent event) {
+        return new QueueDelta(Type.REVIEWED, event.requestId(), event.userId(), event.previousStatus(),
+                event.status(), event.managerApproved(), event.reviewerId(), null, event.createdAt(),
+                event.reviewedAt());
+    }
+
+    static QueueDelta of(MailRequestEscalatedEvent event) {
+        return new QueueDelta(Type.ESCALATED, event.requestId(), null, null, null, null, null,
+                event.escalatedTo(), event.createdAt(), null);
+    }
+}
@@ -0,0 +1,5 @@
+-- Each rotation creates the next generation of signing key. The unique index lets exactly one
+-- instance create a generation; keys created before this migration have none.
+
+alter table signing_keys add column generation bigint;
+create unique index uk_signing_keys_generation on signing_keys (generation);
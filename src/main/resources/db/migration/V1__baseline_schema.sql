@@ -0,0 +1,32 @@
+-- Schema as previously created by spring.jpa.hibernate.ddl-auto=update.
+-- Existing databases are baselined at this version and skip this script.
+
+create table users (
+    id binary(16) not null,
+    name varchar(255) not null,
+    email varchar(255) not null,
+    password varchar(255) not null,
+    role enum ('EMPLOYEE','TEAM_LEADER','MANAGER','HELP_DESK') not null,
+    leader_id binary(16),
+    primary key (id),
+    constraint uk_users_email unique (email),
+    constraint fk_users_leader foreign key (leader_id) references users (id)
+);
+
+create table mail_requests (
+    id binary(16) not null,
+    subject varchar(255) not null,
+    body varchar(2000) not null,
+    user_id binary(16) not null,
+    manager_id binary(16),
+    team_leader_id binary(16),
+    manager_approved bit,
+    status enum ('HD_REQ','HD_ACCEPT','HD_REJECT','MANAGER_ACCEPT','MANAGER_REJECT','TL_ACCEPT','TL_REJECT'),
+    comments varchar(500),
+    created_at datetime(6) not null,
+    reviewed_at datetime(6),
+    primary key (id),
+    constraint fk_mail_requests_user foreign key (user_id) references users (id),
+    constraint fk_mail_requests_manager foreign key (manager_id) references users (id),
+    constraint fk_mail_requests_team_leader foreign key (team_leader_id) references users (id)
+);
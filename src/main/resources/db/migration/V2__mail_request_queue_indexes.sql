@@ -0,0 +1,8 @@
+-- Back the queue queries in MailRequestRepository:
+--   requester history       -> (user_id, status)
+--   pending / escalations    -> (manager_approved, created_at)
+--   status-ordered listings  -> (status, created_at)
+
+create index idx_mail_requests_user_status on mail_requests (user_id, status);
+create index idx_mail_requests_approved_created on mail_requests (manager_approved, created_at);
+create index idx_mail_requests_status_created on mail_requests (status, created_at);
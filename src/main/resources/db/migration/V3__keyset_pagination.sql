@@ -0,0 +1,6 @@
+-- Keyset pagination orders every listing on (created_at, id).
+
+alter table users add column created_at datetime(6) not null default current_timestamp(6);
+
+create index idx_users_leader_role_created on users (leader_id, role, created_at);
+create index idx_mail_requests_user_created on mail_requests (user_id, created_at);
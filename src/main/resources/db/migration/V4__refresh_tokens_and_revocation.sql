@@ -0,0 +1,33 @@
+-- Rotating refresh tokens and the persisted access token revocation list.
+
+create table refresh_tokens (
+    id binary(16) not null,
+    user_id binary(16) not null,
+    family_id binary(16) not null,
+    token_hash binary(32) not null,
+    created_at datetime(6) not null,
+    expires_at datetime(6) not null,
+    used_at datetime(6),
+    revoked_at datetime(6),
+    primary key (id),
+    constraint uk_refresh_tokens_hash unique (token_hash),
+    constraint fk_refresh_tokens_user foreign key (user_id) references users (id) on delete cascade
+);
+
+create index idx_refresh_tokens_family on refresh_tokens (family_id);
+
+-- Single access tokens (by jti), kept until the token would have expired anyway
+create table revoked_tokens (
+    jti binary(16) not null,
+    expires_at datetime(6) not null,
+    primary key (jti)
+);
+
+create index idx_revoked_tokens_expires on revoked_tokens (expires_at);
+
+-- Every access token of the user issued before the cutoff is revoked
+create table user_token_cutoffs (
+    user_id binary(16) not null,
+    revoked_before datetime(6) not null,
+    primary key (user_id)
+);
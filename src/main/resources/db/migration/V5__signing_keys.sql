@@ -0,0 +1,13 @@
+-- Asymmetric token signing keys, shared by every instance.
+-- A key is published (JWKS) from creation, signs from activates_at and verifies until retires_at.
+
+create table signing_keys (
+    kid varchar(64) not null,
+    algorithm varchar(16) not null,
+    public_key varbinary(512) not null,
+    private_key varbinary(512) not null,
+    created_at datetime(6) not null,
+    activates_at datetime(6) not null,
+    retires_at datetime(6),
+    primary key (kid)
+);
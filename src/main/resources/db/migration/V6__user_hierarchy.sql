@@ -0,0 +1,27 @@
+-- Closure table of the org chart: one row per (ancestor, descendant) pair, including each user
+-- paired with itself at depth 0, so a whole subtree is a single lookup on the primary key.
+
+create table user_hierarchy (
+    ancestor_id binary(16) not null,
+    descendant_id binary(16) not null,
+    depth int not null,
+    primary key (ancestor_id, descendant_id),
+    constraint fk_user_hierarchy_ancestor foreign key (ancestor_id) references users (id),
+    constraint fk_user_hierarchy_descendant foreign key (descendant_id) references users (id)
+);
+
+-- Ancestors of a user, for linking new reports and for deletes
+create index idx_user_hierarchy_descendant on user_hierarchy (descendant_id, ancestor_id);
+
+-- Backfill from users.leader_id by walking every user up to the root.
+-- The cast is a no-op on MySQL; H2 types recursive columns as strings until it has run the anchor.
+insert into user_hierarchy (ancestor_id, descendant_id, depth)
+with recursive paths (ancestor_id, descendant_id, depth) as (
+    select id, id, 0 from users
+    union all
+    select u.leader_id, p.descendant_id, p.depth + 1
+    from paths p
+    join users u on u.id = cast(p.ancestor_id as binary(16))
+    where u.leader_id is not null
+)
+select ancestor_id, descendant_id, depth from paths;
@@ -0,0 +1,2 @@
+-- Optimistic locking for reviews: every update is a compare-and-set on the version
+alter table mail_requests add column version bigint not null default 0;
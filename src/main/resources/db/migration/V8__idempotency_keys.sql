@@ -0,0 +1,12 @@
+-- Responses of create and review calls, replayed when a client retries with the same Idempotency-Key
+create table idempotency_keys (
+    user_id binary(16) not null,
+    idempotency_key varchar(255) not null,
+    request_hash binary(32) not null,
+    response_body mediumtext not null,
+    created_at datetime(6) not null,
+    expires_at datetime(6) not null,
+    primary key (user_id, idempotency_key)
+);
+
+create index idx_idempotency_keys_expires on idempotency_keys (expires_at);
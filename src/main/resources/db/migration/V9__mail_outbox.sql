@@ -0,0 +1,21 @@
+-- Mails to send, written in the transaction of the review that triggers them and drained by the dispatcher
+create table mail_outbox (
+    id binary(16) not null,
+    mail_request_id binary(16) not null,
+    recipient varchar(255) not null,
+    reply_to varchar(255),
+    subject varchar(255) not null,
+    body varchar(2000) not null,
+    status varchar(16) not null,
+    attempts int not null default 0,
+    next_attempt_at datetime(6) not null,
+    claim_token binary(16),
+    last_error varchar(500),
+    created_at datetime(6) not null,
+    sent_at datetime(6),
+    primary key (id)
+);
+
+-- Due messages in order, and the claimed batch of one dispatcher run
+create index idx_mail_outbox_due on mail_outbox (status, next_attempt_at);
+create index idx_mail_outbox_claim on mail_outbox (claim_token);
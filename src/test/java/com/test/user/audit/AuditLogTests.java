@@ -0,0 +1,170 @@
+package com.test.user.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class AuditLogTests {
+
+    @TempDir
+    private Path directory;
+
+    private final List<AuditLog> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AuditLog auditLog : opened) {
+            auditLog.shutdown();
+        }
+    }
+
+    @Test
+    void recordsAreNumberedAndFoundBySubject() {
+        AuditLog auditLog = open(DataSize.ofMegabytes(1));
+        UUID request = UUID.randomUUID();
+        UUID reviewer = UUID.randomUUID();
+
+        auditLog.append(record(AuditRecord.Action.MAIL_REQUEST_CREATED, request, null));
+        auditLog.append(record(AuditRecord.Action.USER_CREATED, UUID.randomUUID(), null));
+        auditLog.append(new AuditRecord(0, Instant.parse("2026-10-18T09:30:00.123456Z"),
+                AuditRecord.Action.MAIL_REQUEST_REVIEWED, request, reviewer, "TEAM_LEADER",
+                "HD_REQ", "TL_ACCEPT", "Approved, ünïcode and all"));
+        auditLog.flush();
+
+        List<AuditRecord> history = auditLog.history(request);
+        assertThat(history).extracting(AuditRecord::sequence).containsExactly(1L, 3L);
+        assertThat(history.get(1)).isEqualTo(new AuditRecord(3, Instant.parse("2026-10-18T09:30:00.123456Z"),
+                AuditRecord.Action.MAIL_REQUEST_REVIEWED, request, reviewer, "TEAM_LEADER",
+                "HD_REQ", "TL_ACCEPT", "Approved, ünïcode and all"));
+    }
+
+    @Test
+    void concurrentAppendsAreAllWrittenInOrderAcrossSegments() throws Exception {
+        AuditLog auditLog = open(DataSize.ofKilobytes(4));
+        ExecutorService producers = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 2000; i++) {
+            producers.execute(() -> auditLog.append(record(AuditRecord.Action.USER_CREATED, UUID.randomUUID(), null)));
+        }
+        producers.shutdown();
+        assertThat(producers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        auditLog.flush();
+
+        assertThat(segmentCount()).isGreaterThan(1);
+        List<Long> sequences = new ArrayList<>();
+        auditLog.replay(1, record -> sequences.add(record.sequence()));
+        assertThat(sequences).hasSize(2000).isSorted();
+        assertThat(sequences.get(1999)).isEqualTo(2000L);
+
+        List<Long> tail = new ArrayList<>();
+        auditLog.replay(1990, record -> tail.add(record.sequence()));
+        assertThat(tail).containsExactly(1990L, 1991L, 1992L, 1993L, 1994L, 1995L, 1996L, 1997L, 1998L, 1999L, 2000L);
+    }
+
+    @Test
+    void aTornTailIsCutOffAndNumberingContinues() throws Exception {
+        AuditLog auditLog = open(DataSize.ofMegabytes(1));
+        UUID request = UUID.randomUUID();
+        auditLog.append(record(AuditRecord.Action.MAIL_REQUEST_CREATED, request, null));
+        auditLog.append(record(AuditRecord.Action.MAIL_REQUEST_REVIEWED, request, "first"));
+        auditLog.flush();
+        auditLog.shutdown();
+        opened.remove(auditLog);
+
+        // A crash in the middle of a record: its frame promises more bytes than made it to disk
+        Path segment = lastSegment();
+        Files.write(segment, new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 5, 6}, StandardOpenOption.APPEND);
+
+        AuditLog reopened = open(DataSize.ofMegabytes(1));
+        reopened.append(record(AuditRecord.Action.MAIL_REQUEST_REVIEWED, request, "second"));
+        reopened.flush();
+
+        assertThat(reopened.history(request)).extracting(AuditRecord::sequence, AuditRecord::detail)
+                .containsExactly(
+                        tuple(1L, null),
+                        tuple(2L, "first"),
+                        tuple(3L, "second"));
+    }
+
+    @Test
+    void historyIsIndexedAcrossSegmentsAndRebuiltOnStartup() throws Exception {
+        AuditLog auditLog = open(DataSize.ofKilobytes(4));
+        UUID request = UUID.randomUUID();
+        for (int i = 0; i < 600; i++) {
+            boolean ours = i % 100 == 0;
+            auditLog.append(record(AuditRecord.Action.MAIL_REQUEST_REVIEWED, ours ? request : UUID.randomUUID(),
+                    ours ? "review " + i : null));
+        }
+        auditLog.flush();
+        assertThat(segmentCount()).isGreaterThan(2);
+        List<String> expected = List.of("review 0", "review 100", "review 200", "review 300", "review 400",
+                "review 500");
+        assertThat(auditLog.history(request)).extracting(AuditRecord::detail).isEqualTo(expected);
+        assertThat(auditLog.history(UUID.randomUUID())).isEmpty();
+        auditLog.shutdown();
+        opened.remove(auditLog);
+
+        AuditLog reopened = open(DataSize.ofKilobytes(4));
+        assertThat(reopened.history(request)).extracting(AuditRecord::detail).isEqualTo(expected);
+        assertThat(reopened.history(request)).extracting(AuditRecord::sequence)
+                .containsExactly(1L, 101L, 201L, 301L, 401L, 501L);
+    }
+
+    @Test
+    void oneDirectoryHasOneWriter() {
+        open(DataSize.ofMegabytes(1));
+
+        assertThatThrownBy(() -> open(DataSize.ofMegabytes(1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("in use");
+    }
+
+    private AuditLog open(DataSize segmentSize) {
+        AuditProperties properties = new AuditProperties();
+        properties.setDirectory(directory);
+        properties.setSegmentSize(segmentSize);
+        properties.setRingCapacity(256);
+        properties.setBatchSize(32);
+        // Slow forces on a loaded machine must not drop records the tests count
+        properties.setOfferTimeout(Duration.ofSeconds(10));
+        AuditLog auditLog = new AuditLog(properties, new SimpleMeterRegistry());
+        opened.add(auditLog);
+        return auditLog;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted()
+                    .reduce((first, second) -> second).orElseThrow();
+        }
+    }
+
+    private static AuditRecord record(AuditRecord.Action action, UUID subject, String detail) {
+        return new AuditRecord(0, Instant.now(), action, subject, null, null, null, null, detail);
+    }
+}
@@ -0,0 +1,226 @@
+package com.test.user.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.user.entity.IdempotencyRecord;
+import com.test.user.entity.User;
+import com.test.user.exception.IdempotencyKeyInProgressException;
+import com.test.user.idempotency.IdempotencyStore;
+import com.test.user.metrics.StatementCounter;
+import com.test.user.repository.IdempotencyRecordRepository;
+import com.test.user.repository.MailRequestRepository;
+import com.test.user.repository.UserRepository;
+import com.test.user.security.JwtTokenUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class IdempotencyTests {
+
+    private static final TypeReference<String> TEXT = new TypeReference<>() {
+    };
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MailRequestRepository mailRequestRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    private User employee;
+
+    @BeforeEach
+    void setUp() {
+        employee = new User();
+        employee.setName("Retrier");
+        employee.setEmail("retry-" + UUID.randomUUID() + "@example.com");
+        employee.setPassword("{noop}password");
+        employee.setRole(User.Role.EMPLOYEE);
+        employee = userRepository.save(employee);
+    }
+
+    @Test
+    void retriedCreateReplaysTheFirstResponse() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String id = objectMapper.readTree(create(key, "Access")
+                        .andExpect(status().isCreated())
+                        .andExpect(header().doesNotExist(IdempotencyStore.REPLAYED_HEADER))
+                        .andReturn().getResponse().getContentAsString())
+                .get("id").asText();
+
+        create(key, "Access")
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.id").value(id));
+
+        assertThat(mailRequestRepository.findAll())
+                .filteredOn(request -> request.getUser().getId().equals(employee.getId()))
+                .hasSize(1);
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRejected() throws Exception {
+        String key = UUID.randomUUID().toString();
+        create(key, "Access").andExpect(status().isCreated());
+
+        create(key, "Something else")
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.errors['Idempotency-Key']").exists());
+    }
+
+    @Test
+    void concurrentDuplicatesRunOnce() throws Exception {
+        UUID userId = employee.getId();
+        String key = UUID.randomUUID().toString();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<IdempotencyStore.Result<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                results.add(executor.submit(() -> idempotencyStore.execute(userId, key, "test", Map.of(), TEXT, () -> {
+                    runs.incrementAndGet();
+                    await(release);
+                    return "created";
+                })));
+            }
+            // Let the duplicates reach the running call before it finishes
+            Thread.sleep(200);
+            release.countDown();
+
+            List<Boolean> replayed = new ArrayList<>();
+            for (Future<IdempotencyStore.Result<String>> result : results) {
+                assertThat(result.get().body()).isEqualTo("created");
+                replayed.add(result.get().replayed());
+            }
+            assertThat(runs).hasValue(1);
+            assertThat(replayed).containsOnlyOnce(false);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void duplicateGivesUpWaitingForAStuckCall() throws Exception {
+        IdempotencyStore impatient = new IdempotencyStore(idempotencyRecordRepository, transactionTemplate,
+                objectMapper, statementCounter, Duration.ofHours(1), 100, Duration.ofMillis(100));
+        UUID userId = employee.getId();
+        String key = UUID.randomUUID().toString();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<IdempotencyStore.Result<String>> first = executor.submit(() ->
+                    impatient.execute(userId, key, "test", Map.of(), TEXT, () -> {
+                        running.countDown();
+                        await(release);
+                        return "created";
+                    }));
+            await(running);
+
+            assertThatThrownBy(() -> impatient.execute(userId, key, "test", Map.of(), TEXT, () -> {
+                throw new AssertionError("Must not run again");
+            })).isInstanceOf(IdempotencyKeyInProgressException.class);
+
+            release.countDown();
+            assertThat(first.get().body()).isEqualTo("created");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void storedRecordIsInsertedWithoutMerging() {
+        UUID userId = employee.getId();
+        String key = UUID.randomUUID().toString();
+        idempotencyStore.execute(userId, key, "test", Map.of(), TEXT, () -> "created");
+
+        IdempotencyRecord stored = idempotencyRecordRepository
+                .findById(new IdempotencyRecord.Key(userId, key)).orElseThrow();
+        assertThat(stored.isNew()).isFalse();
+        assertThat(new IdempotencyRecord(userId, key, new byte[0], "\"created\"", null, null).isNew()).isTrue();
+    }
+
+    @Test
+    void storedResponsesOutliveTheCacheAndFailuresAreNotStored() {
+        UUID userId = employee.getId();
+        String key = UUID.randomUUID().toString();
+        assertThatThrownBy(() -> idempotencyStore.execute(userId, key, "test", Map.of(), TEXT, () -> {
+            throw new IllegalStateException("Downstream timeout");
+        })).hasMessage("Downstream timeout");
+
+        idempotencyStore.execute(userId, key, "test", Map.of(), TEXT, () -> "created");
+
+        // A second instance (or this one after a restart) starts with an empty cache
+        IdempotencyStore otherInstance = new IdempotencyStore(idempotencyRecordRepository, transactionTemplate,
+                objectMapper, statementCounter, Duration.ofHours(1), 100, Duration.ofSeconds(10));
+        IdempotencyStore.Result<String> replay = otherInstance.execute(userId, key, "test", Map.of(), TEXT, () -> {
+            throw new AssertionError("Must not run again");
+        });
+        assertThat(replay.body()).isEqualTo("created");
+        assertThat(replay.replayed()).isTrue();
+    }
+
+    private ResultActions create(String key, String subject) throws Exception {
+        return mockMvc.perform(post("/api/mail-requests")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"subject\":\"" + subject + "\",\"body\":\"Please grant access\"}")
+                .header(IdempotencyStore.HEADER, key)
+                .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(employee)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
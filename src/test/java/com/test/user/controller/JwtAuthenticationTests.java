@@ -0,0 +1,118 @@
+package com.test.user.controller;
+
+import com.test.user.entity.User;
+import com.test.user.repository.UserRepository;
+import com.test.user.security.JwtTokenUtil;
+import com.test.user.security.SigningKeyRing;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class JwtAuthenticationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private SigningKeyRing signingKeyRing;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setName("Claims");
+        user.setEmail("claims-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("{noop}password");
+        user.setRole(User.Role.EMPLOYEE);
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void claimsOnlyAuthenticationTrustsTheRoleInTheToken() throws Exception {
+        String token = jwtTokenUtil.generateToken(user);
+        user.setRole(User.Role.MANAGER);
+        userRepository.save(user);
+
+        // The token still says EMPLOYEE, and claims-only mode never reads the stored role
+        team(token).andExpect(status().isForbidden());
+        team(jwtTokenUtil.generateToken(user)).andExpect(status().isOk());
+    }
+
+    @Test
+    void tokensMissingRequiredClaimsAreUnauthorized() throws Exception {
+        for (String claim : new String[]{"userId", "role"}) {
+            Map<String, Object> claims = validClaims();
+            claims.remove(claim);
+            me(sign(claims, true, true)).andExpect(status().isUnauthorized());
+        }
+        me(sign(validClaims(), false, true)).andExpect(status().isUnauthorized());
+        me(sign(validClaims(), true, false)).andExpect(status().isUnauthorized());
+        me(sign(validClaims(), true, true)).andExpect(status().isOk());
+    }
+
+    @Test
+    void tokensWithMalformedClaimsAreUnauthorized() throws Exception {
+        Map<String, Object> claims = validClaims();
+        claims.put("userId", "not-a-uuid");
+        me(sign(claims, true, true)).andExpect(status().isUnauthorized());
+
+        claims = validClaims();
+        claims.put("role", "ADMIN");
+        me(sign(claims, true, true)).andExpect(status().isUnauthorized());
+    }
+
+    private Map<String, Object> validClaims() {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userId", user.getId().toString());
+        claims.put("role", user.getRole().name());
+        return claims;
+    }
+
+    // Signed with the active key, so only the claims can make it invalid
+    private String sign(Map<String, Object> claims, boolean issuedAt, boolean expiration) {
+        SigningKeyRing.ActiveKey key = signingKeyRing.activeKey();
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, key.kid())
+                .setClaims(claims)
+                .setSubject(user.getEmail())
+                .setIssuedAt(issuedAt ? new Date(now) : null)
+                .setExpiration(expiration ? new Date(now + 60_000) : null)
+                .signWith(key.privateKey(), SignatureAlgorithm.ES256)
+                .compact();
+    }
+
+    private ResultActions me(String token) throws Exception {
+        return mockMvc.perform(get("/api/users/" + user.getId())
+                .header("Authorization", "Bearer " + token));
+    }
+
+    private ResultActions team(String token) throws Exception {
+        return mockMvc.perform(get("/api/users/team")
+                .header("Authorization", "Bearer " + token));
+    }
+}
@@ -0,0 +1,79 @@
+package com.test.user.controller;
+
+import com.test.user.entity.User;
+import com.test.user.repository.UserRepository;
+import com.test.user.support.TestUsers;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class LoginTests {
+
+    private static final String PASSWORD = "Password1!";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void loginRehashesLegacyHashesOnce() throws Exception {
+        // Stored before the delegating encoder: no "{bcrypt}" prefix and a lower cost
+        User user = testUsers.create("Login", User.Role.EMPLOYEE, null, new BCryptPasswordEncoder(4).encode(PASSWORD));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        login(user.getEmail(), PASSWORD)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(user.getId().toString()))
+                .andExpect(jsonPath("$.token").isNotEmpty());
+        // The lookup, the rehash and the refresh token insert
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        String rehashed = userRepository.findById(user.getId()).orElseThrow().getPassword();
+        assertThat(rehashed).startsWith("{bcrypt}$2a$10$");
+
+        statistics.clear();
+        login(user.getEmail(), PASSWORD).andExpect(status().isOk());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getPassword()).isEqualTo(rehashed);
+    }
+
+    @Test
+    void wrongPasswordAndUnknownEmailAreRejectedAlike() throws Exception {
+        User user = testUsers.create("Login", User.Role.EMPLOYEE, null, new BCryptPasswordEncoder(4).encode(PASSWORD));
+
+        login(user.getEmail(), "Wrong1!password").andExpect(status().isUnauthorized());
+        login("nobody-" + UUID.randomUUID() + "@example.com", PASSWORD).andExpect(status().isUnauthorized());
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getPassword()).isEqualTo(user.getPassword());
+    }
+
+    private ResultActions login(String email, String password) throws Exception {
+        return mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}"));
+    }
+}
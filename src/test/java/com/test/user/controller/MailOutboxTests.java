@@ -0,0 +1,152 @@
+package com.test.user.controller;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.test.user.entity.MailOutboxMessage;
+import com.test.user.entity.MailRequest;
+import com.test.user.entity.User;
+import com.test.user.mail.MailDispatcher;
+import com.test.user.repository.MailOutboxRepository;
+import com.test.user.repository.MailRequestRepository;
+import com.test.user.security.JwtTokenUtil;
+import com.test.user.support.TestUsers;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MailOutboxTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private MailRequestRepository mailRequestRepository;
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Autowired
+    private MailDispatcher mailDispatcher;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    private final GreenMail smtp = new GreenMail(ServerSetupTest.SMTP);
+
+    private User helpDesk;
+    private User employee;
+
+    @BeforeEach
+    void setUp() {
+        smtp.start();
+        helpDesk = testUsers.create("Outbox", User.Role.HELP_DESK, null);
+        employee = testUsers.create("Outbox", User.Role.EMPLOYEE, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        smtp.stop();
+    }
+
+    @Test
+    void acceptedRequestsAreQueuedWithTheReviewAndSentInTheBackground() throws Exception {
+        MailRequest request = saveRequest("Quarterly report");
+
+        review(request, true).andExpect(status().isOk());
+
+        // Queued by the review's own transaction, not sent yet
+        MailOutboxMessage queued = outboxOf(request).get(0);
+        assertThat(queued.getStatus()).isEqualTo(MailOutboxMessage.Status.PENDING);
+        assertThat(smtp.getReceivedMessages()).isEmpty();
+
+        mailDispatcher.dispatch();
+
+        MimeMessage[] received = smtp.getReceivedMessages();
+        assertThat(received).hasSize(1);
+        assertThat(received[0].getSubject()).isEqualTo("Quarterly report");
+        assertThat(received[0].getReplyTo()[0].toString()).isEqualTo(employee.getEmail());
+        assertThat(received[0].getHeader("X-Mail-Request-Id")[0]).isEqualTo(request.getId().toString());
+        MailOutboxMessage sent = outboxOf(request).get(0);
+        assertThat(sent.getStatus()).isEqualTo(MailOutboxMessage.Status.SENT);
+        assertThat(sent.getSentAt()).isNotNull();
+    }
+
+    @Test
+    void rejectedRequestsSendNothing() throws Exception {
+        MailRequest request = saveRequest("Not this one");
+
+        review(request, false).andExpect(status().isOk());
+
+        assertThat(outboxOf(request)).isEmpty();
+    }
+
+    @Test
+    void failedSendsBackOffAndAreDeadLetteredAfterTheLastAttempt() throws Exception {
+        MailRequest request = saveRequest("Server down");
+        review(request, true).andExpect(status().isOk());
+        smtp.stop();
+
+        mailDispatcher.dispatch();
+
+        MailOutboxMessage retrying = outboxOf(request).get(0);
+        assertThat(retrying.getStatus()).isEqualTo(MailOutboxMessage.Status.PENDING);
+        assertThat(retrying.getAttempts()).isEqualTo(1);
+        assertThat(retrying.getNextAttemptAt()).isAfter(LocalDateTime.now());
+        assertThat(retrying.getLastError()).isNotBlank();
+
+        // Skip the backoff of every remaining attempt
+        for (int attempt = 1; attempt < 8; attempt++) {
+            MailOutboxMessage message = outboxOf(request).get(0);
+            message.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+            mailOutboxRepository.save(message);
+            mailDispatcher.dispatch();
+        }
+
+        MailOutboxMessage dead = outboxOf(request).get(0);
+        assertThat(dead.getStatus()).isEqualTo(MailOutboxMessage.Status.DEAD);
+        assertThat(dead.getAttempts()).isEqualTo(8);
+        assertThat(mailDispatcher.stats().getDead()).isPositive();
+    }
+
+    private List<MailOutboxMessage> outboxOf(MailRequest request) {
+        return mailOutboxRepository.findAll().stream()
+                .filter(message -> message.getMailRequestId().equals(request.getId()))
+                .toList();
+    }
+
+    private ResultActions review(MailRequest request, boolean approved) throws Exception {
+        return mockMvc.perform(post("/api/mail-requests/help-desk/review")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"requestId\":\"" + request.getId() + "\",\"approved\":" + approved + "}")
+                .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(helpDesk)));
+    }
+
+    private MailRequest saveRequest(String subject) {
+        MailRequest request = new MailRequest();
+        request.setSubject(subject);
+        request.setBody("Please send this");
+        request.setUser(employee);
+        request.setStatus(MailRequest.Status.TL_ACCEPT);
+        request.setManagerApproved(true);
+        return mailRequestRepository.save(request);
+    }
+}
@@ -0,0 +1,147 @@
+package com.test.user.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.user.entity.MailRequest;
+import com.test.user.entity.User;
+import com.test.user.repository.MailRequestRepository;
+import com.test.user.security.JwtTokenUtil;
+import com.test.user.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MailRequestExportTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private MailRequestRepository mailRequestRepository;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User manager;
+    private User employee;
+    // Marks this test's rows among everything else in the table
+    private String marker;
+
+    @BeforeEach
+    void setUp() {
+        manager = testUsers.create("Export", User.Role.MANAGER, null);
+        employee = testUsers.create("Export", User.Role.EMPLOYEE, null);
+        marker = "export-" + UUID.randomUUID();
+    }
+
+    @Test
+    void ndjsonIsTheDefaultAndStreamsEveryRow() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(saveRequest(marker + " " + i, MailRequest.Status.TL_ACCEPT));
+        }
+
+        MvcResult result = export(exportRequest());
+        assertThat(result.getResponse().getContentType()).isEqualTo("application/x-ndjson");
+        assertThat(result.getResponse().getHeader("Content-Disposition")).contains("mail-requests.ndjson");
+
+        List<String> exported = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+            JsonNode row = objectMapper.readTree(line);
+            if (row.get("subject").asText().startsWith(marker)) {
+                exported.add(row.get("id").asText());
+            }
+        }
+        assertThat(exported).containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    @Test
+    void csvExportHasAHeaderAndQuotedFields() throws Exception {
+        String id = saveRequest(marker + ", quoted", MailRequest.Status.TL_ACCEPT);
+
+        MvcResult result = export(exportRequest().param("format", "csv"));
+        assertThat(result.getResponse().getContentType()).startsWith("text/csv");
+
+        List<String> lines = Arrays.asList(result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\r\n"));
+        assertThat(lines.get(0)).startsWith("id,subject,body,status");
+        assertThat(lines.stream().filter(line -> line.startsWith(id)).findFirst().orElseThrow())
+                .startsWith(id + ",\"" + marker + ", quoted\",");
+    }
+
+    @Test
+    void statusFilterLimitsTheRows() throws Exception {
+        String accepted = saveRequest(marker + " accepted", MailRequest.Status.TL_ACCEPT);
+        saveRequest(marker + " rejected", MailRequest.Status.TL_REJECT);
+
+        String body = export(exportRequest().param("status", "TL_ACCEPT"))
+                .getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        assertThat(body).contains(accepted).doesNotContain(marker + " rejected");
+        for (String line : body.split("\n")) {
+            assertThat(objectMapper.readTree(line).get("status").asText()).isEqualTo("TL_ACCEPT");
+        }
+    }
+
+    @Test
+    void unknownFormatsAreBadRequests() throws Exception {
+        mockMvc.perform(exportRequest().param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void onlyManagersExport() throws Exception {
+        mockMvc.perform(get("/api/mail-requests/export")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(employee)))
+                .andExpect(status().isForbidden());
+    }
+
+    private MvcResult export(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult started = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Content-Disposition"))
+                .andReturn();
+    }
+
+    private MockHttpServletRequestBuilder exportRequest() {
+        return get("/api/mail-requests/export")
+                .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(manager));
+    }
+
+    private String saveRequest(String subject, MailRequest.Status status) {
+        MailRequest request = new MailRequest();
+        request.setSubject(subject);
+        request.setBody("Exported body");
+        request.setUser(employee);
+        request.setStatus(status);
+        return mailRequestRepository.save(request).getId().toString();
+    }
+}
@@ -0,0 +1,101 @@
+package com.test.user.controller;
+
+import com.test.user.audit.AuditLog;
+import com.test.user.entity.User;
+import com.test.user.security.JwtTokenUtil;
+import com.test.user.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MailRequestHistoryTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    private User manager;
+    private User teamLeader;
+    private User employee;
+
+    @BeforeEach
+    void setUp() {
+        manager = testUsers.create("Audited", User.Role.MANAGER, null);
+        teamLeader = testUsers.create("Audited", User.Role.TEAM_LEADER, manager);
+        employee = testUsers.create("Audited", User.Role.EMPLOYEE, teamLeader);
+    }
+
+    @Test
+    void everyDecisionIsKeptAfterTheRowIsOverwritten() throws Exception {
+        String requestId = createRequest();
+        review(requestId, teamLeader, false, "Needs a ticket number");
+        review(requestId, manager, true, "Overruled, urgent");
+        auditLog.flush();
+
+        mockMvc.perform(get("/api/mail-requests/" + requestId + "/history")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(manager)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].action").value("MAIL_REQUEST_CREATED"))
+                .andExpect(jsonPath("$[0].actorId").value(employee.getId().toString()))
+                .andExpect(jsonPath("$[1].action").value("MAIL_REQUEST_REVIEWED"))
+                .andExpect(jsonPath("$[1].actorId").value(teamLeader.getId().toString()))
+                .andExpect(jsonPath("$[1].detail").value("Needs a ticket number"))
+                .andExpect(jsonPath("$[2].actorId").value(manager.getId().toString()))
+                .andExpect(jsonPath("$[2].actorRole").value("MANAGER"))
+                .andExpect(jsonPath("$[2].detail").value("Overruled, urgent"));
+    }
+
+    @Test
+    void onlyManagersReadTheHistory() throws Exception {
+        String requestId = createRequest();
+
+        mockMvc.perform(get("/api/mail-requests/" + requestId + "/history")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(employee)))
+                .andExpect(status().isForbidden());
+    }
+
+    private String createRequest() throws Exception {
+        String body = mockMvc.perform(post("/api/mail-requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"subject\":\"Access\",\"body\":\"Please grant access\"}")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(employee)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Matcher id = Pattern.compile("\"id\":\"([^\"]+)\"").matcher(body);
+        assertThat(id.find()).isTrue();
+        return id.group(1);
+    }
+
+    private void review(String requestId, User reviewer, boolean approved, String comments) throws Exception {
+        mockMvc.perform(post("/api/mail-requests/review")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"requestId\":\"" + requestId + "\",\"approved\":" + approved
+                                + ",\"comments\":\"" + comments + "\"}")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(reviewer)))
+                .andExpect(status().isOk());
+    }
+}
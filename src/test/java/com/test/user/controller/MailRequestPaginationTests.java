@@ -0,0 +1,162 @@
+package com.test.user.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.user.entity.MailRequest;
+import com.test.user.entity.User;
+import com.test.user.repository.MailRequestRepository;
+import com.test.user.repository.UserRepository;
+import com.test.user.security.JwtTokenUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MailRequestPaginationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MailRequestRepository mailRequestRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User employee;
+
+    @BeforeEach
+    void setUp() {
+        employee = new User();
+        employee.setName("Pages");
+        employee.setEmail("pages-" + UUID.randomUUID() + "@example.com");
+        employee.setPassword("{noop}password");
+        employee.setRole(User.Role.EMPLOYEE);
+        employee = userRepository.save(employee);
+    }
+
+    @Test
+    void pagesFollowTheNextCursorNewestFirst() throws Exception {
+        List<UUID> ids = saveRequests(5);
+        // Newest first: the last saved comes first
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        for (int i = 0; i < ids.size(); i++) {
+            setCreatedAt(ids.get(i), base.minusMinutes(ids.size() - i));
+        }
+
+        JsonNode first = page(null, 2);
+        assertThat(idsOf(first)).containsExactly(ids.get(4), ids.get(3));
+        assertThat(first.get("next").asText()).isNotBlank();
+
+        JsonNode second = page(first.get("next").asText(), 2);
+        assertThat(idsOf(second)).containsExactly(ids.get(2), ids.get(1));
+
+        JsonNode last = page(second.get("next").asText(), 2);
+        assertThat(idsOf(last)).containsExactly(ids.get(0));
+        assertThat(last.has("next")).isFalse();
+    }
+
+    @Test
+    void requestsCreatedAtTheSameInstantAreNeitherSkippedNorRepeated() throws Exception {
+        List<UUID> ids = saveRequests(7);
+        LocalDateTime tie = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        ids.forEach(id -> setCreatedAt(id, tie));
+
+        List<UUID> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            JsonNode page = page(cursor, 3);
+            seen.addAll(idsOf(page));
+            cursor = page.has("next") ? page.get("next").asText() : null;
+        } while (cursor != null);
+
+        // Ties are broken by id, so small pages walk the same order as one large page
+        assertThat(seen).containsExactlyElementsOf(idsOf(page(null, 50)));
+        assertThat(seen).containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    @Test
+    void malformedCursorsAreBadRequests() throws Exception {
+        mockMvc.perform(myRequests().param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void limitsAboveTheMaximumAreCapped() throws Exception {
+        saveRequests(201);
+
+        mockMvc.perform(myRequests().param("limit", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(200))
+                .andExpect(jsonPath("$.next").isNotEmpty());
+    }
+
+    private List<UUID> saveRequests(int count) {
+        List<MailRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            MailRequest request = new MailRequest();
+            request.setSubject("Page " + i);
+            request.setBody("Paged request");
+            request.setUser(employee);
+            request.setStatus(MailRequest.Status.TL_ACCEPT);
+            requests.add(request);
+        }
+        return mailRequestRepository.saveAll(requests).stream().map(MailRequest::getId).toList();
+    }
+
+    private void setCreatedAt(UUID id, LocalDateTime createdAt) {
+        ByteBuffer bytes = ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+        jdbcTemplate.update("update mail_requests set created_at = ? where id = ?",
+                Timestamp.valueOf(createdAt), bytes.array());
+    }
+
+    private JsonNode page(String cursor, int limit) throws Exception {
+        MockHttpServletRequestBuilder request = myRequests().param("limit", String.valueOf(limit));
+        if (cursor != null) {
+            request.param("cursor", cursor);
+        }
+        String body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private MockHttpServletRequestBuilder myRequests() {
+        return get("/api/mail-requests/my-requests")
+                .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(employee));
+    }
+
+    private static List<UUID> idsOf(JsonNode page) {
+        List<UUID> ids = new ArrayList<>();
+        page.get("items").forEach(item -> ids.add(UUID.fromString(item.get("id").asText())));
+        return ids;
+    }
+}
@@ -0,0 +1,219 @@
+package com.test.user.controller;
+
+import com.test.user.directory.UserDirectory;
+import com.test.user.entity.MailRequest;
+import com.test.user.entity.User;
+import com.test.user.escalation.EscalationTracker;
+import com.test.user.idempotency.IdempotencyStore;
+import com.test.user.repository.MailRequestRepository;
+import com.test.user.security.JwtTokenUtil;
+import com.test.user.support.TestUsers;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static com.test.user.repository.MailRequestSpecifications.ofUser;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Every endpoint must cost a constant number of statements, however many rows it reads or writes.
+ */
+// Zero thresholds escalate every seeded pending request right away
+@SpringBootTest(properties = {"escalation.thresholds.MANAGER=PT0S", "escalation.thresholds.HELP_DESK=PT0S"})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MailRequestQueryCountTests {
+
+    private static final int REQUESTS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private MailRequestRepository mailRequestRepository;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EscalationTracker escalationTracker;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
+    private User manager;
+    private User teamLeader;
+    private User employee;
+    private User helpDesk;
+    private UUID requestId;
+
+    @BeforeAll
+    void seed() {
+        String suffix = UUID.randomUUID().toString();
+        manager = testUsers.create("manager-" + suffix, User.Role.MANAGER, null);
+        teamLeader = testUsers.create("leader-" + suffix, User.Role.TEAM_LEADER, manager);
+        employee = testUsers.create("employee-" + suffix, User.Role.EMPLOYEE, teamLeader);
+        helpDesk = testUsers.create("helpdesk-" + suffix, User.Role.HELP_DESK, manager);
+
+        User[] reviewers = {teamLeader, manager, helpDesk};
+        for (int i = 0; i < REQUESTS; i++) {
+            MailRequest request = new MailRequest();
+            request.setSubject("Subject " + i);
+            request.setBody("Body " + i);
+            request.setUser(employee);
+            if (i % 2 == 0) {
+                request.setStatus(MailRequest.Status.HD_REQ);
+            } else {
+                // Reviewed rows carry a manager, the second lazy association of mapToDto
+                request.setManager(reviewers[i % reviewers.length]);
+                request.setManagerApproved(true);
+                request.setStatus(MailRequest.Status.TL_ACCEPT);
+            }
+            requestId = mailRequestRepository.save(request).getId();
+        }
+        // Seeded through the repository, so no creation events reached the tracker or the directory
+        escalationTracker.rebuild();
+        userDirectory.reload();
+    }
+
+    @Test
+    void listEndpointsRunAConstantNumberOfStatements() throws Exception {
+        assertStatements("/api/mail-requests/my-requests", employee, 1);
+        assertStatements("/api/mail-requests/pending", teamLeader, 1);
+        assertStatements("/api/mail-requests/pending/action-required", teamLeader, 1);
+        assertStatements("/api/mail-requests/approved", manager, 1);
+        assertStatements("/api/mail-requests/leader/pending-approval", manager, 1);
+        assertStatements("/api/mail-requests/help-desk/pending-approval", helpDesk, 1);
+        assertStatements("/api/users/managers/leaders", manager, 1);
+    }
+
+    @Test
+    void statsAreServedFromMemory() throws Exception {
+        assertStatements("/api/mail-requests/stats", teamLeader, 0);
+    }
+
+    @Test
+    void detailEndpointsRunASingleStatement() throws Exception {
+        assertStatements("/api/mail-requests/" + requestId, employee, 1);
+        assertStatements("/api/mail-requests/details/" + requestId, employee, 1);
+    }
+
+    @Test
+    void batchReviewLoadsOnceAndBatchesTheUpdates() throws Exception {
+        User requester = testUsers.create("batch-" + UUID.randomUUID(), User.Role.EMPLOYEE, manager);
+        StringBuilder reviews = new StringBuilder();
+        for (int i = 0; i < REQUESTS; i++) {
+            MailRequest request = new MailRequest();
+            request.setSubject("Batch " + i);
+            request.setBody("Body " + i);
+            request.setUser(requester);
+            request.setStatus(MailRequest.Status.HD_REQ);
+            UUID id = mailRequestRepository.save(request).getId();
+            reviews.append("{\"requestId\":\"").append(id).append("\",\"approved\":").append(i % 2 == 0).append("},");
+        }
+        reviews.append("{\"requestId\":\"").append(UUID.randomUUID()).append("\",\"approved\":true}");
+        userDirectory.reload();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(post("/api/mail-requests/review/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"reviews\":[" + reviews + "]}")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(manager)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(REQUESTS + 1))
+                .andExpect(jsonPath("$[0].request.status").value("MANAGER_ACCEPT"))
+                .andExpect(jsonPath("$[1].request.status").value("MANAGER_REJECT"))
+                .andExpect(jsonPath("$[%d].success", REQUESTS).value(false))
+                .andExpect(jsonPath("$[%d].error", REQUESTS).value("Mail request not found"));
+
+        // Reviewer, the target rows, and one batched update statement; the team check is in memory
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(mailRequestRepository.findAll(ofUser(requester.getId())))
+                .allSatisfy(request -> assertThat(request.getManagerApproved()).isNotNull());
+    }
+
+    @Test
+    void keyedCallsStayWithinTheirBudgets() throws Exception {
+        // Fail-fast budgets turn an over-budget call into a 500; the replay runs no review at all
+        for (int attempt = 0; attempt < 2; attempt++) {
+            String key = "create-" + UUID.randomUUID();
+            keyed(post("/api/mail-requests"), employee, key,
+                    "{\"subject\":\"Keyed\",\"body\":\"Body\"}", status().isCreated());
+            keyed(post("/api/mail-requests"), employee, key,
+                    "{\"subject\":\"Keyed\",\"body\":\"Body\"}", status().isCreated());
+        }
+
+        String review = "{\"requestId\":\"" + saveRequest(MailRequest.Status.HD_REQ) + "\",\"approved\":true}";
+        String key = UUID.randomUUID().toString();
+        keyed(post("/api/mail-requests/review"), teamLeader, key, review, status().isOk());
+        keyed(post("/api/mail-requests/review"), teamLeader, key, review, status().isOk());
+
+        String batch = "{\"reviews\":[{\"requestId\":\"" + saveRequest(MailRequest.Status.HD_REQ)
+                + "\",\"approved\":true}]}";
+        key = UUID.randomUUID().toString();
+        keyed(post("/api/mail-requests/review/batch"), manager, key, batch, status().isOk());
+        keyed(post("/api/mail-requests/review/batch"), manager, key, batch, status().isOk());
+
+        // Rejected, so no mail is queued for other tests' dispatchers to send
+        String helpDeskReview = "{\"requestId\":\"" + saveRequest(MailRequest.Status.TL_ACCEPT)
+                + "\",\"approved\":false}";
+        key = UUID.randomUUID().toString();
+        keyed(post("/api/mail-requests/help-desk/review"), helpDesk, key, helpDeskReview, status().isOk());
+        keyed(post("/api/mail-requests/help-desk/review"), helpDesk, key, helpDeskReview, status().isOk());
+    }
+
+    private void keyed(MockHttpServletRequestBuilder request, User caller, String key, String body,
+                       ResultMatcher expected) throws Exception {
+        mockMvc.perform(request.contentType(MediaType.APPLICATION_JSON)
+                        .content(body)
+                        .header(IdempotencyStore.HEADER, key)
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(caller)))
+                .andExpect(expected);
+    }
+
+    private UUID saveRequest(MailRequest.Status status) {
+        MailRequest request = new MailRequest();
+        request.setSubject("Keyed review");
+        request.setBody("Body");
+        request.setUser(employee);
+        request.setStatus(status);
+        return mailRequestRepository.save(request).getId();
+    }
+
+    private void assertStatements(String url, User caller, long expected) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get(url).param("limit", String.valueOf(REQUESTS))
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(caller)))
+                .andExpect(status().isOk());
+
+        assertThat(statistics.getPrepareStatementCount())
+                .as("statements for %s", url)
+                .isEqualTo(expected);
+    }
+}
@@ -0,0 +1,123 @@
+package com.test.user.controller;
+
+import com.test.user.entity.User;
+import com.test.user.security.JwtTokenUtil;
+import com.test.user.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MailRequestSearchTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    // Unique per test, so requests made by other tests never match
+    private final String keyword = "kw" + UUID.randomUUID().toString().replace("-", "");
+
+    private User teamLeader;
+    private User employee;
+    private User otherEmployee;
+    private User helpDesk;
+
+    @BeforeEach
+    void setUp() {
+        User manager = testUsers.create("Searcher", User.Role.MANAGER, null);
+        teamLeader = testUsers.create("Searcher", User.Role.TEAM_LEADER, manager);
+        employee = testUsers.create("Searcher", User.Role.EMPLOYEE, teamLeader);
+        User otherLeader = testUsers.create("Searcher", User.Role.TEAM_LEADER, manager);
+        otherEmployee = testUsers.create("Searcher", User.Role.EMPLOYEE, otherLeader);
+        helpDesk = testUsers.create("Searcher", User.Role.HELP_DESK, null);
+    }
+
+    @Test
+    void callersOnlyFindWhatTheirListsShow() throws Exception {
+        String own = createRequest(employee, "Printer " + keyword, "Toner is empty");
+        createRequest(otherEmployee, "Printer", "Toner for " + keyword + " is empty");
+
+        search(teamLeader, "toner " + keyword.toUpperCase())
+                .andExpect(jsonPath("$.items[*].id").value(containsInAnyOrder(own)));
+        // Pending requests reach the help desk only once they escalate to it
+        search(helpDesk, keyword + " printer")
+                .andExpect(jsonPath("$.items").value(empty()));
+        // Hidden from the requester until the team leader acts on it
+        search(employee, keyword)
+                .andExpect(jsonPath("$.items").value(empty()));
+    }
+
+    @Test
+    void reviewsMoveRequestsBetweenStatusFilters() throws Exception {
+        String requestId = createRequest(employee, "Mailbox " + keyword, "Please raise my quota");
+
+        mockMvc.perform(post("/api/mail-requests/review")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"requestId\":\"" + requestId + "\",\"approved\":true}")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(teamLeader)))
+                .andExpect(status().isOk());
+
+        search(helpDesk, keyword + "&status=HD_REQ").andExpect(jsonPath("$.items").value(empty()));
+        search(helpDesk, keyword + "&status=TL_ACCEPT")
+                .andExpect(jsonPath("$.items[*].id").value(containsInAnyOrder(requestId)));
+        search(helpDesk, keyword).andExpect(jsonPath("$.items[*].id").value(containsInAnyOrder(requestId)));
+        search(employee, keyword).andExpect(jsonPath("$.items[0].status").value("TL_ACCEPT"));
+    }
+
+    @Test
+    void resultsArePagedInRankOrder() throws Exception {
+        String weaker = createRequest(employee, "Access", "Shared drive " + keyword);
+        String stronger = createRequest(employee, "Shared drive " + keyword, "Shared drive access, please");
+
+        String next = search(teamLeader, keyword + "&limit=1")
+                .andExpect(jsonPath("$.items[0].id").value(stronger))
+                .andReturn().getResponse().getContentAsString();
+        Matcher cursor = Pattern.compile("\"next\":\"([^\"]+)\"").matcher(next);
+        assertThat(cursor.find()).isTrue();
+
+        search(teamLeader, keyword + "&limit=1&cursor=" + cursor.group(1))
+                .andExpect(jsonPath("$.items[0].id").value(weaker))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    private ResultActions search(User caller, String query) throws Exception {
+        return mockMvc.perform(get("/api/mail-requests/search?q=" + query)
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(caller)))
+                .andExpect(status().isOk());
+    }
+
+    private String createRequest(User requester, String subject, String body) throws Exception {
+        String response = mockMvc.perform(post("/api/mail-requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"subject\":\"" + subject + "\",\"body\":\"" + body + "\"}")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(requester)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Matcher id = Pattern.compile("\"id\":\"([^\"]+)\"").matcher(response);
+        assertThat(id.find()).isTrue();
+        return id.group(1);
+    }
+}
@@ -0,0 +1,78 @@
+package com.test.user.controller;
+
+import com.test.user.entity.User;
+import com.test.user.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void scrapeCoversAuthWorkflowAndPersistence() throws Exception {
+        User employee = new User();
+        employee.setName("Measured");
+        employee.setEmail("metrics-" + UUID.randomUUID() + "@example.com");
+        employee.setPassword(passwordEncoder.encode("password"));
+        employee.setRole(User.Role.EMPLOYEE);
+        userRepository.save(employee);
+
+        String login = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + employee.getEmail() + "\",\"password\":\"password\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Matcher token = Pattern.compile("\"token\":\"([^\"]+)\"").matcher(login);
+        assertThat(token.find()).isTrue();
+        mockMvc.perform(get("/api/mail-requests/my-requests")
+                        .header("Authorization", "Bearer " + token.group(1)))
+                .andExpect(status().isOk());
+
+        // Without a separate management port, scraping takes a token like any other request
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+        String scrape = mockMvc.perform(get("/actuator/prometheus")
+                        .header("Authorization", "Bearer " + token.group(1)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("uri=\"/api/mail-requests/my-requests\"")
+                .contains("http_server_statements_count{method=\"GET\",uri=\"/api/mail-requests/my-requests\"}")
+                .contains("auth_jwt_verification_seconds_count{outcome=\"valid\"}")
+                .contains("auth_jwt_authentications_total{outcome=\"authenticated\"}")
+                .contains("auth_password_hashing_seconds_count{operation=\"matches\"}")
+                .contains("mail_request_service_seconds_count{class=\"com.test.user.service.impl.MailRequestServiceImpl\"")
+                .contains("method=\"getUserMailRequests\"")
+                .contains("hikaricp_connections_active")
+                .contains("hikaricp_connections_pending")
+                .contains("hikaricp_connections_acquire_seconds_bucket");
+    }
+}
@@ -0,0 +1,163 @@
+package com.test.user.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.user.entity.User;
+import com.test.user.entity.UserHierarchy;
+import com.test.user.repository.UserHierarchyRepository;
+import com.test.user.repository.UserRepository;
+import com.test.user.security.JwtTokenUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrgHierarchyTests {
+
+    private static final String PASSWORD = "Password1!";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserHierarchyRepository userHierarchyRepository;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User manager;
+    private User teamLeader;
+    private User employee;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        manager = new User();
+        manager.setName("Org manager");
+        manager.setEmail("org-manager-" + UUID.randomUUID() + "@example.com");
+        manager.setPassword("{noop}password");
+        manager.setRole(User.Role.MANAGER);
+        manager = userRepository.save(manager);
+        userHierarchyRepository.addUsers(List.of(manager.getId()));
+
+        teamLeader = create("/api/users/managers/leaders", manager);
+        employee = create("/api/users/leaders/employees", teamLeader);
+    }
+
+    @Test
+    void createdUsersAreLinkedToEveryAncestor() {
+        assertThat(userHierarchyRepository.findAll())
+                .filteredOn(path -> path.getDescendantId().equals(employee.getId()))
+                .extracting(UserHierarchy::getAncestorId, UserHierarchy::getDepth)
+                .containsExactlyInAnyOrder(
+                        tuple(employee.getId(), 0),
+                        tuple(teamLeader.getId(), 1),
+                        tuple(manager.getId(), 2));
+    }
+
+    @Test
+    void teamListsEveryLevelBelowTheCaller() throws Exception {
+        mockMvc.perform(get("/api/users/team")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(manager)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2));
+
+        mockMvc.perform(get("/api/users/team").param("role", "EMPLOYEE")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(manager)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(employee.getId().toString()));
+    }
+
+    @Test
+    void managersSeeAndReviewRequestsFromTheWholeSubtree() throws Exception {
+        String requestId = createMailRequest();
+
+        mockMvc.perform(get("/api/mail-requests/pending")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(manager)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(requestId));
+
+        mockMvc.perform(post("/api/mail-requests/review")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"requestId\":\"" + requestId + "\",\"approved\":true}")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(manager)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("MANAGER_ACCEPT"));
+    }
+
+    @Test
+    void reviewersOutsideTheSubtreeAreRefused() throws Exception {
+        String requestId = createMailRequest();
+        User otherLeader = create("/api/users/managers/leaders", manager);
+        String token = jwtTokenUtil.generateToken(otherLeader);
+
+        mockMvc.perform(post("/api/mail-requests/review")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"requestId\":\"" + requestId + "\",\"approved\":true}")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(post("/api/mail-requests/review/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"reviews\":[{\"requestId\":\"" + requestId + "\",\"approved\":true}]}")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].success").value(false))
+                .andExpect(jsonPath("$[0].error").value("You can only review requests from your team members"));
+    }
+
+    @Test
+    void deletingAUserRemovesItsPaths() throws Exception {
+        mockMvc.perform(delete("/api/users/" + employee.getId())
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(manager)))
+                .andExpect(status().isNoContent());
+
+        assertThat(userHierarchyRepository.findAll())
+                .noneMatch(path -> path.getDescendantId().equals(employee.getId()));
+        assertThat(userHierarchyRepository.isAncestor(manager.getId(), teamLeader.getId())).isTrue();
+    }
+
+    private User create(String url, User creator) throws Exception {
+        String email = "org-" + UUID.randomUUID() + "@example.com";
+        String body = mockMvc.perform(post(url)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Org member\",\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(creator)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode created = objectMapper.readTree(body);
+        return userRepository.findById(UUID.fromString(created.get("id").asText())).orElseThrow();
+    }
+
+    private String createMailRequest() throws Exception {
+        String body = mockMvc.perform(post("/api/mail-requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"subject\":\"Access\",\"body\":\"Please grant access\"}")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(employee)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asText();
+    }
+}
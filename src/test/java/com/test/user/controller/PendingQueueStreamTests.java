@@ -0,0 +1,150 @@
+package com.test.user.controller;
+
+import com.test.user.entity.User;
+import com.test.user.security.JwtTokenUtil;
+import com.test.user.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PendingQueueStreamTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    private User manager;
+    private User teamLeader;
+    private User employee;
+    private User otherManager;
+
+    @BeforeEach
+    void setUp() {
+        manager = testUsers.create("Streamer", User.Role.MANAGER, null);
+        teamLeader = testUsers.create("Streamer", User.Role.TEAM_LEADER, manager);
+        employee = testUsers.create("Streamer", User.Role.EMPLOYEE, teamLeader);
+        otherManager = testUsers.create("Streamer", User.Role.MANAGER, null);
+    }
+
+    @Test
+    void leadersAboveTheRequesterReceiveTheDelta() throws Exception {
+        MvcResult leaderStream = subscribe(teamLeader, null);
+        MvcResult managerStream = subscribe(manager, null);
+        MvcResult otherStream = subscribe(otherManager, null);
+
+        String requestId = createRequest();
+
+        String event = awaitEvent(leaderStream, requestId);
+        assertThat(event).contains("event:created").contains("\"status\":\"HD_REQ\"");
+        awaitEvent(managerStream, requestId);
+        assertThat(otherStream.getResponse().getContentAsString()).doesNotContain(requestId);
+    }
+
+    @Test
+    void reconnectingClientsResumeAfterTheirLastEvent() throws Exception {
+        MvcResult stream = subscribe(teamLeader, null);
+        String requestId = createRequest();
+        String id = eventId(awaitEvent(stream, requestId));
+
+        mockMvc.perform(post("/api/mail-requests/review")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"requestId\":\"" + requestId + "\",\"approved\":true}")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(teamLeader)))
+                .andExpect(status().isOk());
+
+        // Missed the creation and the review: both are replayed, in order
+        MvcResult resumed = subscribe(teamLeader, previous(id));
+        String replayed = awaitEvent(resumed, "TL_ACCEPT");
+        assertThat(replayed).contains("event:reviewed");
+        assertThat(resumed.getResponse().getContentAsString().indexOf("event:created"))
+                .isBetween(0, resumed.getResponse().getContentAsString().indexOf("event:reviewed"));
+
+        // Saw the creation: only the review is replayed
+        MvcResult caughtUp = subscribe(teamLeader, id);
+        awaitEvent(caughtUp, "TL_ACCEPT");
+        assertThat(caughtUp.getResponse().getContentAsString()).doesNotContain("event:created");
+    }
+
+    @Test
+    void idsFromAnotherInstanceOrTheFutureGetAReset() throws Exception {
+        MvcResult stream = subscribe(teamLeader, null);
+        String id = eventId(awaitEvent(stream, createRequest()));
+        String epoch = id.substring(0, id.lastIndexOf('.'));
+
+        String otherInstance = awaitEvent(subscribe(teamLeader, "0badc0de.1"), "event:reset");
+        assertThat(eventId(otherInstance)).startsWith(epoch + ".");
+
+        awaitEvent(subscribe(teamLeader, epoch + "." + Long.MAX_VALUE), "event:reset");
+        awaitEvent(subscribe(teamLeader, "not an id"), "event:reset");
+    }
+
+    private MvcResult subscribe(User user, String lastEventId) throws Exception {
+        MockHttpServletRequestBuilder request = get("/api/mail-requests/events")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(user));
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private String createRequest() throws Exception {
+        String body = mockMvc.perform(post("/api/mail-requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"subject\":\"Access\",\"body\":\"Please grant access\"}")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(employee)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Matcher id = Pattern.compile("\"id\":\"([^\"]+)\"").matcher(body);
+        assertThat(id.find()).isTrue();
+        return id.group(1);
+    }
+
+    // The first event on the stream mentioning the text; events are sent from another thread
+    private static String awaitEvent(MvcResult stream, String text) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            for (String event : stream.getResponse().getContentAsString().split("\n\n")) {
+                if (event.contains(text)) {
+                    return event;
+                }
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("No event containing " + text + " in " + stream.getResponse().getContentAsString());
+    }
+
+    private static String eventId(String event) {
+        Matcher id = Pattern.compile("^id:(\\w+\\.\\d+)$", Pattern.MULTILINE).matcher(event);
+        assertThat(id.find()).isTrue();
+        return id.group(1);
+    }
+
+    private static String previous(String eventId) {
+        int separator = eventId.lastIndexOf('.');
+        return eventId.substring(0, separator + 1) + (Long.parseLong(eventId.substring(separator + 1)) - 1);
+    }
+}
@@ -0,0 +1,112 @@
+package com.test.user.controller;
+
+import com.test.user.entity.MailRequest;
+import com.test.user.entity.User;
+import com.test.user.repository.MailRequestRepository;
+import com.test.user.security.JwtTokenUtil;
+import com.test.user.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReviewConcurrencyTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private MailRequestRepository mailRequestRepository;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User manager;
+    private User teamLeader;
+    private MailRequest mailRequest;
+
+    @BeforeEach
+    void setUp() {
+        manager = testUsers.create("Reviewer", User.Role.MANAGER, null);
+        teamLeader = testUsers.create("Reviewer", User.Role.TEAM_LEADER, manager);
+        User employee = testUsers.create("Reviewer", User.Role.EMPLOYEE, teamLeader);
+
+        mailRequest = new MailRequest();
+        mailRequest.setSubject("Access");
+        mailRequest.setBody("Please grant access");
+        mailRequest.setUser(employee);
+        mailRequest.setStatus(MailRequest.Status.HD_REQ);
+        mailRequest = mailRequestRepository.save(mailRequest);
+    }
+
+    @Test
+    void reviewBasedOnAStaleVersionIsRejected() throws Exception {
+        long seen = mailRequest.getVersion();
+        review(teamLeader, true, seen)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("TL_ACCEPT"))
+                .andExpect(jsonPath("$.version").value(seen + 1));
+
+        // The manager decided on what the team leader saw, not on the team leader's decision
+        review(manager, false, seen)
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errors.version").exists());
+
+        assertThat(mailRequestRepository.findById(mailRequest.getId()).orElseThrow().getStatus())
+                .isEqualTo(MailRequest.Status.TL_ACCEPT);
+    }
+
+    @Test
+    void concurrentUpdatesAreACompareAndSet() {
+        // Both reviewers read the same version; whoever commits second loses instead of overwriting
+        MailRequest first = transactionTemplate.execute(status -> mailRequestRepository.findById(mailRequest.getId()).orElseThrow());
+        MailRequest second = transactionTemplate.execute(status -> mailRequestRepository.findById(mailRequest.getId()).orElseThrow());
+
+        first.setStatus(MailRequest.Status.TL_ACCEPT);
+        mailRequestRepository.save(first);
+        second.setStatus(MailRequest.Status.MANAGER_REJECT);
+
+        assertThatThrownBy(() -> mailRequestRepository.save(second))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(mailRequestRepository.findById(mailRequest.getId()).orElseThrow().getStatus())
+                .isEqualTo(MailRequest.Status.TL_ACCEPT);
+    }
+
+    @Test
+    void transitionsOutsideTheWorkflowAreConflicts() throws Exception {
+        review(manager, true, null).andExpect(status().isOk());
+
+        review(teamLeader, false, null)
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errors.status").value("A TEAM_LEADER cannot reject a request in status MANAGER_ACCEPT"));
+    }
+
+    private ResultActions review(User reviewer, boolean approved, Long version) throws Exception {
+        String body = "{\"requestId\":\"" + mailRequest.getId() + "\",\"approved\":" + approved
+                + (version != null ? ",\"version\":" + version : "") + "}";
+        return mockMvc.perform(post("/api/mail-requests/review")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body)
+                .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(reviewer)));
+    }
+}
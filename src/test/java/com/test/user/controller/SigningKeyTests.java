@@ -0,0 +1,162 @@
+package com.test.user.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.user.entity.User;
+import com.test.user.repository.UserRepository;
+import com.test.user.security.JwtTokenUtil;
+import com.test.user.security.SigningKeyRing;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SigningKeyTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private SigningKeyRing signingKeyRing;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${jwt.secret:defaultSecretKeyWhichShouldBeChangedInProduction}")
+    private String secret;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setName("Signing");
+        user.setEmail("signing-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("{noop}password");
+        user.setRole(User.Role.EMPLOYEE);
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void tokensVerifyAgainstThePublishedKeys() throws Exception {
+        String token = jwtTokenUtil.generateToken(user);
+        String kid = signingKeyRing.activeKey().kid();
+
+        JsonNode jwk = jwks().stream()
+                .filter(key -> key.get("kid").asText().equals(kid))
+                .findFirst().orElseThrow();
+        assertThat(jwk.get("alg").asText()).isEqualTo("ES256");
+
+        // What a consumer does with the JWKS document alone
+        String subject = Jwts.parserBuilder()
+                .setSigningKey(toPublicKey(jwk))
+                .build()
+                .parseClaimsJws(token)
+                .getBody().getSubject();
+        assertThat(subject).isEqualTo(user.getEmail());
+        me(token).andExpect(status().isOk());
+    }
+
+    @Test
+    void legacyHs256TokensAreRejectedUnlessAcceptedUntilACutoff() throws Exception {
+        String legacy = Jwts.builder()
+                .claim("role", user.getRole().name())
+                .claim("userId", user.getId().toString())
+                .setSubject(user.getEmail())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+
+        me(legacy).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void tokensSignedWithAnUnknownKeyAreRejected() throws Exception {
+        String forged = Jwts.builder()
+                .setHeaderParam("kid", UUID.randomUUID().toString())
+                .claim("role", user.getRole().name())
+                .claim("userId", user.getId().toString())
+                .setSubject(user.getEmail())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.keyPairFor(SignatureAlgorithm.ES256).getPrivate(), SignatureAlgorithm.ES256)
+                .compact();
+
+        me(forged).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void rotatedKeyIsPublishedBeforeItSigns() throws Exception {
+        String previousKid = signingKeyRing.activeKey().kid();
+        String token = jwtTokenUtil.generateToken(user);
+
+        String nextKid = signingKeyRing.rotate().orElseThrow();
+
+        assertThat(jwks()).extracting(key -> key.get("kid").asText()).contains(previousKid, nextKid);
+        // The new key only signs after the activation delay; until then the old one carries on
+        assertThat(signingKeyRing.activeKey().kid()).isEqualTo(previousKid);
+        me(token).andExpect(status().isOk());
+        me(jwtTokenUtil.generateToken(user)).andExpect(status().isOk());
+    }
+
+    private List<JsonNode> jwks() throws Exception {
+        String body = mockMvc.perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, public"))
+                .andReturn().getResponse().getContentAsString();
+        List<JsonNode> keys = new ArrayList<>();
+        objectMapper.readTree(body).get("keys").forEach(keys::add);
+        return keys;
+    }
+
+    private ResultActions me(String accessToken) throws Exception {
+        return mockMvc.perform(get("/api/users/" + user.getId())
+                .header("Authorization", "Bearer " + accessToken));
+    }
+
+    private static PublicKey toPublicKey(JsonNode jwk) throws Exception {
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec("secp256r1"));
+        ECPoint point = new ECPoint(
+                new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get("x").asText())),
+                new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get("y").asText())));
+        return KeyFactory.getInstance("EC").generatePublic(
+                new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+    }
+}
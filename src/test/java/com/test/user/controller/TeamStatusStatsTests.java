@@ -0,0 +1,110 @@
+package com.test.user.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.user.entity.User;
+import com.test.user.security.JwtTokenUtil;
+import com.test.user.stats.TeamStatusCounters;
+import com.test.user.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class TeamStatusStatsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TeamStatusCounters teamStatusCounters;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User manager;
+    private User teamLeader;
+    private User employee;
+
+    @BeforeEach
+    void setUp() {
+        manager = testUsers.create("Counted", User.Role.MANAGER, null);
+        teamLeader = testUsers.create("Counted", User.Role.TEAM_LEADER, manager);
+        employee = testUsers.create("Counted", User.Role.EMPLOYEE, teamLeader);
+    }
+
+    @Test
+    void countersFollowCreatesAndReviews() throws Exception {
+        String first = create();
+        create();
+        create();
+        review(first);
+
+        JsonNode stats = stats(teamLeader, null);
+        assertThat(stats.get("counts").get("HD_REQ").asLong()).isEqualTo(2);
+        assertThat(stats.get("counts").get("TL_ACCEPT").asLong()).isEqualTo(1);
+        assertThat(stats.get("counts").get("HD_ACCEPT").asLong()).isZero();
+        assertThat(stats.get("total").asLong()).isEqualTo(3);
+
+        // Managers may look at the teams below them; a recount agrees with the live counters
+        teamStatusCounters.reconcile();
+        assertThat(stats(manager, teamLeader.getId())).isEqualTo(stats);
+    }
+
+    @Test
+    void teamsOutsideTheCallersHierarchyAreForbidden() throws Exception {
+        User otherLeader = testUsers.create("Counted", User.Role.TEAM_LEADER, null);
+
+        mockMvc.perform(get("/api/mail-requests/stats")
+                        .param("leaderId", manager.getId().toString())
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(otherLeader)))
+                .andExpect(status().isForbidden());
+    }
+
+    private JsonNode stats(User caller, UUID leaderId) throws Exception {
+        var request = get("/api/mail-requests/stats")
+                .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(caller));
+        if (leaderId != null) {
+            request.param("leaderId", leaderId.toString());
+        }
+        return objectMapper.readTree(mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private String create() throws Exception {
+        String body = mockMvc.perform(post("/api/mail-requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"subject\":\"Access\",\"body\":\"Please grant access\"}")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(employee)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asText();
+    }
+
+    private void review(String requestId) throws Exception {
+        mockMvc.perform(post("/api/mail-requests/review")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"requestId\":\"" + requestId + "\",\"approved\":true}")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(teamLeader)))
+                .andExpect(status().isOk());
+    }
+}
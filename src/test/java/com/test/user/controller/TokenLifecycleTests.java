@@ -0,0 +1,189 @@
+package com.test.user.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.user.entity.User;
+import com.test.user.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class TokenLifecycleTests {
+
+    private static final String PASSWORD = "Password1!";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = testUsers.create("Tokens", User.Role.EMPLOYEE, null, passwordEncoder.encode(PASSWORD));
+    }
+
+    @Test
+    void loginIssuesShortLivedTokenAndRefreshTokenRotates() throws Exception {
+        JsonNode session = login(user);
+        assertThat(session.get("expiresIn").asLong()).isEqualTo(900);
+
+        JsonNode rotated = readTree(refresh(session.get("refreshToken").asText())
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertThat(rotated.get("refreshToken").asText()).isNotEqualTo(session.get("refreshToken").asText());
+        me(rotated.get("token").asText()).andExpect(status().isOk());
+
+        refresh(rotated.get("refreshToken").asText()).andExpect(status().isOk());
+    }
+
+    @Test
+    void reusingARotatedRefreshTokenRevokesTheSessions() throws Exception {
+        JsonNode session = login(user);
+        String stolen = session.get("refreshToken").asText();
+        JsonNode rotated = readTree(refresh(stolen).andReturn().getResponse().getContentAsString());
+
+        refresh(stolen).andExpect(status().isUnauthorized());
+
+        refresh(rotated.get("refreshToken").asText()).andExpect(status().isUnauthorized());
+        me(rotated.get("token").asText()).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void concurrentRefreshesWithOneTokenLetOnlyOneThrough() throws Exception {
+        String refreshToken = login(user).get("refreshToken").asText();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return refresh(refreshToken).andReturn().getResponse();
+                }));
+            }
+            start.countDown();
+
+            List<MockHttpServletResponse> rotated = new ArrayList<>();
+            for (Future<MockHttpServletResponse> response : responses) {
+                if (response.get().getStatus() == HttpStatus.OK.value()) {
+                    rotated.add(response.get());
+                }
+            }
+            assertThat(rotated).hasSize(1);
+
+            // The others count as reuse, which revokes the family and the user's access tokens
+            JsonNode session = readTree(rotated.get(0).getContentAsString());
+            refresh(session.get("refreshToken").asText()).andExpect(status().isUnauthorized());
+            me(session.get("token").asText()).andExpect(status().isUnauthorized());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void loggingInAgainRightAfterARevocationWorks() throws Exception {
+        JsonNode session = login(user);
+        String stolen = session.get("refreshToken").asText();
+        refresh(stolen).andExpect(status().isOk());
+        // Reuse revokes every token of the user; a new login in the same second still gets through
+        refresh(stolen).andExpect(status().isUnauthorized());
+
+        me(login(user).get("token").asText()).andExpect(status().isOk());
+        me(session.get("token").asText()).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void logoutRevokesTheAccessTokenAndTheRefreshFamily() throws Exception {
+        JsonNode session = login(user);
+        String accessToken = session.get("token").asText();
+        me(accessToken).andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/auth/logout")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"" + session.get("refreshToken").asText() + "\"}"))
+                .andExpect(status().isNoContent());
+
+        me(accessToken).andExpect(status().isUnauthorized());
+        refresh(session.get("refreshToken").asText()).andExpect(status().isUnauthorized());
+        // Another session of the same user is unaffected
+        me(login(user).get("token").asText()).andExpect(status().isOk());
+    }
+
+    @Test
+    void deletingAUserRevokesItsTokens() throws Exception {
+        User manager = testUsers.create("Tokens", User.Role.MANAGER, null, passwordEncoder.encode(PASSWORD));
+        User employee = testUsers.create("Tokens", User.Role.EMPLOYEE, null, passwordEncoder.encode(PASSWORD));
+        String accessToken = login(employee).get("token").asText();
+        me(accessToken).andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/users/" + employee.getId())
+                        .header("Authorization", "Bearer " + login(manager).get("token").asText()))
+                .andExpect(status().isNoContent());
+
+        me(accessToken).andExpect(status().isUnauthorized());
+    }
+
+    private JsonNode login(User user) throws Exception {
+        String body = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + user.getEmail() + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.refreshToken").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        return readTree(body);
+    }
+
+    private ResultActions refresh(String refreshToken) throws Exception {
+        return mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"refreshToken\":\"" + refreshToken + "\"}"));
+    }
+
+    // Any authenticated endpoint will do
+    private ResultActions me(String accessToken) throws Exception {
+        return mockMvc.perform(get("/api/users/" + user.getId())
+                .header("Authorization", "Bearer " + accessToken));
+    }
+
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.test.user.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.user.entity.User;
+import com.test.user.repository.UserRepository;
+import com.test.user.security.JwtTokenUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserImportTests {
+
+    private static final String PASSWORD = "Password1!";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User manager;
+    private String suffix;
+
+    @BeforeEach
+    void setUp() {
+        suffix = UUID.randomUUID().toString().substring(0, 8);
+        manager = new User();
+        manager.setName("Importer");
+        manager.setEmail("importer-" + suffix + "@example.com");
+        manager.setPassword("{noop}password");
+        manager.setRole(User.Role.MANAGER);
+        manager = userRepository.save(manager);
+    }
+
+    @Test
+    void csvImportReportsEveryRow() throws Exception {
+        String csv = "email,name,password,role\r\n"
+                + "lead-" + suffix + "@example.com,\"Lead, One\"," + PASSWORD + ",\r\n"
+                + "desk-" + suffix + "@example.com,Desk," + PASSWORD + ",help_desk\r\n"
+                + manager.getEmail() + ",Taken," + PASSWORD + ",\r\n"
+                + "LEAD-" + suffix + "@example.com,Again," + PASSWORD + ",\r\n"
+                + "weak-" + suffix + "@example.com,Weak,password,\r\n"
+                + "employee-" + suffix + "@example.com,Employee," + PASSWORD + ",EMPLOYEE\r\n";
+
+        List<JsonNode> results = importUsers(MediaType.parseMediaType("text/csv"), csv);
+
+        assertThat(results).extracting(result -> result.get("row").asInt()).containsExactly(1, 2, 3, 4, 5, 6);
+        assertThat(results).extracting(result -> result.get("success").asBoolean())
+                .containsExactly(true, true, false, false, false, false);
+        assertThat(results.get(0).get("role").asText()).isEqualTo("TEAM_LEADER");
+        assertThat(results.get(1).get("role").asText()).isEqualTo("HELP_DESK");
+        assertThat(results.get(2).get("error").asText()).isEqualTo("Email already in use");
+        assertThat(results.get(3).get("error").asText()).isEqualTo("Email appears more than once in the import");
+        assertThat(results.get(5).get("error").asText()).isEqualTo("A MANAGER cannot create users with role EMPLOYEE");
+
+        User lead = userRepository.findByEmail("lead-" + suffix + "@example.com").orElseThrow();
+        assertThat(lead.getName()).isEqualTo("Lead, One");
+        assertThat(lead.getLeader().getId()).isEqualTo(manager.getId());
+        assertThat(lead.getPassword()).startsWith("{bcrypt}$2");
+    }
+
+    @Test
+    void emailsAreMatchedWithoutRegardToCase() throws Exception {
+        String csv = "email,name,password,role\r\n"
+                + manager.getEmail().toUpperCase() + ",Taken," + PASSWORD + ",\r\n"
+                + "Mixed-" + suffix + "@Example.com,Mixed," + PASSWORD + ",\r\n"
+                + "mixed-" + suffix + "@example.COM,Again," + PASSWORD + ",\r\n";
+
+        List<JsonNode> results = importUsers(MediaType.parseMediaType("text/csv"), csv);
+
+        assertThat(results).extracting(result -> result.get("success").asBoolean()).containsExactly(false, true, false);
+        assertThat(results.get(0).get("error").asText()).isEqualTo("Email already in use");
+        assertThat(results.get(2).get("error").asText()).isEqualTo("Email appears more than once in the import");
+
+        // A second import finds the stored spelling under another case
+        List<JsonNode> again = importUsers(MediaType.parseMediaType("text/csv"), "email,name,password,role\r\n"
+                + "MIXED-" + suffix + "@EXAMPLE.COM,Third," + PASSWORD + ",\r\n");
+        assertThat(again.get(0).get("success").asBoolean()).isFalse();
+        assertThat(again.get(0).get("error").asText()).isEqualTo("Email already in use");
+    }
+
+    @Test
+    void jsonImportCreatesTeamLeaders() throws Exception {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rows.add("{\"name\":\"Lead " + i + "\",\"email\":\"bulk-" + i + "-" + suffix
+                    + "@example.com\",\"password\":\"" + PASSWORD + "\"}");
+        }
+
+        List<JsonNode> results = importUsers(MediaType.APPLICATION_JSON, "[" + String.join(",", rows) + "]");
+
+        assertThat(results).hasSize(3).allSatisfy(result -> assertThat(result.get("success").asBoolean()).isTrue());
+        assertThat(userRepository.findExistingEmails(List.of(
+                "bulk-0-" + suffix + "@example.com", "bulk-2-" + suffix + "@example.com"))).hasSize(2);
+    }
+
+    @Test
+    void csvWithoutRequiredColumnsIsRejected() throws Exception {
+        mockMvc.perform(post("/api/users/import")
+                        .contentType("text/csv")
+                        .content("name,email\r\nSomeone,someone@example.com\r\n")
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(manager)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<JsonNode> importUsers(MediaType contentType, String body) throws Exception {
+        MvcResult started = mockMvc.perform(post("/api/users/import")
+                        .contentType(contentType)
+                        .content(body)
+                        .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(manager)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String ndjson = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            results.add(objectMapper.readTree(line));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,65 @@
+package com.test.user.controller;
+
+import com.test.user.entity.User;
+import com.test.user.repository.UserRepository;
+import com.test.user.security.JwtTokenUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The user lookup adds a statement the endpoint budgets do not count
+@SpringBootTest(properties = {"jwt.claims-only-authentication=false", "query-budget.fail-fast=false"})
+@AutoConfigureMockMvc
+class UserLookupAuthenticationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setName("Lookup");
+        user.setEmail("lookup-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("{noop}password");
+        user.setRole(User.Role.EMPLOYEE);
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void theStoredRoleWinsOverTheTokenRole() throws Exception {
+        String token = jwtTokenUtil.generateToken(user);
+        user.setRole(User.Role.MANAGER);
+        userRepository.save(user);
+
+        mockMvc.perform(get("/api/users/team").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void tokensOfUsersThatNoLongerExistAreUnauthorized() throws Exception {
+        String token = jwtTokenUtil.generateToken(user);
+        mockMvc.perform(get("/api/users/" + user.getId()).header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        userRepository.delete(user);
+
+        mockMvc.perform(get("/api/users/" + user.getId()).header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+    }
+}
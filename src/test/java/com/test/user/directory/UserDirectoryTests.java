@@ -0,0 +1,123 @@
+package com.test.user.directory;
+
+import com.test.user.entity.User;
+import com.test.user.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserDirectoryTests {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserDirectory directory = new UserDirectory(userRepository);
+
+    @Test
+    void answersRoleLeaderAndSubtreeQueries() {
+        UUID manager = UUID.randomUUID();
+        UUID leader = UUID.randomUUID();
+        UUID employee = UUID.randomUUID();
+        UUID otherLeader = UUID.randomUUID();
+        directory.put(manager, User.Role.MANAGER, null);
+        directory.put(leader, User.Role.TEAM_LEADER, manager);
+        directory.put(employee, User.Role.EMPLOYEE, leader);
+        directory.put(otherLeader, User.Role.TEAM_LEADER, manager);
+
+        assertThat(directory.roleOf(leader)).isEqualTo(User.Role.TEAM_LEADER);
+        assertThat(directory.leaderOf(employee)).isEqualTo(leader);
+        assertThat(directory.leaderOf(manager)).isNull();
+        assertThat(directory.isBelow(manager, employee)).isTrue();
+        assertThat(directory.isBelow(leader, employee)).isTrue();
+        assertThat(directory.isBelow(otherLeader, employee)).isFalse();
+        assertThat(directory.isBelow(employee, employee)).isFalse();
+        assertThat(directory.isBelow(manager, UUID.randomUUID())).isNull();
+        assertThat(directory.roleOf(UUID.randomUUID())).isNull();
+        assertThat(directory.ancestorsOf(employee)).containsExactly(leader, manager);
+        assertThat(directory.ancestorsOf(manager)).isEmpty();
+    }
+
+    @Test
+    void removedUsersAreUnknown() {
+        UUID manager = UUID.randomUUID();
+        UUID leader = UUID.randomUUID();
+        directory.put(manager, User.Role.MANAGER, null);
+        directory.put(leader, User.Role.TEAM_LEADER, manager);
+
+        directory.remove(leader);
+
+        assertThat(directory.roleOf(leader)).isNull();
+        assertThat(directory.isBelow(manager, leader)).isNull();
+        assertThat(directory.roleOf(manager)).isEqualTo(User.Role.MANAGER);
+    }
+
+    @Test
+    void leaderUnknownToTheDirectoryLeavesTheAnswerOpen() {
+        UUID employee = UUID.randomUUID();
+        directory.put(employee, User.Role.EMPLOYEE, UUID.randomUUID());
+
+        assertThat(directory.isBelow(UUID.randomUUID(), employee)).isNull();
+        assertThat(directory.ancestorsOf(employee)).isNull();
+    }
+
+    @Test
+    void reloadResolvesLeadersListedAfterTheirReports() {
+        List<UserRepository.DirectoryEntry> entries = new ArrayList<>();
+        UUID root = UUID.randomUUID();
+        UUID parent = root;
+        List<UUID> chain = new ArrayList<>();
+        // Deep enough to grow the table several times, reports listed before their leaders
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            entries.add(0, entry(id, User.Role.EMPLOYEE, parent));
+            chain.add(id);
+            parent = id;
+        }
+        entries.add(entry(root, User.Role.MANAGER, null));
+        when(userRepository.streamDirectoryEntries()).thenAnswer(invocation -> entries.stream());
+
+        directory.reload();
+
+        assertThat(directory.size()).isEqualTo(101);
+        assertThat(directory.leaderOf(chain.get(50))).isEqualTo(chain.get(49));
+        assertThat(directory.isBelow(chain.get(40), chain.get(50))).isTrue();
+        assertThat(directory.isBelow(chain.get(50), chain.get(40))).isFalse();
+    }
+
+    @Test
+    void aMillionUsersFitInAFewTensOfMegabytes() {
+        UUID manager = UUID.randomUUID();
+        when(userRepository.streamDirectoryEntries()).thenAnswer(invocation -> Stream.concat(
+                Stream.of(entry(manager, User.Role.MANAGER, null)),
+                Stream.generate(() -> entry(UUID.randomUUID(), User.Role.EMPLOYEE, manager)).limit(999_999)));
+
+        directory.reload();
+
+        assertThat(directory.size()).isEqualTo(1_000_000);
+        assertThat(directory.footprintBytes()).isLessThan(32L * 1024 * 1024);
+    }
+
+    private static UserRepository.DirectoryEntry entry(UUID id, User.Role role, UUID leaderId) {
+        return new UserRepository.DirectoryEntry() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public User.Role getRole() {
+                return role;
+            }
+
+            @Override
+            public UUID getLeaderId() {
+                return leaderId;
+            }
+        };
+    }
+}
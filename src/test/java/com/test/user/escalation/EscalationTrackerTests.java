@@ -0,0 +1,180 @@
+package com.test.user.escalation;
+
+import com.test.user.entity.MailRequest;
+import com.test.user.entity.User;
+import com.test.user.event.MailRequestCreatedEvent;
+import com.test.user.event.MailRequestReviewedEvent;
+import com.test.user.repository.MailRequestRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EscalationTrackerTests {
+
+    private final MailRequestRepository mailRequestRepository = mock(MailRequestRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    @Test
+    void escalatedRequestsAreTheOnesPastTheRoleThresholdNewestFirst() {
+        EscalationTracker tracker = tracker(Duration.ofMinutes(1), Duration.ofMinutes(2));
+        LocalDateTime now = LocalDateTime.now();
+        UUID recent = created(tracker, now.minusSeconds(30));
+        UUID pastManager = created(tracker, now.minusSeconds(90));
+        UUID pastBoth = created(tracker, now.minusMinutes(3));
+        UUID oldest = created(tracker, now.minusMinutes(5));
+
+        assertThat(ids(tracker.escalated(User.Role.MANAGER, null, null, 10)))
+                .containsExactly(pastManager, pastBoth, oldest);
+        assertThat(ids(tracker.escalated(User.Role.HELP_DESK, null, null, 10))).containsExactly(pastBoth, oldest);
+        assertThat(tracker.pendingCount()).isEqualTo(4);
+        assertThat(ids(tracker.escalated(User.Role.MANAGER, null, null, 10))).doesNotContain(recent);
+    }
+
+    @Test
+    void pagesContinueStrictlyAfterTheCursor() {
+        EscalationTracker tracker = tracker(Duration.ofMinutes(1), Duration.ofMinutes(2));
+        LocalDateTime tie = LocalDateTime.now().minusMinutes(10);
+        // Same createdAt, so the id breaks the tie
+        List<UUID> ids = List.of(created(tracker, tie), created(tracker, tie), created(tracker, tie),
+                created(tracker, tie.minusMinutes(1)));
+
+        List<UUID> first = ids(tracker.escalated(User.Role.MANAGER, null, null, 2));
+        List<UUID> second = ids(tracker.escalated(User.Role.MANAGER, tie, first.get(1), 2));
+
+        assertThat(first).hasSize(2);
+        assertThat(second).hasSize(2).doesNotContainAnyElementsOf(first);
+        assertThat(second.get(1)).isEqualTo(ids.get(3));
+        assertThat(ids(tracker.escalated(User.Role.MANAGER, tie.minusMinutes(1), ids.get(3), 2))).isEmpty();
+    }
+
+    @Test
+    void decidedReviewsStopTheEscalation() {
+        EscalationTracker tracker = tracker(Duration.ofMinutes(1), Duration.ofMinutes(2));
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(5);
+        UUID undecided = created(tracker, createdAt);
+        UUID decided = created(tracker, createdAt);
+
+        tracker.onReviewed(reviewed(undecided, null));
+        tracker.onReviewed(reviewed(decided, true));
+
+        assertThat(ids(tracker.escalated(User.Role.MANAGER, null, null, 10))).containsExactly(undecided);
+    }
+
+    @Test
+    void eachRolePublishesOneEventPerRequestOnceItsDeadlinePasses() throws Exception {
+        EscalationTracker tracker = tracker(Duration.ofMillis(200), Duration.ofMillis(600));
+        tracker.initialize();
+        UUID requestId = created(tracker, LocalDateTime.now());
+
+        tracker.publishEscalations();
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+
+        Thread.sleep(300);
+        tracker.publishEscalations();
+        tracker.publishEscalations();
+        ArgumentCaptor<MailRequestEscalatedEvent> events = ArgumentCaptor.forClass(MailRequestEscalatedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(events.capture());
+        assertThat(events.getValue().requestId()).isEqualTo(requestId);
+        assertThat(events.getValue().escalatedTo()).isEqualTo(User.Role.MANAGER);
+        assertThat(events.getValue().deadline()).isEqualTo(events.getValue().createdAt().plus(Duration.ofMillis(200)));
+
+        Thread.sleep(400);
+        tracker.publishEscalations();
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getValue().escalatedTo()).isEqualTo(User.Role.HELP_DESK);
+    }
+
+    @Test
+    void requestsThatEscalatedBeforeStartupAreNotAnnounced() {
+        UUID overdue = UUID.randomUUID();
+        when(mailRequestRepository.findPendingReviewKeys())
+                .thenReturn(List.of(key(overdue, LocalDateTime.now().minusHours(1))));
+        EscalationTracker tracker = tracker(Duration.ofMinutes(1), Duration.ofMinutes(2));
+
+        tracker.initialize();
+        tracker.publishEscalations();
+
+        assertThat(ids(tracker.escalated(User.Role.MANAGER, null, null, 10))).containsExactly(overdue);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void rebuildDropsRequestsReviewedElsewhere() {
+        EscalationTracker tracker = tracker(Duration.ofMinutes(1), Duration.ofMinutes(2));
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(5);
+        UUID stillPending = created(tracker, createdAt);
+        created(tracker, createdAt);
+        when(mailRequestRepository.findPendingReviewKeys()).thenReturn(List.of(key(stillPending, createdAt)));
+
+        tracker.rebuild();
+
+        assertThat(ids(tracker.escalated(User.Role.MANAGER, null, null, 10))).containsExactly(stillPending);
+    }
+
+    @Test
+    void everyTickPicksUpRequestsCreatedOnOtherInstances() {
+        EscalationTracker tracker = tracker(Duration.ofMinutes(1), Duration.ofMinutes(2));
+        tracker.initialize();
+        UUID elsewhere = UUID.randomUUID();
+        when(mailRequestRepository.findPendingReviewKeysCreatedSince(any()))
+                .thenReturn(List.of(key(elsewhere, LocalDateTime.now().minusMinutes(5))));
+
+        tracker.publishEscalations();
+
+        assertThat(ids(tracker.escalated(User.Role.MANAGER, null, null, 10))).containsExactly(elsewhere);
+    }
+
+    private EscalationTracker tracker(Duration managerThreshold, Duration helpDeskThreshold) {
+        EscalationProperties properties = new EscalationProperties();
+        properties.setThresholds(new EnumMap<>(Map.of(
+                User.Role.MANAGER, managerThreshold,
+                User.Role.HELP_DESK, helpDeskThreshold)));
+        return new EscalationTracker(mailRequestRepository, properties, eventPublisher);
+    }
+
+    private static List<UUID> ids(List<EscalationTracker.PendingRequest> requests) {
+        return requests.stream().map(EscalationTracker.PendingRequest::id).toList();
+    }
+
+    private static UUID created(EscalationTracker tracker, LocalDateTime createdAt) {
+        UUID id = UUID.randomUUID();
+        tracker.onCreated(new MailRequestCreatedEvent(id, UUID.randomUUID(), null, MailRequest.Status.HD_REQ,
+                createdAt, "Subject", "Body"));
+        return id;
+    }
+
+    private static MailRequestReviewedEvent reviewed(UUID requestId, Boolean managerApproved) {
+        return new MailRequestReviewedEvent(requestId, UUID.randomUUID(), null, UUID.randomUUID(),
+                User.Role.TEAM_LEADER, MailRequest.Status.HD_REQ, MailRequest.Status.TL_ACCEPT, managerApproved,
+                LocalDateTime.now(), LocalDateTime.now(), null);
+    }
+
+    private static MailRequestRepository.PendingReviewKey key(UUID id, LocalDateTime createdAt) {
+        return new MailRequestRepository.PendingReviewKey() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return createdAt;
+            }
+        };
+    }
+}
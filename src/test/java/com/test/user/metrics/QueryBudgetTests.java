@@ -0,0 +1,102 @@
+package com.test.user.metrics;
+
+import com.test.user.controller.MailRequestController;
+import com.test.user.controller.UserController;
+import com.test.user.exception.QueryBudgetExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryBudgetTests {
+
+    private static final String BY_ID = "select u1_0.id from users u1_0 where u1_0.id=?";
+
+    @Test
+    void inListsOfAnyLengthHaveTheSameShape() {
+        assertThat(StatementTally.shapeOf("select * from users where id in (?, ?, ?)"))
+                .isEqualTo(StatementTally.shapeOf("select * from users where id in (?,?)"))
+                .isEqualTo("select * from users where id in (?)");
+        assertThat(StatementTally.shapeOf(BY_ID)).isEqualTo(BY_ID);
+    }
+
+    @Test
+    void failingFastThrowsFromTheStatementOverBudget() {
+        StatementTally tally = new StatementTally();
+        tally.limit("UserController.getTeam", 2, 5, true);
+        tally.record("select 1");
+        tally.record("select 2");
+
+        assertThatThrownBy(() -> tally.record("select 3"))
+                .isInstanceOf(QueryBudgetExceededException.class)
+                .hasMessageContaining("UserController.getTeam")
+                .hasMessageContaining("select 3");
+    }
+
+    @Test
+    void repeatedStatementsAreFlaggedAsLikelyNPlusOne() {
+        StatementTally tally = new StatementTally();
+        tally.limit("MailRequestController.getPendingRequests", -1, 3, false);
+        for (int i = 0; i < 4; i++) {
+            tally.record(BY_ID);
+        }
+        tally.record("select 1");
+
+        assertThat(tally.overBudget()).isFalse();
+        assertThat(tally.repeatedShapes()).containsExactly(Map.entry(BY_ID, 4));
+
+        StatementTally failing = new StatementTally();
+        failing.limit("MailRequestController.getPendingRequests", -1, 3, true);
+        failing.record(BY_ID);
+        failing.record(BY_ID);
+        assertThatThrownBy(() -> failing.record(BY_ID))
+                .isInstanceOf(QueryBudgetExceededException.class)
+                .hasMessageContaining("N+1");
+    }
+
+    @Test
+    void everyEndpointDeclaresABudget() {
+        // Streaming bodies run their statements after the handler returns, on another thread
+        List<String> missing = Arrays.stream(new Class<?>[]{MailRequestController.class, UserController.class})
+                .flatMap(controller -> Arrays.stream(controller.getDeclaredMethods()))
+                .filter(method -> AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class))
+                .filter(method -> !streams(method))
+                .filter(method -> !method.isAnnotationPresent(QueryBudget.class))
+                .map(method -> method.getDeclaringClass().getSimpleName() + "." + method.getName())
+                .toList();
+
+        assertThat(missing).isEmpty();
+    }
+
+    @Test
+    void madeUpMethodsShareOneStatementsTag() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        StatementMetricsFilter filter = new StatementMetricsFilter(new StatementCounter(), registry);
+        for (String method : List.of("GET", "PROPFIND", "X-ANYTHING")) {
+            filter.doFilter(new MockHttpServletRequest(method, "/api/users"), new MockHttpServletResponse(),
+                    new MockFilterChain());
+        }
+
+        assertThat(registry.find("http.server.statements").summaries())
+                .extracting(summary -> summary.getId().getTag("method"))
+                .containsExactlyInAnyOrder("GET", "UNKNOWN");
+    }
+
+    private static boolean streams(Method method) {
+        return method.getGenericReturnType() instanceof ParameterizedType type
+                && type.getActualTypeArguments()[0] == StreamingResponseBody.class;
+    }
+}
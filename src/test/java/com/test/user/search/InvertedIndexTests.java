@@ -0,0 +1,99 @@
+package com.test.user.search;
+
+import com.test.user.entity.MailRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvertedIndexTests {
+
+    private final InvertedIndex index = new InvertedIndex();
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    @Test
+    void termsAreWordsWithoutCaseOrStopWords() {
+        assertThat(SearchTokenizer.terms("Access to the VPN, for Jürgen's laptop #42!"))
+                .containsExactly("access", "vpn", "jürgen", "laptop", "42");
+    }
+
+    @Test
+    void everyTermMustMatchAndSubjectsOutrankBodies() {
+        UUID inBody = add(alice, "Printer", "The VPN client on my laptop stopped working");
+        UUID inSubject = add(alice, "VPN laptop", "It stopped working this morning");
+        add(alice, "VPN token", "Lost my token");
+
+        assertThat(ids(index.search(List.of("vpn", "laptop"), SearchScope.everything(), Float.POSITIVE_INFINITY,
+                Integer.MAX_VALUE, 10))).containsExactly(inSubject, inBody);
+        assertThat(index.search(List.of("vpn", "printer", "missing"), SearchScope.everything(),
+                Float.POSITIVE_INFINITY, Integer.MAX_VALUE, 10)).isEmpty();
+    }
+
+    @Test
+    void resultsStayInsideTheScope() {
+        UUID alices = add(alice, "Shared drive", "Access to the shared drive");
+        UUID bobs = add(bob, "Shared drive", "Access to the shared drive");
+        index.updateStatus(bobs, MailRequest.Status.TL_ACCEPT);
+
+        assertThat(ids(search(new SearchScope(Set.of(alice), null)))).containsExactly(alices);
+        assertThat(ids(search(new SearchScope(null, Set.of(MailRequest.Status.TL_ACCEPT))))).containsExactly(bobs);
+        assertThat(search(new SearchScope(Set.of(UUID.randomUUID()), null))).isEmpty();
+    }
+
+    @Test
+    void pendingRequestsCountOnlyOnceOldEnough() {
+        UUID old = UUID.randomUUID();
+        index.add(old, alice, MailRequest.Status.HD_REQ, LocalDateTime.now().minusHours(1), "Shared drive", "");
+        UUID fresh = add(alice, "Shared drive", "");
+        UUID approved = add(bob, "Shared drive", "");
+        index.updateStatus(approved, MailRequest.Status.TL_ACCEPT);
+
+        SearchScope escalated = new SearchScope(null, null, LocalDateTime.now().minusMinutes(2));
+        assertThat(ids(search(escalated))).containsExactlyInAnyOrder(old, approved);
+        assertThat(ids(search(SearchScope.everything()))).containsExactlyInAnyOrder(old, fresh, approved);
+    }
+
+    @Test
+    void pagesContinueAfterTheLastHit() {
+        List<UUID> added = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            // Equal scores are ranked newest first
+            added.add(0, add(i % 2 == 0 ? alice : bob, "Mailbox quota", "Please raise my mailbox quota"));
+        }
+
+        List<UUID> paged = new ArrayList<>();
+        float afterScore = Float.POSITIVE_INFINITY;
+        int afterDoc = Integer.MAX_VALUE;
+        while (true) {
+            List<InvertedIndex.Hit> page = index.search(List.of("quota"), SearchScope.everything(),
+                    afterScore, afterDoc, 10);
+            if (page.isEmpty()) {
+                break;
+            }
+            paged.addAll(ids(page));
+            afterScore = page.get(page.size() - 1).score();
+            afterDoc = page.get(page.size() - 1).doc();
+        }
+        assertThat(paged).isEqualTo(added);
+    }
+
+    private List<InvertedIndex.Hit> search(SearchScope scope) {
+        return index.search(List.of("shared", "drive"), scope, Float.POSITIVE_INFINITY, Integer.MAX_VALUE, 10);
+    }
+
+    private UUID add(UUID requester, String subject, String body) {
+        UUID id = UUID.randomUUID();
+        index.add(id, requester, MailRequest.Status.HD_REQ, LocalDateTime.now(), subject, body);
+        return id;
+    }
+
+    private List<UUID> ids(List<InvertedIndex.Hit> hits) {
+        return hits.stream().map(hit -> index.idOf(hit.doc())).toList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.test.user.security;
+
+import com.test.user.exception.LoginThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordVerificationPoolTests {
+
+    @Test
+    void rejectsChecksBeyondTheQueueDepth() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordVerificationPool pool = new PasswordVerificationPool(new BlockingEncoder(release), 1, 1, 3,
+                new SimpleMeterRegistry());
+        try {
+            // One check on the single thread, one waiting in the queue
+            CompletableFuture<Boolean> running = pool.matches("a", "a");
+            CompletableFuture<Boolean> queued = pool.matches("b", "b");
+            assertThat(pool.queueDepth()).isEqualTo(1);
+
+            assertThatThrownBy(() -> pool.matches("c", "c"))
+                    .isInstanceOfSatisfying(LoginThrottledException.class,
+                            ex -> assertThat(ex.getRetryAfterSeconds()).isEqualTo(3));
+
+            release.countDown();
+            assertThat(running.join()).isTrue();
+            assertThat(queued.join()).isTrue();
+            assertThat(pool.matches("d", "d").join()).isTrue();
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    // Holds every check until released, standing in for a slow hash
+    private record BlockingEncoder(CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
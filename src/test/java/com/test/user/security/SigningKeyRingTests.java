@@ -0,0 +1,65 @@
+package com.test.user.security;
+
+import com.test.user.entity.SigningKey;
+import com.test.user.repository.SigningKeyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class SigningKeyRingTests {
+
+    @Autowired
+    private SigningKeyRing signingKeyRing;
+
+    @Autowired
+    private SigningKeyRepository signingKeyRepository;
+
+    @Value("${jwt.secret:defaultSecretKeyWhichShouldBeChangedInProduction}")
+    private String secret;
+
+    @Test
+    void onlyOneInstanceCreatesAGeneration() {
+        long next = signingKeyRepository.findLatestGeneration() + 1;
+        String previousKid = signingKeyRing.activeKey().kid();
+
+        Optional<String> created = signingKeyRing.rotate(next);
+        Optional<String> lost = otherInstance().rotate(next);
+
+        assertThat(created).isPresent();
+        assertThat(lost).isEmpty();
+        assertThat(signingKeyRepository.findLatestGeneration()).isEqualTo(next);
+        assertThat(key(created.get()).getRetiresAt()).isNull();
+        assertThat(key(previousKid).getRetiresAt()).isNotNull();
+    }
+
+    @Test
+    void aRotationNeverRetiresALaterGeneration() {
+        long latest = signingKeyRepository.findLatestGeneration();
+
+        // The later generation commits first, as if its instance overtook this one
+        String later = otherInstance().rotate(latest + 2).orElseThrow();
+        String earlier = signingKeyRing.rotate(latest + 1).orElseThrow();
+
+        assertThat(key(later).getRetiresAt()).isNull();
+        assertThat(key(earlier).getRetiresAt()).isNull();
+        assertThat(signingKeyRing.publishedKeys()).containsKeys(later, earlier);
+    }
+
+    private SigningKeyRing otherInstance() {
+        SigningKeyRing other = new SigningKeyRing(signingKeyRepository, secret, Duration.ofDays(30),
+                Duration.ofMinutes(2), 900_000);
+        other.reload();
+        return other;
+    }
+
+    private SigningKey key(String kid) {
+        return signingKeyRepository.findById(kid).orElseThrow();
+    }
+}
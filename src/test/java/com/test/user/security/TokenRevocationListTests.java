@@ -0,0 +1,53 @@
+package com.test.user.security;
+
+import com.test.user.entity.User;
+import com.test.user.repository.RevokedTokenRepository;
+import com.test.user.repository.UserTokenCutoffRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TokenRevocationListTests {
+
+    private final TokenRevocationList revocationList = new TokenRevocationList(mock(RevokedTokenRepository.class),
+            mock(UserTokenCutoffRepository.class), mock(JwtTokenUtil.class), 1024);
+
+    @Test
+    void singleTokensAreRevokedById() {
+        UUID userId = UUID.randomUUID();
+        JwtPrincipal revoked = principal(userId, Instant.now());
+        JwtPrincipal other = principal(userId, Instant.now());
+
+        revocationList.revokeToken(revoked.getTokenId(), revoked.getExpiresAt());
+
+        assertThat(revocationList.isRevoked(revoked)).isTrue();
+        assertThat(revocationList.isRevoked(other)).isFalse();
+    }
+
+    @Test
+    void userCutoffRevokesTokensUpToItsMillisecond() {
+        UUID userId = UUID.randomUUID();
+        Instant earlier = Instant.now().minusSeconds(10);
+        Instant before = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        revocationList.revokeAllForUser(userId);
+        Instant after = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        assertThat(revocationList.isRevoked(principal(userId, earlier))).isTrue();
+        assertThat(revocationList.isRevoked(principal(userId, before))).isTrue();
+        // Likely in the same second as the revocation, which no longer matters
+        assertThat(revocationList.isRevoked(principal(userId, after.plusMillis(1)))).isFalse();
+        assertThat(revocationList.isRevoked(principal(UUID.randomUUID(), earlier))).isFalse();
+    }
+
+    private static JwtPrincipal principal(UUID userId, Instant issuedAt) {
+        return new JwtPrincipal(userId, "revoked@example.com", User.Role.EMPLOYEE, null, UUID.randomUUID(),
+                issuedAt, issuedAt.plus(Duration.ofMinutes(15)));
+    }
+}
@@ -0,0 +1,106 @@
+package com.test.user.security;
+
+import com.test.user.entity.User;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VerifiedTokenCacheTests {
+
+    @Test
+    void cachedPrincipalsAreReturnedWithoutVerifyingAgain() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 100);
+        CountingVerifier verifier = new CountingVerifier(principalExpiringIn(Duration.ofMinutes(5)));
+
+        JwtPrincipal first = cache.get("token", verifier);
+        JwtPrincipal second = cache.get("token", verifier);
+
+        assertThat(second).isSameAs(first);
+        assertThat(verifier.calls.get()).isEqualTo(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void entriesExpireWithTheToken() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 100);
+        CountingVerifier verifier = new CountingVerifier(principalExpiringIn(Duration.ofMillis(200)));
+
+        cache.get("token", verifier);
+        cache.get("token", verifier);
+        assertThat(verifier.calls.get()).isEqualTo(1);
+
+        Thread.sleep(300);
+        cache.get("token", verifier);
+        assertThat(verifier.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void verificationFailuresAreNotCached() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 100);
+        AtomicInteger calls = new AtomicInteger();
+        Function<String, JwtPrincipal> failing = token -> {
+            calls.incrementAndGet();
+            throw new JwtException("Bad signature");
+        };
+
+        assertThatThrownBy(() -> cache.get("token", failing)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> cache.get("token", failing)).isInstanceOf(JwtException.class);
+
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(cache.estimatedSize()).isZero();
+    }
+
+    @Test
+    void sizeIsBounded() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 10);
+        CountingVerifier verifier = new CountingVerifier(principalExpiringIn(Duration.ofMinutes(5)));
+
+        for (int i = 0; i < 100; i++) {
+            cache.get("token-" + i, verifier);
+        }
+        cache.cleanUp();
+
+        assertThat(cache.estimatedSize()).isLessThanOrEqualTo(10);
+        assertThat(cache.stats().evictionCount()).isGreaterThanOrEqualTo(90);
+    }
+
+    @Test
+    void disabledCacheVerifiesEveryTime() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(false, 100);
+        CountingVerifier verifier = new CountingVerifier(principalExpiringIn(Duration.ofMinutes(5)));
+
+        cache.get("token", verifier);
+        cache.get("token", verifier);
+
+        assertThat(verifier.calls.get()).isEqualTo(2);
+    }
+
+    private static JwtPrincipal principalExpiringIn(Duration lifetime) {
+        return new JwtPrincipal(UUID.randomUUID(), "cache@example.com", User.Role.EMPLOYEE, null,
+                UUID.randomUUID(), Instant.now(), Instant.now().plus(lifetime));
+    }
+
+    private static final class CountingVerifier implements Function<String, JwtPrincipal> {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final JwtPrincipal principal;
+
+        CountingVerifier(JwtPrincipal principal) {
+            this.principal = principal;
+        }
+
+        @Override
+        public JwtPrincipal apply(String token) {
+            calls.incrementAndGet();
+            return principal;
+        }
+    }
+}
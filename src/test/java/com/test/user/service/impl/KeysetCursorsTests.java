@@ -0,0 +1,57 @@
+package com.test.user.service.impl;
+
+import com.test.user.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorsTests {
+
+    @Test
+    void cursorsRoundTripTheLastRowKeys() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 1, 12, 30, 15, 123_456_000);
+        UUID id = UUID.randomUUID();
+
+        KeysetScrollPosition position = (KeysetScrollPosition) KeysetCursors.decode(KeysetCursors.encode(createdAt, id));
+
+        assertThat(position.getKeys()).containsEntry("createdAt", createdAt).containsEntry("id", id);
+        assertThat(position.getKeys().keySet()).containsExactly("createdAt", "id");
+    }
+
+    @Test
+    void noCursorStartsAtTheFirstPage() {
+        assertThat(KeysetCursors.decode(null).isInitial()).isTrue();
+        assertThat(KeysetCursors.decode(" ").isInitial()).isTrue();
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        String noSeparator = encode("2026-03-01T12:30:15");
+        String badDate = encode("yesterday|" + UUID.randomUUID());
+        String badId = encode("2026-03-01T12:30:15|42");
+
+        for (String cursor : new String[]{"not base64!", noSeparator, badDate, badId}) {
+            assertThatThrownBy(() -> KeysetCursors.decode(cursor)).isInstanceOf(InvalidCursorException.class);
+        }
+    }
+
+    @Test
+    void pageSizeDefaultsAndIsCapped() {
+        assertThat(KeysetCursors.pageSize(null)).isEqualTo(KeysetCursors.DEFAULT_PAGE_SIZE);
+        assertThat(KeysetCursors.pageSize(0)).isEqualTo(KeysetCursors.DEFAULT_PAGE_SIZE);
+        assertThat(KeysetCursors.pageSize(-5)).isEqualTo(KeysetCursors.DEFAULT_PAGE_SIZE);
+        assertThat(KeysetCursors.pageSize(20)).isEqualTo(20);
+        assertThat(KeysetCursors.pageSize(10_000)).isEqualTo(KeysetCursors.MAX_PAGE_SIZE);
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,97 @@
+package com.test.user.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.test.user.dto.ExportFormat;
+import com.test.user.dto.MailRequestDto;
+import com.test.user.entity.MailRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MailRequestExportWriterTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .enable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    @Test
+    void csvQuotesFieldsWithSeparatorsQuotesAndLineBreaks() throws IOException {
+        MailRequestDto row = row("Access, please", "He said \"now\"\r\nThanks");
+        row.setComments(null);
+
+        String csv = export(ExportFormat.CSV, new FlushCountingStream(), row);
+
+        String[] lines = csv.split("\r\n", 2);
+        assertThat(lines[0]).startsWith("id,subject,body,status,");
+        assertThat(lines[1]).startsWith(row.getId() + ",\"Access, please\",\"He said \"\"now\"\"\r\nThanks\",HD_REQ,,,");
+        assertThat(csv).endsWith("\r\n");
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() throws IOException {
+        MailRequestDto first = row("First", "One");
+        MailRequestDto second = row("Second", "Line\nbreak");
+
+        String ndjson = export(ExportFormat.NDJSON, new FlushCountingStream(), first, second);
+
+        String[] lines = ndjson.split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode parsed = objectMapper.readTree(lines[1]);
+        assertThat(parsed.get("id").asText()).isEqualTo(second.getId().toString());
+        assertThat(parsed.get("body").asText()).isEqualTo("Line\nbreak");
+    }
+
+    @Test
+    void rowsAreNotFlushedOneByOne() throws IOException {
+        for (ExportFormat format : ExportFormat.values()) {
+            FlushCountingStream out = new FlushCountingStream();
+            try (MailRequestExportWriter writer = MailRequestExportWriter.create(format, out, objectMapper)) {
+                for (int i = 0; i < 10; i++) {
+                    writer.write(row("Subject " + i, "Body"));
+                }
+                assertThat(out.flushes).as(format.name()).isZero();
+                writer.flush();
+                assertThat(out.flushes).as(format.name()).isEqualTo(1);
+            }
+        }
+    }
+
+    private String export(ExportFormat format, FlushCountingStream out, MailRequestDto... rows) throws IOException {
+        try (MailRequestExportWriter writer = MailRequestExportWriter.create(format, out, objectMapper)) {
+            for (MailRequestDto row : rows) {
+                writer.write(row);
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static MailRequestDto row(String subject, String body) {
+        MailRequestDto row = new MailRequestDto();
+        row.setId(UUID.randomUUID());
+        row.setSubject(subject);
+        row.setBody(body);
+        row.setStatus(MailRequest.Status.HD_REQ);
+        row.setCreatedAt(LocalDateTime.of(2026, 1, 2, 3, 4, 5));
+        row.setUserId(UUID.randomUUID());
+        return row;
+    }
+
+    private static final class FlushCountingStream extends ByteArrayOutputStream {
+
+        int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.test.user.service.impl;
+
+import com.test.user.entity.MailRequest.Status;
+import com.test.user.entity.User.Role;
+import com.test.user.exception.InvalidStatusTransitionException;
+import com.test.user.service.impl.ReviewTransitions.Decision;
+import com.test.user.service.impl.ReviewTransitions.Transition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReviewTransitionsTests {
+
+    private final ReviewTransitions transitions = new ReviewTransitions();
+
+    @Test
+    void looksUpTheConfiguredTransitions() {
+        assertThat(transitions.next(Status.HD_REQ, Role.TEAM_LEADER, Decision.APPROVE)).isEqualTo(Status.TL_ACCEPT);
+        assertThat(transitions.next(Status.TL_ACCEPT, Role.MANAGER, Decision.REJECT)).isEqualTo(Status.MANAGER_REJECT);
+        assertThat(transitions.next(Status.HD_ACCEPT, Role.HELP_DESK, Decision.REOPEN)).isEqualTo(Status.HD_REQ);
+
+        assertThatThrownBy(() -> transitions.next(Status.MANAGER_ACCEPT, Role.TEAM_LEADER, Decision.REJECT))
+                .isInstanceOf(InvalidStatusTransitionException.class)
+                .hasMessage("A TEAM_LEADER cannot reject a request in status MANAGER_ACCEPT");
+    }
+
+    @Test
+    void rejectsDuplicateTransitions() {
+        List<Transition> table = new ArrayList<>(ReviewTransitions.DEFAULT_TRANSITIONS);
+        table.add(new Transition(Status.HD_REQ, Role.MANAGER, Decision.APPROVE, Status.MANAGER_REJECT));
+
+        assertThatThrownBy(() -> new ReviewTransitions(table)).hasMessageStartingWith("Duplicate review transition");
+    }
+
+    @Test
+    void rejectsStatusesTheRoleCannotProduce() {
+        List<Transition> table = new ArrayList<>(ReviewTransitions.DEFAULT_TRANSITIONS);
+        table.add(new Transition(Status.TL_REJECT, Role.TEAM_LEADER, Decision.REOPEN, Status.HD_REQ));
+
+        assertThatThrownBy(() -> new ReviewTransitions(table))
+                .hasMessage("A TEAM_LEADER cannot move a request to HD_REQ");
+    }
+
+    @Test
+    void rejectsApprovalsWithoutAMatchingRejection() {
+        List<Transition> table = new ArrayList<>(ReviewTransitions.DEFAULT_TRANSITIONS);
+        table.add(new Transition(Status.HD_REJECT, Role.MANAGER, Decision.APPROVE, Status.MANAGER_ACCEPT));
+
+        assertThatThrownBy(() -> new ReviewTransitions(table))
+                .hasMessage("A MANAGER can approve but not reject a request in status HD_REJECT");
+    }
+
+    @Test
+    void rejectsUnreachableStatuses() {
+        List<Transition> table = ReviewTransitions.DEFAULT_TRANSITIONS.stream()
+                .filter(transition -> transition.to() != Status.HD_REJECT && transition.to() != Status.HD_ACCEPT)
+                .toList();
+
+        assertThatThrownBy(() -> new ReviewTransitions(table))
+                .hasMessage("Unreachable review statuses: [HD_ACCEPT, HD_REJECT]");
+    }
+}
@@ -0,0 +1,138 @@
+package com.test.user.stream;
+
+import com.test.user.directory.UserDirectory;
+import com.test.user.entity.User;
+import com.test.user.escalation.EscalationProperties;
+import com.test.user.escalation.MailRequestEscalatedEvent;
+import com.test.user.repository.UserHierarchyRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class PendingQueueStreamTests {
+
+    private final CountDownLatch stuck = new CountDownLatch(1);
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+
+    // The next subscriber's emitter: one that never finishes a write, or one that records them
+    private boolean nextBlocks;
+
+    private final PendingQueueStream stream = new PendingQueueStream(mock(UserDirectory.class),
+            mock(UserHierarchyRepository.class), new EscalationProperties(), Duration.ofMinutes(30), 4, 64, 1,
+            Duration.ofMillis(100)) {
+        @Override
+        SseEmitter newEmitter(long timeoutMillis) {
+            return nextBlocks ? new StalledEmitter() : new RecordingEmitter();
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        stream.shutdown();
+    }
+
+    @Test
+    void aStalledClientIsClosedWithoutStarvingTheOthers() throws Exception {
+        nextBlocks = true;
+        stream.subscribe(UUID.randomUUID(), User.Role.HELP_DESK, null);
+        nextBlocks = false;
+        stream.subscribe(UUID.randomUUID(), User.Role.HELP_DESK, null);
+
+        // The only sender thread gets stuck writing to the first client, before or after the second
+        stream.onEscalated(escalation());
+        assertThat(stuck.await(5, TimeUnit.SECONDS)).isTrue();
+        int before = delivered.size();
+        stream.onEscalated(escalation());
+        Thread.sleep(200);
+        assertThat(delivered).hasSize(before);
+
+        stream.closeStalledStreams();
+
+        awaitDelivered(2);
+        assertThat(stream.subscriberCount()).isEqualTo(1);
+        stream.onEscalated(escalation());
+        awaitDelivered(3);
+    }
+
+    @Test
+    void resumingPastMoreThanTheQueueHoldsGetsAReset() throws Exception {
+        stream.subscribe(UUID.randomUUID(), User.Role.HELP_DESK, null);
+        for (int i = 0; i < 3; i++) {
+            stream.onEscalated(escalation());
+        }
+        awaitDelivered(3);
+        String first = delivered.get(0).lines().filter(line -> line.startsWith("id:")).findFirst().orElseThrow()
+                .substring(3);
+        String epoch = first.substring(0, first.lastIndexOf('.'));
+        delivered.clear();
+
+        // Missed 2 of 3, then 6 of 7 with a queue of 4
+        stream.subscribe(UUID.randomUUID(), User.Role.HELP_DESK, first);
+        awaitDelivered(2);
+        assertThat(delivered).allMatch(event -> event.contains("event:escalated"));
+        for (int i = 0; i < 4; i++) {
+            stream.onEscalated(escalation());
+        }
+        awaitDelivered(10);
+        delivered.clear();
+
+        stream.subscribe(UUID.randomUUID(), User.Role.HELP_DESK, epoch + ".1");
+        awaitDelivered(1);
+        Thread.sleep(100);
+        assertThat(delivered).singleElement().asString().contains("event:reset").contains("id:" + epoch + ".7");
+    }
+
+    private static MailRequestEscalatedEvent escalation() {
+        LocalDateTime now = LocalDateTime.now();
+        return new MailRequestEscalatedEvent(UUID.randomUUID(), User.Role.HELP_DESK, now.minusHours(1), now);
+    }
+
+    private void awaitDelivered(int count) throws InterruptedException {
+        for (int attempt = 0; attempt < 100 && delivered.size() < count; attempt++) {
+            Thread.sleep(20);
+        }
+        assertThat(delivered).hasSize(count);
+    }
+
+    private class RecordingEmitter extends SseEmitter {
+
+        @Override
+        public void send(Set<ResponseBodyEmitter.DataWithMediaType> frames) {
+            StringBuilder event = new StringBuilder();
+            frames.forEach(frame -> event.append(frame.getData()));
+            delivered.add(event.toString());
+        }
+    }
+
+    // Ignores interrupts, like a write the container only gives up on at its own timeout
+    private class StalledEmitter extends SseEmitter {
+
+        @Override
+        public void send(Set<ResponseBodyEmitter.DataWithMediaType> frames) {
+            stuck.countDown();
+            boolean done = false;
+            while (!done) {
+                try {
+                    done = unblock.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // Keep blocking
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.test.user.support;
+
+import com.test.user.entity.User;
+import com.test.user.event.UserCreatedEvent;
+import com.test.user.repository.UserHierarchyRepository;
+import com.test.user.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Creates users for tests the way the user service does: saved, linked into the org chart and
+ * announced with a {@link UserCreatedEvent} on commit, so the user directory and any other listener
+ * know them as they would a real signup. Emails are unique per call.
+ */
+@Component
+public class TestUsers {
+
+    public static final String PASSWORD = "password";
+
+    private final UserRepository userRepository;
+    private final UserHierarchyRepository userHierarchyRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    public TestUsers(UserRepository userRepository, UserHierarchyRepository userHierarchyRepository,
+                     ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate) {
+        this.userRepository = userRepository;
+        this.userHierarchyRepository = userHierarchyRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * A user whose password is {@link #PASSWORD}, stored without hashing.
+     */
+    public User create(String name, User.Role role, User leader) {
+        return create(name, role, leader, "{noop}" + PASSWORD);
+    }
+
+    public User create(String name, User.Role role, User leader, String encodedPassword) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(name.toLowerCase(Locale.ROOT).replace(' ', '-') + "-" + UUID.randomUUID() + "@example.com");
+        user.setPassword(encodedPassword);
+        user.setRole(role);
+        user.setLeader(leader);
+        return transactionTemplate.execute(status -> {
+            User saved = userRepository.save(user);
+            userHierarchyRepository.addUsers(List.of(saved.getId()));
+            eventPublisher.publishEvent(UserCreatedEvent.of(saved));
+            return saved;
+        });
+    }
+}